@@ -1,4 +1,4 @@
-import { useState, useEffect, useCallback } from 'react'
+import { useState, useEffect, useCallback, useRef } from 'react'
 import axios from 'axios'
 import { BrowserRouter as Router, Routes, Route, Navigate } from 'react-router-dom'
 import { Toaster, toast } from 'react-hot-toast'
@@ -6,6 +6,7 @@ import { Loader2 } from 'lucide-react'
 
 // Context & Utils
 import { useAuth } from './context/AuthContext'
+import { suscribirCambios } from './utils/cambiosProductos'
 import './App.css'
 
 // Layout & Components
@@ -33,18 +34,26 @@ function App() {
   // Estado para disparar recargas en componentes hijos
   const [refreshHistory, setRefreshHistory] = useState(0)
 
+  // Versión hasta la que está sincronizado el listado (GET /productos/cambios)
+  const versionRef = useRef(0)
+  const productosRef = useRef(productos)
+  productosRef.current = productos
+
   const fetchData = useCallback(async () => {
     setLoading(true)
     setError(null)
     try {
-      // Cargamos todo de una vez
+      // Cargamos todo de una vez. El catálogo viene de /productos/cambios
+      // junto con la versión desde la que pedir cambios: la mayor del listado
+      // no sirve, porque las versiones se pueden confirmar desordenadas.
       const [prodRes, catRes, marRes] = await Promise.all([
-        axios.get('/productos'),
+        axios.get('/productos/cambios?desde=0'),
         axios.get('/categorias'),
         axios.get('/marcas')
       ])
 
-      setProductos(prodRes.data)
+      setProductos(prodRes.data.productos)
+      versionRef.current = prodRes.data.version
       setCategorias(Array.isArray(catRes.data) ? catRes.data : [])
       setMarcas(Array.isArray(marRes.data) ? marRes.data : [])
     } catch (err) {
@@ -63,12 +72,78 @@ function App() {
     }
   }, [isAuthenticated, loadingAuth, fetchData])
 
+  // Se pone al día con los cambios posteriores a la versión que ya tenemos
+  // (GET /productos/cambios), en lugar de volver a bajar todo el catálogo.
+  const sincronizar = useCallback(async () => {
+    try {
+      const { data } = await axios.get(`/productos/cambios?desde=${versionRef.current}`)
+      if (data.completo) {
+        setProductos(data.productos)
+        versionRef.current = data.version
+        return
+      }
+      const cambiados = new Map(data.productos.map(p => [p.id, p]))
+      const eliminados = new Set(data.eliminados)
+      setProductos(prev => {
+        const resultado = prev
+          .filter(p => !eliminados.has(p.id))
+          .map(p => cambiados.get(p.id) ?? p)
+        const conocidos = new Set(prev.map(p => p.id))
+        return resultado.concat(data.productos.filter(p => !conocidos.has(p.id)))
+      })
+      versionRef.current = Math.max(versionRef.current, data.version)
+    } catch (err) {
+      console.error("Error sincronizando productos:", err)
+      fetchData()
+    }
+  }, [fetchData])
+
+  // Cambios de stock y precio en vivo: en lugar de recargar todo el listado
+  // después de cada venta, se aplican los cambios que publica el servidor
+  // (incluidos los de otras terminales).
+  useEffect(() => {
+    if (loadingAuth || !isAuthenticated) return;
+    let primeraConexion = true
+
+    const cerrar = suscribirCambios({
+      onConectado: () => {
+        // Al reconectar pudimos perder cambios
+        if (!primeraConexion) sincronizar()
+        primeraConexion = false
+      },
+      onCambios: (cambios) => {
+        // Un producto nuevo, o uno editado (cambió el precio), no viene
+        // completo en el cambio: se trae la fila entera con su versión
+        const actuales = new Map(productosRef.current.map(p => [p.id, p]))
+        if (cambios.some(c => !c.eliminado && (!actuales.has(c.id) || Number(actuales.get(c.id).precio) !== Number(c.precio)))) {
+          sincronizar()
+          return
+        }
+        // Los cambios de distintas ventas pueden llegar desordenados: se
+        // aplica cada uno sólo si es más nuevo que lo que tenemos del producto
+        const porId = new Map()
+        for (const c of cambios) {
+          if (!porId.has(c.id) || porId.get(c.id).version < c.version) porId.set(c.id, c)
+        }
+        setProductos(prev => prev
+          .filter(p => !(porId.get(p.id)?.eliminado && porId.get(p.id).version >= p.versionCambio))
+          .map(p => {
+            const c = porId.get(p.id)
+            if (!c || c.eliminado || c.version < p.versionCambio) return p
+            return { ...p, stock: c.stock, precio: c.precio, versionCambio: c.version }
+          }))
+      },
+      onResync: () => sincronizar()
+    })
+    return cerrar
+  }, [isAuthenticated, loadingAuth, sincronizar])
+
   // --- Manejadores Globales (passed down to pages) ---
 
   const handleVender = async (id, cantidad) => {
     try {
       await axios.put(`/productos/${id}/vender?cantidad=${cantidad}`, {})
-      fetchData() // Recarga productos
+      // El nuevo stock llega por el stream de cambios
       setRefreshHistory(prev => prev + 1) // Avisa al historial
       toast.success("Venta registrada con éxito")
     } catch (err) {
@@ -86,7 +161,6 @@ function App() {
 
     try {
       await axios.delete(`/productos/${id}`)
-      fetchData()
       toast.success("Producto eliminado correctamente")
     } catch (err) {
       console.error("Error deleting product:", err)
@@ -94,14 +168,32 @@ function App() {
     }
   }
 
-  const handleActualizar = async (id, productoActualizado) => {
+  // Edición con bloqueo optimista: nombre y precio van con If-Match y el
+  // stock como diferencia contra el que se veía al abrir el formulario, así
+  // no se pisan las ventas hechas mientras tanto.
+  const handleActualizar = async (original, productoActualizado) => {
+    const { stock, ...datos } = productoActualizado
     try {
-      await axios.put(`/productos/${id}`, productoActualizado)
-      fetchData()
+      await axios.put(`/productos/${original.id}`, datos, {
+        headers: { 'If-Match': `"${original.version ?? 0}"` }
+      })
+      const delta = stock - original.stock
+      if (delta !== 0) {
+        await axios.patch(`/productos/${original.id}/stock?delta=${delta}`)
+      }
+      sincronizar()
       toast.success("Producto actualizado")
     } catch (err) {
-      console.error("Error updating product:", err)
-      toast.error("Error al actualizar el producto.")
+      const status = err.response?.status
+      if (status === 409 || status === 412) {
+        toast.error("Otro usuario modificó este producto. Revisá los datos actualizados y volvé a guardar.")
+        sincronizar()
+      } else if (status === 400) {
+        toast.error(err.response.data)
+      } else {
+        console.error("Error updating product:", err)
+        toast.error("Error al actualizar el producto.")
+      }
     }
   }
 
@@ -13,14 +13,20 @@ const ProductoForm = ({ onSuccess, productoAEditar, onActualizar, categorias = [
     const [marcaId, setMarcaId] = useState('')
 
     const [loading, setLoading] = useState(false)
+    // Producto tal como estaba al abrir el formulario: su versión va en
+    // If-Match y el stock cargado se envía como diferencia contra este
+    const [original, setOriginal] = useState(null)
 
     // Estado para Modal de Creación Rápida
     const [showModal, setShowModal] = useState(null) // 'categoria' | 'marca' | null
     const [newItemName, setNewItemName] = useState('')
     const [savingItem, setSavingItem] = useState(false)
 
+    // Sólo al abrir otro producto: los cambios en vivo (ventas de otras
+    // terminales) no pisan lo que el usuario está editando
     useEffect(() => {
         if (productoAEditar) {
+            setOriginal(productoAEditar)
             setNombre(productoAEditar.nombre)
             setCantidad(productoAEditar.stock)
             setPrecio(productoAEditar.precio)
@@ -29,7 +35,8 @@ const ProductoForm = ({ onSuccess, productoAEditar, onActualizar, categorias = [
             setCategoriaId(productoAEditar.categoria ? productoAEditar.categoria.id : '')
             setMarcaId(productoAEditar.marca ? productoAEditar.marca.id : '')
         }
-    }, [productoAEditar])
+        // eslint-disable-next-line react-hooks/exhaustive-deps
+    }, [productoAEditar?.id])
 
     const handleSubmit = async (e) => {
         e.preventDefault()
@@ -59,7 +66,7 @@ const ProductoForm = ({ onSuccess, productoAEditar, onActualizar, categorias = [
 
         try {
             if (productoAEditar) {
-                await onActualizar(productoAEditar.id, payload)
+                await onActualizar(original, payload)
                 if (onSuccess) onSuccess()
             } else {
                 await axios.post('/productos', payload)
@@ -0,0 +1,66 @@
+// Suscripción al stream de cambios de stock y precio (GET /productos/cambios/stream).
+// Se usa fetch en lugar de EventSource porque EventSource no permite enviar
+// el header Authorization con el token.
+
+const REINTENTO_MS = 3000;
+
+const procesarEvento = (bloque, handlers) => {
+    let evento = 'message';
+    const datos = [];
+    for (const linea of bloque.split('\n')) {
+        if (linea.startsWith('event:')) {
+            evento = linea.slice(6).trim();
+        } else if (linea.startsWith('data:')) {
+            datos.push(linea.slice(5));
+        }
+    }
+    if (datos.length === 0) return;
+    const payload = JSON.parse(datos.join('\n'));
+
+    if (evento === 'conectado') handlers.onConectado?.(payload);
+    else if (evento === 'cambios') handlers.onCambios?.(payload);
+    else if (evento === 'resync') handlers.onResync?.(payload);
+};
+
+/**
+ * Abre la suscripción y se reconecta sola si se corta.
+ * @returns {Function} Función que cierra la suscripción.
+ */
+export const suscribirCambios = (handlers) => {
+    const controller = new AbortController();
+
+    const conectar = async () => {
+        try {
+            const respuesta = await fetch('/productos/cambios/stream', {
+                headers: {
+                    Accept: 'text/event-stream',
+                    Authorization: localStorage.getItem('token') || ''
+                },
+                signal: controller.signal
+            });
+            if (!respuesta.ok) throw new Error(`HTTP ${respuesta.status}`);
+
+            const reader = respuesta.body.pipeThrough(new TextDecoderStream()).getReader();
+            let pendiente = '';
+            while (true) {
+                const { value, done } = await reader.read();
+                if (done) break;
+                pendiente += value.replace(/\r\n/g, '\n');
+                let fin;
+                while ((fin = pendiente.indexOf('\n\n')) >= 0) {
+                    procesarEvento(pendiente.slice(0, fin), handlers);
+                    pendiente = pendiente.slice(fin + 2);
+                }
+            }
+        } catch (err) {
+            if (controller.signal.aborted) return;
+            console.warn('Stream de cambios interrumpido:', err);
+        }
+        if (!controller.signal.aborted) {
+            setTimeout(conectar, REINTENTO_MS);
+        }
+    };
+
+    conectar();
+    return () => controller.abort();
+};
@@ -0,0 +1,182 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.DemoApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Tiempo hasta el primer pedido: desde que se lanza la JVM de la API hasta
+ * que responde un POST /auth/login, que pasa por Tomcat, Spring Security y
+ * la búsqueda del usuario en la base (no existe: la respuesta es un 403).
+ * <p>
+ * Usa el artefacto del perfil Maven {@code arranque}, así que se corre con los
+ * dos perfiles:
+ * <pre>
+ * mvn -P arranque,benchmark -DskipTests verify -Djmh.include=ArranqueBenchmark
+ * </pre>
+ * Modos: {@code jvm} (sin optimizaciones), {@code aot} (clases pregeneradas por
+ * Spring AOT) y {@code aot-cds} (AOT más un archivo AppCDS, generado acá con
+ * una corrida de entrenamiento sobre el mismo classpath). Cada medición es un
+ * proceso nuevo contra H2 en memoria; la salida de la API queda en
+ * target/arranque-benchmark.log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class ArranqueBenchmark {
+
+    private static final Path TARGET = Path.of("target");
+    private static final Duration ESPERA_MAXIMA = Duration.ofMinutes(2);
+
+    @Param({ "jvm", "aot", "aot-cds" })
+    public String modo;
+
+    private String classpath;
+    private Path archivoCds;
+    private HttpClient cliente;
+    private Process proceso;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Path jar;
+        try (Stream<Path> archivos = Files.list(TARGET)) {
+            jar = archivos
+                    .filter(p -> p.getFileName().toString().matches("inventario_api-.*\\.jar")
+                            && !p.getFileName().toString().endsWith("-exec.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException(
+                            "No está el jar del perfil arranque: correr con -P arranque,benchmark"));
+        }
+        List<String> entradas = new ArrayList<>();
+        entradas.add(jar.toString());
+        try (Stream<Path> dependencias = Files.list(TARGET.resolve("lib"))) {
+            dependencias.map(Path::toString).sorted().forEach(entradas::add);
+        }
+        // H2 no está en lib/ (scope test): se toma del classpath del benchmark
+        Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entrada -> entrada.contains("com" + File.separator + "h2database"))
+                .forEach(entradas::add);
+        classpath = String.join(File.pathSeparator, entradas);
+        cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+        if (modo.equals("aot-cds")) {
+            // Entrenamiento: las clases cargadas hasta el primer pedido se vuelcan al salir
+            archivoCds = TARGET.resolve("arranque-benchmark.jsa");
+            Files.deleteIfExists(archivoCds);
+            arrancar(List.of("-XX:ArchiveClassesAtExit=" + archivoCds, "-Xlog:cds=error"));
+            detener();
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void detener() throws InterruptedException {
+        if (proceso != null) {
+            proceso.destroy();
+            if (!proceso.waitFor(30, TimeUnit.SECONDS)) {
+                proceso.destroyForcibly().waitFor();
+            }
+            proceso = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cliente.close();
+    }
+
+    @Benchmark
+    public int primerPedido() throws Exception {
+        return arrancar(modo.equals("aot-cds") ? List.of("-XX:SharedArchiveFile=" + archivoCds) : List.of());
+    }
+
+    /**
+     * Lanza la API y espera la primera respuesta.
+     *
+     * @return Status de la respuesta.
+     */
+    private int arrancar(List<String> opcionesJvm) throws Exception {
+        int puerto;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            puerto = socket.getLocalPort();
+        }
+        List<String> comando = new ArrayList<>();
+        comando.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        comando.addAll(opcionesJvm);
+        if (!modo.equals("jvm")) {
+            comando.add("-Dspring.aot.enabled=true");
+        }
+        comando.addAll(List.of("-cp", classpath, DemoApplication.class.getName(),
+                "--spring.profiles.active=arranque",
+                "--spring.datasource.url=jdbc:h2:mem:arranque;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--server.port=" + puerto,
+                "--management.server.port=0"));
+
+        HttpRequest pedido = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"arranque\",\"password\":\"x\"}"))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+
+        long limite = System.nanoTime() + ESPERA_MAXIMA.toNanos();
+        proceso = new ProcessBuilder(comando)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(TARGET.resolve("arranque-benchmark.log").toFile()))
+                .start();
+        while (true) {
+            try {
+                int status = cliente.send(pedido, HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status >= 500) {
+                    throw new IllegalStateException("Respuesta " + status);
+                }
+                return status;
+            } catch (ConnectException e) {
+                if (!proceso.isAlive()) {
+                    throw new IllegalStateException("La API terminó con código " + proceso.exitValue()
+                            + "; ver target/arranque-benchmark.log");
+                }
+                if (System.nanoTime() > limite) {
+                    throw new IllegalStateException("La API no respondió en " + ESPERA_MAXIMA);
+                }
+                Thread.sleep(10);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.AuthTokenCache;
+import com.example.demo.config.AuthTokenFilter;
+import com.example.demo.config.JwtUtils;
+import com.example.demo.service.UserDetailsServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AuthTokenFilter} completo sobre un request con "Authorization:
+ * Bearer": con el token ya en caché y sin caché (parseo del JWT y carga del
+ * usuario en cada request). La carga del usuario no toca la base, así se mide
+ * sólo el costo del filtro.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AuthTokenFilterBenchmark {
+
+    private AuthTokenFilter filtroConCache;
+    private AuthTokenFilter filtroSinCache;
+    private String header;
+
+    @Setup
+    public void setUp() {
+        JwtUtils jwtUtils = new JwtUtils();
+        UserDetailsServiceImpl usuarios = new UsuarioFijo();
+        filtroConCache = new AuthTokenFilter(new AuthTokenCache(jwtUtils, usuarios, Duration.ofMinutes(5), 10_000));
+        // TTL cero: cada entrada vence al crearse y el token se valida siempre
+        filtroSinCache = new AuthTokenFilter(new AuthTokenCache(jwtUtils, usuarios, Duration.ZERO, 10_000));
+        header = "Bearer " + jwtUtils.generateToken("admin");
+    }
+
+    @Benchmark
+    public Authentication tokenEnCache() throws Exception {
+        return filtrar(filtroConCache);
+    }
+
+    @Benchmark
+    public Authentication tokenSinCache() throws Exception {
+        return filtrar(filtroSinCache);
+    }
+
+    private Authentication filtrar(AuthTokenFilter filtro) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/productos");
+        request.addHeader("Authorization", header);
+        filtro.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return autenticacion;
+    }
+
+    private static final class UsuarioFijo extends UserDetailsServiceImpl {
+        private final UserDetails admin = new User("admin", "x",
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+
+        UsuarioFijo() {
+            super(null);
+        }
+
+        @Override
+        public UserDetails loadUserByUsername(String username) {
+            return admin;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.config.JwtUtils;
+import com.example.demo.model.Producto;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.ProductoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de carga de la API por HTTP, con hilos de plataforma (modo por
+ * defecto) y con hilos virtuales (perfil {@code virtual}).
+ * <p>
+ * Cada operación es una ráfaga de {@code concurrencia} pedidos simultáneos a
+ * GET /productos/{id}, que siempre consulta la base. La base es H2 en memoria,
+ * con una demora fija en cada sentencia para simular la ida y vuelta a MySQL,
+ * que es donde pasa la mayor parte del tiempo un request real. Se reporta el
+ * tiempo de la ráfaga completa; los errores (status distinto de 200) hacen
+ * fallar la corrida.
+ * <p>
+ * Con el pool de 10 conexiones y 20 ms por sentencia el techo es de unos 500
+ * requests/s en los dos modos: lo que cambia es cómo se espera hasta llegar a
+ * la base (hilos de Tomcat bloqueados o hilos virtuales estacionados).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class HilosVirtualesBenchmark {
+
+    private static final Duration DEMORA_SQL = Duration.ofMillis(20);
+
+    @Param({ "plataforma", "virtual" })
+    public String modo;
+
+    @Param({ "200", "1000" })
+    public int concurrencia;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient cliente;
+    private HttpRequest pedido;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:carga;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--server.port=0",
+                "--management.server.port=0",
+                "--logging.level.root=WARN"));
+        if (modo.equals("virtual")) {
+            argumentos.add("--spring.profiles.active=virtual");
+            // Se mide el rendimiento, no el corte por espera: mismo margen que Hikari
+            argumentos.add("--app.db.limitador.espera-maxima=30s");
+        }
+        contexto = new SpringApplicationBuilder(DemoApplication.class)
+                .initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(new DemoraSql()))
+                .run(argumentos.toArray(String[]::new));
+
+        contexto.getBean(UserRepository.class).save(new User("carga", "x"));
+        Long id = contexto.getBean(ProductoService.class)
+                .guardar(new Producto("Producto de carga", new BigDecimal("100.00"), 10)).getId();
+        String token = contexto.getBean(JwtUtils.class).generateToken("carga");
+        int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+
+        cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        pedido = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/productos/" + id))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cliente.close();
+        contexto.close();
+    }
+
+    @Benchmark
+    public int rafaga() {
+        List<CompletableFuture<HttpResponse<Void>>> respuestas = new ArrayList<>(concurrencia);
+        for (int i = 0; i < concurrencia; i++) {
+            respuestas.add(cliente.sendAsync(pedido, HttpResponse.BodyHandlers.discarding()));
+        }
+        int correctas = 0;
+        for (CompletableFuture<HttpResponse<Void>> respuesta : respuestas) {
+            int status = respuesta.join().statusCode();
+            if (status != 200) {
+                throw new IllegalStateException("Respuesta " + status);
+            }
+            correctas++;
+        }
+        return correctas;
+    }
+
+    /**
+     * Envuelve el DataSource para demorar cada ejecución de sentencia. Se
+     * registra antes que los BeanPostProcessor de la aplicación, así que el
+     * limitador (si está habilitado) queda por fuera y la demora ocurre con la
+     * conexión tomada, como con una base remota.
+     */
+    private static final class DemoraSql implements BeanPostProcessor {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource)) {
+                return bean;
+            }
+            return Proxy.newProxyInstance(DemoraSql.class.getClassLoader(), new Class<?>[] { DataSource.class },
+                    (proxy, method, args) -> {
+                        Object resultado = invocar(dataSource, method, args);
+                        return resultado instanceof Connection conexion ? conDemora(conexion) : resultado;
+                    });
+        }
+
+        private static Connection conDemora(Connection conexion) {
+            return (Connection) Proxy.newProxyInstance(DemoraSql.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                        Object resultado = invocar(conexion, method, args);
+                        if (resultado instanceof PreparedStatement sentencia) {
+                            return demorar(sentencia, PreparedStatement.class);
+                        }
+                        if (resultado instanceof Statement sentencia) {
+                            return demorar(sentencia, Statement.class);
+                        }
+                        return resultado;
+                    });
+        }
+
+        private static <T extends Statement> Object demorar(T sentencia, Class<T> tipo) {
+            return Proxy.newProxyInstance(DemoraSql.class.getClassLoader(), new Class<?>[] { tipo },
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("execute")) {
+                            Thread.sleep(DEMORA_SQL);
+                        }
+                        return invocar(sentencia, method, args);
+                    });
+        }
+
+        private static Object invocar(Object destino, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(destino, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
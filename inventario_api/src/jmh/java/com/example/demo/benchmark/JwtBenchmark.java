@@ -0,0 +1,52 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.JwtUtils;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación y validación de JWT con {@link JwtUtils}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtBenchmark {
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        token = jwtUtils.generateToken("admin");
+    }
+
+    @Benchmark
+    public String generarToken() {
+        return jwtUtils.generateToken("admin");
+    }
+
+    @Benchmark
+    public Claims validarToken() {
+        return jwtUtils.parseClaims(token);
+    }
+
+    @Benchmark
+    public Claims validarTokenInvalido() {
+        return jwtUtils.parseClaims("no-es-un-jwt");
+    }
+}
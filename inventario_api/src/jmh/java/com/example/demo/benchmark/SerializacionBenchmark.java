@@ -0,0 +1,91 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.Categoria;
+import com.example.demo.model.Marca;
+import com.example.demo.model.Producto;
+import com.example.demo.model.Venta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de los listados de productos (incluye el margen de
+ * ganancia calculado) y de ventas, con la misma configuración de Jackson que
+ * usa Spring Boot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SerializacionBenchmark {
+
+    @Param({ "100", "1000" })
+    private int cantidad;
+
+    private ObjectMapper objectMapper;
+    private List<Producto> productos;
+    private List<Venta> ventas;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        // Semilla fija: los mismos datos en cada corrida
+        Random random = new Random(42);
+        Categoria categoria = new Categoria("Periféricos");
+        categoria.setId(1L);
+        Marca marca = new Marca("Logitech");
+        marca.setId(1L);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        productos = new ArrayList<>(cantidad);
+        ventas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            BigDecimal precio = BigDecimal.valueOf(1000 + random.nextInt(100000), 2);
+            Producto producto = new Producto("Producto " + i, precio, random.nextInt(500));
+            producto.setId((long) i + 1);
+            producto.setPrecioCosto(precio.doubleValue() * 0.6);
+            producto.setStockMinimo(5);
+            producto.setCategoria(categoria);
+            producto.setMarca(marca);
+            productos.add(producto);
+
+            int unidades = 1 + random.nextInt(5);
+            Venta venta = new Venta(producto.getNombre(), unidades, precio.doubleValue(),
+                    precio.doubleValue() * unidades);
+            venta.setId((long) i + 1);
+            venta.setProductoId(producto.getId());
+            venta.setCostoUnitario(producto.getPrecioCosto());
+            venta.setFechaVenta(base.plusMinutes(i));
+            ventas.add(venta);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializarProductos() throws Exception {
+        return objectMapper.writeValueAsBytes(productos);
+    }
+
+    @Benchmark
+    public byte[] serializarVentas() throws Exception {
+        return objectMapper.writeValueAsBytes(ventas);
+    }
+}
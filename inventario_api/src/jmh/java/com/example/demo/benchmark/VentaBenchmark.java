@@ -0,0 +1,83 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.dto.ProductoResumen;
+import com.example.demo.model.Producto;
+import com.example.demo.service.ProductoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductoService#venderProducto} de punta a punta (transacción,
+ * descuento de stock, registro de la venta y métricas) contra una base H2 en
+ * memoria en modo MySQL, con el contexto completo de la aplicación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+// Hibernate tarda en estabilizarse: calentamiento más largo que el resto
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VentaBenchmark {
+
+    private ConfigurableApplicationContext contexto;
+    private ProductoService productoService;
+    private Long productoConStock;
+    private Long productoSinStock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contexto = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                // Como argumentos, para que tengan prioridad sobre application.properties
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+        productoService = contexto.getBean(ProductoService.class);
+
+        // Stock suficiente para todas las iteraciones de la corrida
+        Producto conStock = new Producto("Benchmark con stock", new BigDecimal("100.00"), Integer.MAX_VALUE);
+        conStock.setPrecioCosto(60.0);
+        productoConStock = productoService.guardar(conStock).getId();
+        productoSinStock = productoService.guardar(
+                new Producto("Benchmark sin stock", new BigDecimal("100.00"), 0)).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public ProductoResumen vender() {
+        return productoService.venderProducto(productoConStock, 1);
+    }
+
+    @Benchmark
+    public Object venderSinStock() {
+        try {
+            return productoService.venderProducto(productoSinStock, 1);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.demo.config;
+
+import com.example.demo.service.UserDetailsServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché acotada de tokens ya validados → usuario autenticado.
+ * <p>
+ * Evita parsear el JWT y consultar la tabla users en cada request. Cada
+ * entrada vive como máximo {@code app.auth.cache.ttl} y nunca más allá del
+ * vencimiento del propio token. Se vacía cuando cambia algún usuario
+ * (ver {@link UserChangeListener}).
+ * <p>
+ * El usuario se carga fuera de la caché y recién después se guarda: con
+ * {@code cache.get(token, cargador)} la consulta a la base corría dentro del
+ * {@code compute} del mapa, que bloquea con {@code synchronized} y deja al
+ * hilo virtual clavado a su hilo de plataforma mientras espera a MySQL.
+ */
+@Component
+public class AuthTokenCache {
+
+    private final JwtUtils jwtUtils;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final Cache<String, Entrada> cache;
+    // Cambia en cada invalidación: una carga que empezó antes no se guarda
+    private final AtomicLong generacion = new AtomicLong();
+
+    public AuthTokenCache(JwtUtils jwtUtils, UserDetailsServiceImpl userDetailsService,
+            @Value("${app.auth.cache.ttl:5m}") Duration ttl,
+            @Value("${app.auth.cache.max-size:10000}") long maxSize) {
+        this.jwtUtils = jwtUtils;
+        this.userDetailsService = userDetailsService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ExpiraConToken(ttl.toNanos()))
+                .build();
+    }
+
+    /**
+     * Devuelve el usuario del token, validándolo sólo si no estaba en caché.
+     *
+     * @param token JWT recibido.
+     * @return El usuario, o null si el token es inválido o está vencido.
+     * @throws org.springframework.security.core.userdetails.UsernameNotFoundException
+     *         si el usuario del token ya no existe.
+     */
+    public UserDetails obtenerUsuario(String token) {
+        Entrada entrada = cache.getIfPresent(token);
+        if (entrada == null) {
+            long generacionAlCargar = generacion.get();
+            entrada = cargar(token);
+            if (entrada == null) {
+                return null;
+            }
+            if (generacion.get() == generacionAlCargar) {
+                cache.put(token, entrada);
+            }
+        }
+        return entrada.usuario;
+    }
+
+    /**
+     * Descarta todas las entradas. Se usa cuando cambia el rol o la
+     * contraseña de algún usuario; esos cambios son poco frecuentes.
+     */
+    public void invalidarTodo() {
+        generacion.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private Entrada cargar(String token) {
+        Claims claims = jwtUtils.parseClaims(token);
+        if (claims == null) {
+            // Los tokens inválidos no se guardan: no ocupan lugar en la caché
+            return null;
+        }
+        UserDetails usuario = userDetailsService.loadUserByUsername(claims.getSubject());
+        long expiraEn = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        return new Entrada(usuario, expiraEn);
+    }
+
+    private static final class Entrada {
+        private final UserDetails usuario;
+        private final long expiraEnMillis;
+
+        private Entrada(UserDetails usuario, long expiraEnMillis) {
+            this.usuario = usuario;
+            this.expiraEnMillis = expiraEnMillis;
+        }
+    }
+
+    /**
+     * Expira cada entrada al cumplirse el TTL o al vencer el token, lo que
+     * ocurra primero.
+     */
+    private static final class ExpiraConToken implements Expiry<String, Entrada> {
+        private final long ttlNanos;
+
+        private ExpiraConToken(long ttlNanos) {
+            this.ttlNanos = ttlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String token, Entrada entrada, long currentTime) {
+            long restanteMillis = entrada.expiraEnMillis - System.currentTimeMillis();
+            if (restanteMillis <= 0) {
+                return 0;
+            }
+            return Math.min(ttlNanos, Duration.ofMillis(restanteMillis).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Entrada entrada, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, entrada, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Entrada entrada, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.example.demo.config;
 
-import com.example.demo.service.UserDetailsServiceImpl;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -17,38 +16,38 @@ import java.io.IOException;
 @Component
 public class AuthTokenFilter extends OncePerRequestFilter {
 
-    private final JwtUtils jwtUtils;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final AuthTokenCache authTokenCache;
 
-    public AuthTokenFilter(JwtUtils jwtUtils, UserDetailsServiceImpl userDetailsService) {
-        this.jwtUtils = jwtUtils;
-        this.userDetailsService = userDetailsService;
+    public AuthTokenFilter(AuthTokenCache authTokenCache) {
+        this.authTokenCache = authTokenCache;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        System.out.println("AuthTokenFilter: Processing " + request.getMethod() + " " + request.getRequestURI());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Procesando " + request.getMethod() + " " + request.getRequestURI());
+        }
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateToken(jwt)) {
-                String username = jwtUtils.getUsernameFromToken(jwt);
-                System.out.println("AuthTokenFilter: Token válido. Usuario: " + username);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                System.out.println("AuthTokenFilter: Roles cargados: " + userDetails.getAuthorities());
+            // Un único parseo del token; el usuario se toma de la caché si ya se validó
+            UserDetails userDetails = jwt != null ? authTokenCache.obtenerUsuario(jwt) : null;
+            if (userDetails != null) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Token válido. Usuario: " + userDetails.getUsername()
+                            + ", roles: " + userDetails.getAuthorities());
+                }
 
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-            } else {
-                System.out.println("AuthTokenFilter: No hay token o es inválido");
+            } else if (logger.isDebugEnabled()) {
+                logger.debug("No hay token o es inválido");
             }
         } catch (Exception e) {
-            System.out.println("AuthTokenFilter Error: " + e.getMessage());
-            logger.error("Cannot set user authentication: {}", e);
+            logger.error("Cannot set user authentication", e);
         }
 
         filterChain.doFilter(request, response);
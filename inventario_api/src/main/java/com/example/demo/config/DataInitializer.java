@@ -8,10 +8,18 @@ import com.example.demo.repository.CategoriaRepository;
 import com.example.demo.repository.MarcaRepository;
 import com.example.demo.repository.ProductoRepository;
 import com.example.demo.repository.VentaRepository;
+import com.example.demo.service.AlertasStock;
+import com.example.demo.service.CatalogoCache;
+import com.example.demo.service.IndiceNombresProducto;
+import com.example.demo.service.VentaDiariaService;
+import com.example.demo.service.VersionesProducto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -20,22 +28,39 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
+/**
+ * Datos de demostración: borra el catálogo y las ventas y carga un conjunto
+ * chico de productos y ventas.
+ * <p>
+ * Sólo si se activa el perfil {@code datos-demo}: como vacía la base, no
+ * corre al arrancar sin perfiles ni con otros (por ejemplo {@code virtual} o
+ * {@code test}). Para volumen de producción ver {@link GeneradorDatos}.
+ * <p>
+ * La carga corre en segundo plano: la aplicación queda lista sin esperarla y
+ * los pedidos que lleguen mientras tanto ven la base a medio cargar. Al
+ * terminar se recargan los índices en memoria, que se armaron al arrancar.
+ */
 @Configuration
+@Profile("datos-demo")
 public class DataInitializer {
 
+        private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
+
         @Bean
-        @Transactional
         CommandLineRunner initData(
+                        JdbcTemplate jdbcTemplate,
                         ProductoRepository productoRepository,
                         VentaRepository ventaRepository,
                         MarcaRepository marcaRepository,
-                        CategoriaRepository categoriaRepository) {
-                return args -> {
-                        // Limpieza total
-                        ventaRepository.deleteAll();
-                        productoRepository.deleteAll();
-                        marcaRepository.deleteAll();
-                        categoriaRepository.deleteAll();
+                        CategoriaRepository categoriaRepository,
+                        VentaDiariaService ventaDiariaService,
+                        VersionesProducto versionesProducto,
+                        IndiceNombresProducto indiceNombres,
+                        AlertasStock alertasStock,
+                        CatalogoCache catalogoCache) {
+                CommandLineRunner carga = args -> {
+                        // Limpieza total: una sentencia por tabla, sin cargar las filas
+                        VaciadoTablas.vaciar(jdbcTemplate);
 
                         // 1. Crear Categorías
                         Categoria catPerifericos = new Categoria("Periféricos");
@@ -124,11 +149,29 @@ public class DataInitializer {
                         ventas.add(crearVenta(monitor, 1, hoy.minusMonths(1).minusDays(2)));
 
                         ventaRepository.saveAll(ventas);
+                        // Las ventas se insertan directo: el resumen diario se arma al final
+                        ventaDiariaService.reconstruir();
+                        // Catálogo nuevo: los clientes con copia local tienen que recargarlo entero
+                        versionesProducto.reiniciar();
 
                         System.out.println("=== DATOS INICIALIZADOS CON INTEGRIDAD FINANCIERA ===");
                         System.out.println("Productos creados: " + productos.size());
                         System.out.println("Ventas creadas: " + ventas.size());
                 };
+
+                return args -> {
+                        Thread hilo = new Thread(() -> {
+                                try {
+                                        carga.run(args);
+                                        indiceNombres.cargar();
+                                        alertasStock.cargar();
+                                        catalogoCache.invalidar(CatalogoCache.Coleccion.values());
+                                } catch (Exception e) {
+                                        log.error("Falló la carga de datos de demostración", e);
+                                }
+                        }, "datos-demo");
+                        hilo.start();
+                };
         }
 
         private Producto crearProducto(String nombre, double precioVenta, int stock, Marca marca, Categoria categoria) {
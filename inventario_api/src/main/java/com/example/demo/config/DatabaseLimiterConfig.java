@@ -0,0 +1,77 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Limitador de conexiones para el modo con hilos virtuales (perfil
+ * {@code virtual}, ver application-virtual.properties).
+ * <p>
+ * Con {@code app.db.limitador.habilitado=true} el DataSource de la aplicación
+ * queda envuelto en un {@link LimitedDataSource}. Los permisos salen de
+ * {@code app.db.limitador.permisos} o, si no está, del tamaño máximo del pool
+ * de Hikari. Métricas: {@code db.limitador.en-uso} y {@code db.limitador.en-espera}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.db.limitador.habilitado", havingValue = "true")
+public class DatabaseLimiterConfig {
+
+    // static: los BeanPostProcessor se crean antes que el resto de la configuración
+    @Bean
+    public static BeanPostProcessor limitadorDataSource(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || limitado(dataSource)) {
+                    return bean;
+                }
+                return limitar(dataSource, environment);
+            }
+        };
+    }
+
+    /**
+     * Envuelve un pool en un {@link LimitedDataSource}. Lo usa también el
+     * ruteo a réplicas, que limita cada pool por separado.
+     */
+    static LimitedDataSource limitar(DataSource dataSource, Environment environment) {
+        // Hasta que el pool arranca, Hikari devuelve -1 si no se configuró el tamaño (después usa 10)
+        int porDefecto = dataSource instanceof HikariDataSource hikari && hikari.getMaximumPoolSize() > 0
+                ? hikari.getMaximumPoolSize() : 10;
+        int permisos = environment.getProperty("app.db.limitador.permisos", Integer.class, porDefecto);
+        Duration esperaMaxima = environment.getProperty("app.db.limitador.espera-maxima", Duration.class,
+                Duration.ofSeconds(5));
+        return new LimitedDataSource(dataSource, permisos, esperaMaxima);
+    }
+
+    static boolean limitado(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(LimitedDataSource.class);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Bean
+    public MeterBinder limitadorDataSourceMetricas(DataSource dataSource) throws SQLException {
+        LimitedDataSource limitador = dataSource.unwrap(LimitedDataSource.class);
+        return registry -> {
+            Gauge.builder("db.limitador.en-uso", limitador, LimitedDataSource::getEnUso)
+                    .description("Conexiones entregadas por el limitador y sin cerrar")
+                    .register(registry);
+            Gauge.builder("db.limitador.en-espera", limitador, LimitedDataSource::getEnEspera)
+                    .description("Pedidos esperando una conexión")
+                    .register(registry);
+        };
+    }
+}
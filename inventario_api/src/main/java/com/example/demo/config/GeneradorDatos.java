@@ -0,0 +1,333 @@
+package com.example.demo.config;
+
+import com.example.demo.model.Categoria;
+import com.example.demo.model.Marca;
+import com.example.demo.model.Producto;
+import com.example.demo.model.Venta;
+import com.example.demo.repository.CategoriaRepository;
+import com.example.demo.repository.MarcaRepository;
+import com.example.demo.repository.ProductoJdbcRepository;
+import com.example.demo.repository.VentaJdbcRepository;
+import com.example.demo.service.VentaDiariaService;
+import com.example.demo.service.VersionesProducto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Genera un volumen de datos parecido al de producción para reproducir
+ * problemas de latencia en local. Sólo con el perfil {@code datos-masivos}:
+ * <pre>
+ * mvn spring-boot:run -Dspring-boot.run.profiles=datos-masivos \
+ *     -Dspring-boot.run.arguments="--app.generador.productos=1000000 --app.generador.ventas=10000000"
+ * </pre>
+ * Vacía el catálogo y las ventas (los usuarios quedan) y carga todo con
+ * batches JDBC, un lote de {@code app.generador.lote} filas por transacción.
+ * <ul>
+ * <li>Productos con precios log-normales por categoría y stock variado
+ * (algunos por debajo del mínimo).</li>
+ * <li>Ventas repartidas en los últimos {@code app.generador.dias} días con
+ * tendencia creciente, más ventas los viernes y sábados y un pico en
+ * diciembre; insertadas en orden cronológico, como en producción.</li>
+ * <li>El producto de cada venta sigue una distribución de Zipf con exponente
+ * {@code app.generador.zipf}: pocos productos concentran la mayoría de las
+ * ventas. Los más vendidos quedan repartidos por todo el rango de ids.</li>
+ * <li>Una fracción {@code app.generador.ventas-sin-producto} de ventas
+ * históricas sin productoId, como las anteriores a esa columna.</li>
+ * </ul>
+ * Con la misma semilla se generan los mismos datos.
+ */
+@Component
+@Profile("datos-masivos")
+public class GeneradorDatos implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorDatos.class);
+
+    private static final String[][] CATALOGO = {
+            { "Periféricos", "Mouse", "Teclado", "Webcam", "Mousepad", "Joystick" },
+            { "Monitores", "Monitor", "Monitor Curvo", "Monitor Gamer" },
+            { "Laptops", "Notebook", "Ultrabook", "Notebook Gamer" },
+            { "Audio", "Auriculares", "Parlante", "Micrófono", "Barra de Sonido" },
+            { "Cables y Adaptadores", "Cable HDMI", "Cable USB-C", "Adaptador", "Hub USB" },
+            { "Almacenamiento", "Disco SSD", "Disco Externo", "Pendrive", "Memoria SD" },
+            { "Redes", "Router", "Switch", "Repetidor Wi-Fi", "Placa de Red" },
+            { "Componentes", "Memoria RAM", "Fuente", "Gabinete", "Cooler" } };
+
+    // Precio típico de cada categoría, en el mismo orden que CATALOGO
+    private static final double[] PRECIO_BASE = { 40_000, 350_000, 1_200_000, 90_000, 15_000, 80_000, 70_000,
+            60_000 };
+
+    private static final String[] MARCAS = { "Logitech", "Dell", "Apple", "Samsung", "HyperX", "Genérico", "Lenovo",
+            "HP", "Kingston", "TP-Link", "Sony", "Corsair" };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CategoriaRepository categoriaRepository;
+    private final MarcaRepository marcaRepository;
+    private final ProductoJdbcRepository productoJdbcRepository;
+    private final VentaJdbcRepository ventaJdbcRepository;
+    private final VentaDiariaService ventaDiariaService;
+    private final VersionesProducto versionesProducto;
+    private final TransactionTemplate transactionTemplate;
+    private final int cantidadProductos;
+    private final long cantidadVentas;
+    private final int dias;
+    private final double exponenteZipf;
+    private final double fraccionSinProducto;
+    private final long semilla;
+    private final int lote;
+
+    public GeneradorDatos(JdbcTemplate jdbcTemplate, CategoriaRepository categoriaRepository,
+            MarcaRepository marcaRepository, ProductoJdbcRepository productoJdbcRepository,
+            VentaJdbcRepository ventaJdbcRepository, VentaDiariaService ventaDiariaService,
+            VersionesProducto versionesProducto, PlatformTransactionManager transactionManager,
+            @Value("${app.generador.productos:50000}") int cantidadProductos,
+            @Value("${app.generador.ventas:2000000}") long cantidadVentas,
+            @Value("${app.generador.dias:730}") int dias,
+            @Value("${app.generador.zipf:1.1}") double exponenteZipf,
+            @Value("${app.generador.ventas-sin-producto:0}") double fraccionSinProducto,
+            @Value("${app.generador.semilla:42}") long semilla,
+            @Value("${app.generador.lote:5000}") int lote) {
+        if (cantidadProductos <= 0 || cantidadVentas < 0 || dias <= 0 || lote <= 0) {
+            throw new IllegalArgumentException("Configuración inválida del generador de datos");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.categoriaRepository = categoriaRepository;
+        this.marcaRepository = marcaRepository;
+        this.productoJdbcRepository = productoJdbcRepository;
+        this.ventaJdbcRepository = ventaJdbcRepository;
+        this.ventaDiariaService = ventaDiariaService;
+        this.versionesProducto = versionesProducto;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cantidadProductos = cantidadProductos;
+        this.cantidadVentas = cantidadVentas;
+        this.dias = dias;
+        this.exponenteZipf = exponenteZipf;
+        this.fraccionSinProducto = fraccionSinProducto;
+        this.semilla = semilla;
+        this.lote = lote;
+    }
+
+    @Override
+    public void run(String... args) {
+        long comienzo = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(semilla);
+
+        VaciadoTablas.vaciar(jdbcTemplate);
+        log.info("Tablas vaciadas ({} ms)", desde(comienzo));
+
+        List<Categoria> categorias = new ArrayList<>();
+        for (String[] categoria : CATALOGO) {
+            categorias.add(new Categoria(categoria[0]));
+        }
+        categoriaRepository.saveAll(categorias);
+        List<Marca> marcas = new ArrayList<>();
+        for (String marca : MARCAS) {
+            marcas.add(new Marca(marca));
+        }
+        marcaRepository.saveAll(marcas);
+
+        Catalogo catalogo = generarProductos(random, categorias, marcas);
+        log.info("{} productos generados ({} ms)", cantidadProductos, desde(comienzo));
+
+        long ventas = generarVentas(random, catalogo);
+        log.info("{} ventas generadas ({} ms)", ventas, desde(comienzo));
+
+        ventaDiariaService.reconstruir();
+        versionesProducto.reiniciar();
+        log.info("Datos masivos listos: {} productos, {} ventas en {} días ({} ms)", cantidadProductos, ventas, dias,
+                desde(comienzo));
+    }
+
+    private Catalogo generarProductos(SplittableRandom random, List<Categoria> categorias, List<Marca> marcas) {
+        Catalogo catalogo = new Catalogo(cantidadProductos);
+        List<Producto> pendientes = new ArrayList<>(lote);
+        int inicioLote = 0;
+        for (int i = 0; i < cantidadProductos; i++) {
+            int c = random.nextInt(CATALOGO.length);
+            String[] tipos = CATALOGO[c];
+            Marca marca = marcas.get(random.nextInt(marcas.size()));
+            String nombre = tipos[1 + random.nextInt(tipos.length - 1)] + " " + marca.getNombre() + " "
+                    + (char) ('A' + random.nextInt(26)) + (i + 1);
+
+            // Log-normal alrededor del precio típico de la categoría
+            double precio = PRECIO_BASE[c] * Math.exp(0.6 * random.nextGaussian());
+            Producto producto = new Producto(nombre, BigDecimal.valueOf(precio).setScale(2, RoundingMode.HALF_UP),
+                    random.nextInt(10) == 0 ? random.nextInt(5) : 5 + random.nextInt(200));
+            producto.setPrecioCosto(Math.round(precio * (0.5 + 0.25 * random.nextDouble()) * 100) / 100.0);
+            producto.setStockMinimo(5);
+            producto.setCategoria(categorias.get(c));
+            producto.setMarca(marca);
+            pendientes.add(producto);
+
+            if (pendientes.size() == lote || i == cantidadProductos - 1) {
+                List<Producto> bloque = pendientes;
+                transactionTemplate.executeWithoutResult(estado -> productoJdbcRepository.insertarLote(bloque));
+                for (int j = 0; j < bloque.size(); j++) {
+                    Producto guardado = bloque.get(j);
+                    catalogo.agregar(inicioLote + j, guardado.getId(), guardado.getNombre(),
+                            guardado.getPrecio().doubleValue(), guardado.getPrecioCosto());
+                }
+                inicioLote = i + 1;
+                pendientes = new ArrayList<>(lote);
+            }
+        }
+        catalogo.prepararZipf(random, exponenteZipf);
+        return catalogo;
+    }
+
+    private long generarVentas(SplittableRandom random, Catalogo catalogo) {
+        LocalDate primerDia = LocalDate.now().minusDays(dias - 1);
+        double[] pesos = new double[dias];
+        double total = 0;
+        for (int d = 0; d < dias; d++) {
+            pesos[d] = pesoDelDia(primerDia.plusDays(d), d);
+            total += pesos[d];
+        }
+
+        List<Venta> pendientes = new ArrayList<>(lote);
+        long generadas = 0;
+        long siguienteAviso = cantidadVentas / 10;
+        double acumulado = 0;
+        for (int d = 0; d < dias; d++) {
+            // Ventas del día proporcionales a su peso, sin perder redondeos
+            acumulado += pesos[d];
+            long hastaHoy = d == dias - 1 ? cantidadVentas : Math.round(cantidadVentas * acumulado / total);
+            int delDia = (int) (hastaHoy - generadas);
+
+            // Horario comercial con más movimiento a media tarde; en orden, como se registran
+            long[] segundos = new long[delDia];
+            for (int v = 0; v < delDia; v++) {
+                double hora = 9 + 6 * (random.nextDouble() + random.nextDouble());
+                segundos[v] = (long) (hora * 3600);
+            }
+            Arrays.sort(segundos);
+
+            LocalDateTime inicioDia = primerDia.plusDays(d).atStartOfDay();
+            for (long segundo : segundos) {
+                int p = catalogo.productoZipf(random);
+                int cantidad = 1;
+                while (cantidad < 10 && random.nextDouble() < 0.35) {
+                    cantidad++;
+                }
+                Venta venta = new Venta(catalogo.nombres[p], cantidad, catalogo.precios[p],
+                        catalogo.precios[p] * cantidad);
+                venta.setFechaVenta(inicioDia.plusSeconds(segundo));
+                venta.setProductoId(random.nextDouble() < fraccionSinProducto ? null : catalogo.ids[p]);
+                venta.setCostoUnitario(catalogo.costos[p]);
+                pendientes.add(venta);
+
+                if (pendientes.size() == lote) {
+                    insertarVentas(pendientes);
+                    pendientes = new ArrayList<>(lote);
+                }
+            }
+            generadas = hastaHoy;
+            if (generadas >= siguienteAviso && siguienteAviso > 0) {
+                log.info("Ventas: {} de {}", generadas, cantidadVentas);
+                siguienteAviso += cantidadVentas / 10;
+            }
+        }
+        if (!pendientes.isEmpty()) {
+            insertarVentas(pendientes);
+        }
+        return generadas;
+    }
+
+    private void insertarVentas(List<Venta> ventas) {
+        transactionTemplate.executeWithoutResult(estado -> ventaJdbcRepository.insertarLote(ventas));
+    }
+
+    /**
+     * Peso relativo de un día: tendencia creciente, viernes y sábados más
+     * fuertes, domingos flojos y temporada alta en diciembre.
+     */
+    private double pesoDelDia(LocalDate dia, int indice) {
+        double tendencia = 1 + 0.5 * indice / dias;
+        double semana = switch (dia.getDayOfWeek()) {
+            case FRIDAY -> 1.2;
+            case SATURDAY -> 1.4;
+            case SUNDAY -> 0.7;
+            default -> 1.0;
+        };
+        // Máximo cerca del 20 de diciembre, mínimo a mitad de año
+        double temporada = 1 + 0.35 * Math.cos(2 * Math.PI * (dia.getDayOfYear() - 354) / 365.0);
+        return tendencia * semana * temporada;
+    }
+
+    private static long desde(long comienzoNanos) {
+        return (System.nanoTime() - comienzoNanos) / 1_000_000;
+    }
+
+    /**
+     * Lo que hace falta de cada producto para generar sus ventas, en arreglos
+     * para no retener entidades, y la distribución de Zipf sobre ellos.
+     */
+    private static final class Catalogo {
+        final long[] ids;
+        final String[] nombres;
+        final double[] precios;
+        final Double[] costos;
+        private double[] acumuladoZipf;
+        private int[] productoPorRango;
+
+        Catalogo(int cantidad) {
+            ids = new long[cantidad];
+            nombres = new String[cantidad];
+            precios = new double[cantidad];
+            costos = new Double[cantidad];
+        }
+
+        void agregar(int indice, long id, String nombre, double precio, Double costo) {
+            ids[indice] = id;
+            nombres[indice] = nombre;
+            precios[indice] = precio;
+            costos[indice] = costo;
+        }
+
+        /**
+         * El rango k (1 = el más vendido) tiene peso 1/k^s. Los rangos se
+         * asignan a productos al azar.
+         */
+        void prepararZipf(SplittableRandom random, double exponente) {
+            int cantidad = ids.length;
+            acumuladoZipf = new double[cantidad];
+            double acumulado = 0;
+            for (int k = 0; k < cantidad; k++) {
+                acumulado += 1 / Math.pow(k + 1, exponente);
+                acumuladoZipf[k] = acumulado;
+            }
+            productoPorRango = new int[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                productoPorRango[i] = i;
+            }
+            for (int i = cantidad - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int intercambio = productoPorRango[i];
+                productoPorRango[i] = productoPorRango[j];
+                productoPorRango[j] = intercambio;
+            }
+        }
+
+        int productoZipf(SplittableRandom random) {
+            double objetivo = random.nextDouble() * acumuladoZipf[acumuladoZipf.length - 1];
+            int posicion = Arrays.binarySearch(acumuladoZipf, objetivo);
+            int rango = posicion >= 0 ? posicion : Math.min(-posicion - 1, acumuladoZipf.length - 1);
+            return productoPorRango[rango];
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.demo.config;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -16,6 +18,9 @@ public class JwtUtils {
     private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
     private final int jwtExpirationMs = 86400000; // 24 horas
 
+    // El parser es inmutable y thread-safe: se construye una sola vez
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(key).build();
+
     public String generateToken(String username) {
         return Jwts.builder()
                 .setSubject(username)
@@ -25,18 +30,25 @@ public class JwtUtils {
                 .compact();
     }
 
+    /**
+     * Valida el token y devuelve sus claims en un único parseo.
+     *
+     * @param token JWT recibido.
+     * @return Los claims del token, o null si es inválido o está vencido.
+     */
+    public Claims parseClaims(String token) {
+        try {
+            return parser.parseClaimsJws(token).getBody();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     public String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build()
-                .parseClaimsJws(token).getBody().getSubject();
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
 
     public boolean validateToken(String authToken) {
-        try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(authToken);
-            return true;
-        } catch (Exception e) {
-            // Log error if needed
-        }
-        return false;
+        return parseClaims(authToken) != null;
     }
 }
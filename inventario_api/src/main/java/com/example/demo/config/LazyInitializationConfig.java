@@ -0,0 +1,51 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Inicialización diferida de beans que no hacen falta para atender pedidos,
+ * como la documentación OpenAPI de springdoc.
+ * <p>
+ * Los beans de los paquetes listados en {@code app.arranque.beans-diferidos}
+ * (o declarados en configuraciones de esos paquetes) se crean recién cuando
+ * alguien los usa, por ejemplo con el primer GET /v3/api-docs, en lugar de
+ * durante el arranque. No es {@code spring.main.lazy-initialization}: el
+ * resto de la aplicación (DataSource, JPA, seguridad, cachés) se sigue
+ * creando al arrancar, así el primer pedido no paga esa inicialización.
+ */
+@Configuration
+public class LazyInitializationConfig {
+
+    // static: los BeanFactoryPostProcessor se crean antes que el resto de la configuración
+    @Bean
+    public static BeanFactoryPostProcessor inicializacionDiferida(Environment environment) {
+        List<String> paquetes = List.of(environment.getProperty("app.arranque.beans-diferidos", String[].class,
+                new String[0]));
+        return beanFactory -> {
+            if (paquetes.isEmpty()) {
+                return;
+            }
+            for (String nombre : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definicion = beanFactory.getBeanDefinition(nombre);
+                if (definicion.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE || definicion.isLazyInit()) {
+                    continue;
+                }
+                String clase = definicion.getBeanClassName();
+                if (clase == null && definicion.getFactoryBeanName() != null
+                        && beanFactory.containsBeanDefinition(definicion.getFactoryBeanName())) {
+                    // Método @Bean: cuenta el paquete de la configuración que lo declara
+                    clase = beanFactory.getBeanDefinition(definicion.getFactoryBeanName()).getBeanClassName();
+                }
+                if (clase != null && paquetes.stream().anyMatch(clase::startsWith)) {
+                    definicion.setLazyInit(true);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.demo.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * DataSource que limita cuántas conexiones se usan a la vez.
+ * <p>
+ * Con hilos virtuales Tomcat ya no tiene un tope de hilos: miles de requests
+ * pueden pedir conexión al mismo tiempo y todos quedan girando dentro de
+ * Hikari hasta su {@code connection-timeout}. Este semáforo (justo, en orden
+ * de llegada) los hace esperar antes de llegar al pool, estacionados sin
+ * ocupar hilo de plataforma, y corta la espera a los
+ * {@code app.db.limitador.espera-maxima} con una
+ * {@link SQLTransientConnectionException}.
+ * <p>
+ * El permiso se devuelve al cerrar la conexión, una sola vez aunque se cierre
+ * varias.
+ */
+public class LimitedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permisos;
+    private final int totalPermisos;
+    private final long esperaMaximaNanos;
+
+    public LimitedDataSource(DataSource destino, int permisos, Duration esperaMaxima) {
+        super(destino);
+        if (permisos < 1) {
+            throw new IllegalArgumentException("El limitador necesita al menos un permiso");
+        }
+        this.permisos = new Semaphore(permisos, true);
+        this.totalPermisos = permisos;
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        adquirir();
+        try {
+            return envolver(obtenerTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        adquirir();
+        try {
+            return envolver(obtenerTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    public int getPermisos() {
+        return totalPermisos;
+    }
+
+    /**
+     * Conexiones entregadas y todavía sin cerrar.
+     */
+    public int getEnUso() {
+        return totalPermisos - permisos.availablePermits();
+    }
+
+    /**
+     * Hilos esperando un permiso (estimado, como {@link Semaphore#getQueueLength()}).
+     */
+    public int getEnEspera() {
+        return permisos.getQueueLength();
+    }
+
+    private void adquirir() throws SQLException {
+        try {
+            if (!permisos.tryAcquire(esperaMaximaNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("No hay conexiones disponibles: "
+                        + getEnEspera() + " pedidos en espera, " + totalPermisos + " conexiones en uso");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido esperando una conexión", e);
+        }
+    }
+
+    private DataSource obtenerTargetDataSource() {
+        DataSource destino = getTargetDataSource();
+        if (destino == null) {
+            throw new IllegalStateException("LimitedDataSource sin DataSource destino");
+        }
+        return destino;
+    }
+
+    private Connection envolver(Connection conexion) {
+        return (Connection) Proxy.newProxyInstance(LimitedDataSource.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new ConexionLimitada(conexion));
+    }
+
+    private final class ConexionLimitada implements InvocationHandler {
+        private final Connection conexion;
+        private final AtomicBoolean liberada = new AtomicBoolean();
+
+        private ConexionLimitada(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    try {
+                        conexion.close();
+                    } finally {
+                        if (liberada.compareAndSet(false, true)) {
+                            permisos.release();
+                        }
+                    }
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Limitada[" + conexion + "]";
+                default:
+                    try {
+                        return method.invoke(conexion, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+            }
+        }
+    }
+}
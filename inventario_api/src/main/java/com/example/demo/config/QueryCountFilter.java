@@ -0,0 +1,44 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Publica cuántas consultas SQL ejecutó cada request, por endpoint, en la
+ * métrica {@code http.server.requests.db.queries}.
+ */
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    public QueryCountFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryCountInspector.reiniciar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // El patrón (/productos/{id}) evita una serie por cada ID concreto
+            Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("http.server.requests.db.queries")
+                    .description("Consultas SQL ejecutadas por request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", patron != null ? patron.toString() : "UNKNOWN")
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry)
+                    .record(QueryCountInspector.obtener());
+        }
+    }
+}
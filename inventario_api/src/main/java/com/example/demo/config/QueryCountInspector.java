@@ -0,0 +1,29 @@
+package com.example.demo.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Cuenta las sentencias SQL que Hibernate prepara en el hilo actual.
+ * <p>
+ * {@link QueryCountFilter} reinicia el contador al empezar cada request y
+ * publica el total al terminar. Las consultas hechas con JdbcTemplate no
+ * pasan por Hibernate y no se cuentan.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<int[]> CONTADOR = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        CONTADOR.get()[0]++;
+        return sql;
+    }
+
+    public static void reiniciar() {
+        CONTADOR.get()[0] = 0;
+    }
+
+    public static int obtener() {
+        return CONTADOR.get()[0];
+    }
+}
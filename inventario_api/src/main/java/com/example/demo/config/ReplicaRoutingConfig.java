@@ -0,0 +1,173 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas de lectura ({@code app.db.replicas.habilitadas=true}): el
+ * DataSource de la aplicación pasa a ser un {@link ReplicaRoutingDataSource}
+ * detrás de un {@link LazyConnectionDataSourceProxy}. Las transacciones
+ * {@code readOnly} de los servicios van a las réplicas de
+ * {@code app.db.replicas.lista}; ventas, checkout y el resto de las
+ * escrituras siguen en la primaria.
+ * <p>
+ * Cada réplica tiene su propio pool, con la configuración de Hikari de la
+ * primaria (tamaño, timeouts, propiedades del driver) salvo URL y
+ * credenciales. Si además está el limitador de conexiones, cada pool tiene el
+ * suyo. Métricas: {@code db.replica.demora}, {@code db.replica.disponible} y
+ * {@code db.replicas.lecturas-en-primaria}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.db.replicas.habilitadas", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    // static: los BeanPostProcessor se crean antes que el resto de la configuración
+    @Bean
+    public static RuteoReplicas ruteoReplicas(Environment environment) {
+        return new RuteoReplicas(environment);
+    }
+
+    @Bean
+    public MeterBinder replicasMetricas(DataSource dataSource) throws SQLException {
+        ReplicaRoutingDataSource ruteo = dataSource.unwrap(ReplicaRoutingDataSource.class);
+        return registry -> {
+            for (ReplicaRoutingDataSource.Replica replica : ruteo.getReplicas()) {
+                Gauge.builder("db.replica.demora", replica,
+                                r -> r.getDemoraMillis() < 0 ? Double.NaN : r.getDemoraMillis() / 1000.0)
+                        .description("Demora de replicación medida en el último control")
+                        .baseUnit("seconds")
+                        .tag("replica", replica.getNombre())
+                        .register(registry);
+                Gauge.builder("db.replica.disponible", replica, r -> r.isDisponible() ? 1 : 0)
+                        .description("1 si la réplica recibe lecturas")
+                        .tag("replica", replica.getNombre())
+                        .register(registry);
+            }
+            FunctionCounter.builder("db.replicas.lecturas-en-primaria", ruteo,
+                            ReplicaRoutingDataSource::getLecturasEnPrimaria)
+                    .description("Transacciones de sólo lectura que fueron a la primaria por falta de réplicas")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Envuelve el DataSource de Spring Boot (la primaria) y crea los pools
+     * de las réplicas; al cerrar el contexto los cierra.
+     */
+    public static class RuteoReplicas implements BeanPostProcessor, DisposableBean {
+
+        private final Environment environment;
+        private final List<ReplicaRoutingDataSource> creados = new ArrayList<>();
+
+        RuteoReplicas(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource primaria) || enrutado(primaria)) {
+                return bean;
+            }
+            boolean limitador = environment.getProperty("app.db.limitador.habilitado", Boolean.class, false);
+            if (limitador && !DatabaseLimiterConfig.limitado(primaria)) {
+                primaria = DatabaseLimiterConfig.limitar(primaria, environment);
+            }
+
+            List<ReplicaConfig> configuradas = Binder.get(environment)
+                    .bind("app.db.replicas.lista", Bindable.listOf(ReplicaConfig.class))
+                    .orElse(List.of());
+            if (configuradas.isEmpty()) {
+                throw new IllegalStateException("app.db.replicas.habilitadas=true sin app.db.replicas.lista");
+            }
+            Duration demoraMaxima = environment.getProperty("app.db.replicas.demora-maxima", Duration.class,
+                    Duration.ofSeconds(2));
+            Duration intervalo = environment.getProperty("app.db.replicas.intervalo", Duration.class,
+                    Duration.ofMillis(500));
+            if (demoraMaxima.compareTo(intervalo) <= 0) {
+                // Entre latidos una réplica al día se ve atrasada hasta un intervalo
+                throw new IllegalStateException("app.db.replicas.demora-maxima debe ser mayor que el intervalo");
+            }
+
+            List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+            for (int i = 0; i < configuradas.size(); i++) {
+                DataSource pool = crearPool(primaria, configuradas.get(i), "replica-" + i);
+                replicas.add(new ReplicaRoutingDataSource.Replica("replica-" + i,
+                        limitador ? DatabaseLimiterConfig.limitar(pool, environment) : pool));
+            }
+            ReplicaRoutingDataSource ruteo = new ReplicaRoutingDataSource(primaria, replicas, demoraMaxima);
+            ruteo.iniciar(intervalo);
+            creados.add(ruteo);
+            return new LazyConnectionDataSourceProxy(ruteo);
+        }
+
+        @Override
+        public void destroy() {
+            creados.forEach(ReplicaRoutingDataSource::close);
+        }
+
+        private HikariDataSource crearPool(DataSource primaria, ReplicaConfig replica, String nombre) {
+            if (replica.url() == null) {
+                throw new IllegalStateException("Falta la URL de " + nombre);
+            }
+            HikariConfig config = new HikariConfig();
+            HikariDataSource base = hikari(primaria);
+            if (base != null) {
+                base.copyStateTo(config);
+            }
+            config.setJdbcUrl(replica.url());
+            config.setUsername(replica.username() != null ? replica.username()
+                    : environment.getProperty("spring.datasource.username"));
+            config.setPassword(replica.password() != null ? replica.password()
+                    : environment.getProperty("spring.datasource.password"));
+            config.setPoolName(nombre);
+            config.setReadOnly(true);
+            // Sin arrancar: el pool se conecta con el primer control, así una
+            // réplica caída no impide levantar la aplicación
+            HikariDataSource pool = new HikariDataSource();
+            config.copyStateTo(pool);
+            return pool;
+        }
+
+        private static HikariDataSource hikari(DataSource dataSource) {
+            try {
+                return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class)
+                        : null;
+            } catch (SQLException e) {
+                return null;
+            }
+        }
+
+        private static boolean enrutado(DataSource dataSource) {
+            try {
+                return dataSource.isWrapperFor(ReplicaRoutingDataSource.class);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Una entrada de {@code app.db.replicas.lista}; usuario y contraseña
+     * toman los de {@code spring.datasource} si faltan.
+     */
+    public record ReplicaConfig(String url, String username, String password) {
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * DataSource que manda las transacciones de sólo lectura a las réplicas y
+ * todo lo demás a la primaria.
+ * <p>
+ * La decisión se toma al pedir la conexión física, así que va detrás de un
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * el administrador de transacciones pide la conexión antes de marcar la
+ * transacción como {@code readOnly}, y el proxy la obtiene recién con la
+ * primera sentencia. Las transacciones que abren por su cuenta los
+ * repositorios de Spring Data (un {@code findById} fuera de un servicio) van
+ * a la primaria: suelen ser el "leer" de un leer-modificar-guardar.
+ * <p>
+ * Demora de replicación: cada {@code intervalo} se escribe la hora en la
+ * tabla {@code replica_latido} de la primaria y se lee en cada réplica. Una
+ * réplica cuya copia tiene más de {@code demoraMaxima}, que no respondió al
+ * control o que falla al dar una conexión queda fuera hasta el próximo
+ * control; sin réplicas disponibles las lecturas van a la primaria.
+ * <p>
+ * Las lecturas que no toleran esa demora (las que se cachean con la versión
+ * de la escritura que acaba de confirmarse, o las que un cliente usa para
+ * ponerse al día con una versión que ya vio) van dentro de
+ * {@link #leerEnPrimaria}.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final String PREFIJO_REPOSITORIOS = "org.springframework.data.";
+
+    private static final ThreadLocal<Boolean> EN_PRIMARIA = new ThreadLocal<>();
+
+    private static final String CREAR_LATIDO = "CREATE TABLE IF NOT EXISTS replica_latido "
+            + "(id INT NOT NULL PRIMARY KEY, instante BIGINT NOT NULL)";
+    private static final String ACTUALIZAR_LATIDO = "UPDATE replica_latido SET instante = GREATEST(instante, ?) "
+            + "WHERE id = 1";
+    private static final String INSERTAR_LATIDO = "INSERT INTO replica_latido (id, instante) VALUES (1, ?)";
+    private static final String LEER_LATIDO = "SELECT instante FROM replica_latido WHERE id = 1";
+
+    private final DataSource primaria;
+    private final JdbcTemplate jdbcPrimaria;
+    private final List<Replica> replicas;
+    private final long demoraMaximaMillis;
+    private final AtomicInteger siguiente = new AtomicInteger();
+    private final AtomicLong lecturasEnPrimaria = new AtomicLong();
+    private final ReentrantLock ciclo = new ReentrantLock();
+    private volatile boolean latidoCreado;
+    private ScheduledExecutorService control;
+
+    public ReplicaRoutingDataSource(DataSource primaria, List<Replica> replicas, Duration demoraMaxima) {
+        this.primaria = primaria;
+        this.jdbcPrimaria = new JdbcTemplate(primaria);
+        this.replicas = List.copyOf(replicas);
+        this.demoraMaximaMillis = demoraMaxima.toMillis();
+    }
+
+    /**
+     * Arranca el control periódico de las réplicas en un hilo propio.
+     */
+    public void iniciar(Duration intervalo) {
+        ciclo.lock();
+        try {
+            if (control != null) {
+                return;
+            }
+            control = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("replicas-control").daemon().factory());
+            control.scheduleWithFixedDelay(this::controlar, 0, intervalo.toMillis(), TimeUnit.MILLISECONDS);
+        } finally {
+            ciclo.unlock();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!esLectura()) {
+            return primaria.getConnection();
+        }
+        for (int intento = 0; intento < replicas.size(); intento++) {
+            Replica replica = replicas.get(Math.floorMod(siguiente.getAndIncrement(), replicas.size()));
+            if (!replica.disponible) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                replica.disponible = false;
+                log.warn("Réplica {} sin conexión, queda fuera hasta el próximo control: {}", replica.nombre,
+                        e.getMessage());
+            }
+        }
+        lecturasEnPrimaria.incrementAndGet();
+        return primaria.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primaria.getConnection(username, password);
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Transacciones de sólo lectura que no encontraron una réplica disponible.
+     */
+    public long getLecturasEnPrimaria() {
+        return lecturasEnPrimaria.get();
+    }
+
+    /**
+     * Escribe el latido en la primaria y mide la demora de cada réplica.
+     * Lo corre el hilo de control; es visible para los tests.
+     */
+    void controlar() {
+        long ahora = System.currentTimeMillis();
+        try {
+            escribirLatido(ahora);
+        } catch (RuntimeException e) {
+            // Sin latidos nuevos las réplicas se ven cada vez más atrasadas y salen solas
+            log.warn("No se pudo escribir el latido de replicación: {}", e.getMessage());
+        }
+        for (Replica replica : replicas) {
+            boolean antes = replica.disponible;
+            try {
+                Long instante = new JdbcTemplate(replica.dataSource).queryForObject(LEER_LATIDO, Long.class);
+                replica.demoraMillis = Math.max(0, ahora - (instante != null ? instante : 0));
+                replica.disponible = replica.demoraMillis <= demoraMaximaMillis;
+                if (antes && !replica.disponible) {
+                    log.warn("Réplica {} atrasada {} ms, las lecturas van a otra réplica o a la primaria",
+                            replica.nombre, replica.demoraMillis);
+                }
+            } catch (RuntimeException e) {
+                // DataAccessException, o el error de Hikari al crear el pool contra una réplica caída
+                replica.demoraMillis = -1;
+                replica.disponible = false;
+                if (antes) {
+                    log.warn("Réplica {} no responde: {}", replica.nombre, e.getMessage());
+                }
+            }
+            if (!antes && replica.disponible) {
+                log.info("Réplica {} disponible (demora {} ms)", replica.nombre, replica.demoraMillis);
+            }
+        }
+    }
+
+    private void escribirLatido(long ahora) {
+        if (!latidoCreado) {
+            jdbcPrimaria.execute(CREAR_LATIDO);
+            latidoCreado = true;
+        }
+        if (jdbcPrimaria.update(ACTUALIZAR_LATIDO, ahora) == 0) {
+            try {
+                jdbcPrimaria.update(INSERTAR_LATIDO, ahora);
+            } catch (DuplicateKeyException e) {
+                // Otra instancia la insertó primero
+                jdbcPrimaria.update(ACTUALIZAR_LATIDO, ahora);
+            }
+        }
+    }
+
+    /**
+     * Ejecuta la lectura contra la primaria aunque su transacción sea de sólo
+     * lectura, para ver las escrituras ya confirmadas que todavía no llegaron
+     * a las réplicas. Sin réplicas configuradas no cambia nada.
+     */
+    public static <T> T leerEnPrimaria(Supplier<T> lectura) {
+        if (EN_PRIMARIA.get() != null) {
+            return lectura.get();
+        }
+        EN_PRIMARIA.set(Boolean.TRUE);
+        try {
+            return lectura.get();
+        } finally {
+            EN_PRIMARIA.remove();
+        }
+    }
+
+    private static boolean esLectura() {
+        if (EN_PRIMARIA.get() != null || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        String transaccion = TransactionSynchronizationManager.getCurrentTransactionName();
+        return transaccion == null || !transaccion.startsWith(PREFIJO_REPOSITORIOS);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return primaria.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primaria.isWrapperFor(iface);
+    }
+
+    /**
+     * Detiene el control y cierra los pools de las réplicas. La primaria
+     * la cierra quien la creó.
+     */
+    @Override
+    public void close() {
+        ciclo.lock();
+        try {
+            if (control != null) {
+                control.shutdownNow();
+                control = null;
+            }
+        } finally {
+            ciclo.unlock();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable cerrable) {
+                try {
+                    cerrable.close();
+                } catch (Exception e) {
+                    log.warn("Error al cerrar la réplica {}", replica.nombre, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Una réplica de lectura y su último estado conocido. Arranca fuera de
+     * servicio hasta el primer control.
+     */
+    public static final class Replica {
+        private final String nombre;
+        private final DataSource dataSource;
+        private volatile boolean disponible;
+        private volatile long demoraMillis = -1;
+
+        public Replica(String nombre, DataSource dataSource) {
+            this.nombre = nombre;
+            this.dataSource = dataSource;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        public boolean isDisponible() {
+            return disponible;
+        }
+
+        /**
+         * Demora medida en el último control, o -1 si no se pudo medir.
+         */
+        public long getDemoraMillis() {
+            return demoraMillis;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.config;
+
+import com.example.demo.model.User;
+import com.example.demo.service.Transacciones;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Listener JPA de {@link User}: al crear, modificar o borrar un usuario
+ * vacía la caché de autenticación para que un cambio de rol o contraseña
+ * tenga efecto en el siguiente request.
+ * <p>
+ * Los callbacks corren en el flush, antes del commit: la caché se vacía
+ * después del commit ({@link Transacciones#despuesDelCommit}). Si se vaciara
+ * antes, un request concurrente podría volver a cargar el usuario viejo
+ * antes de que se confirme el cambio y dejarlo en la caché.
+ * <p>
+ * Hibernate lo instancia a través del contenedor de Spring; la caché se
+ * resuelve con ObjectProvider porque no existe en los tests sin capa web.
+ */
+public class UserChangeListener {
+
+    @Autowired
+    private ObjectProvider<AuthTokenCache> authTokenCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void alCambiarUsuario(User user) {
+        if (authTokenCache == null) {
+            return;
+        }
+        Transacciones.despuesDelCommit(() -> authTokenCache.ifAvailable(AuthTokenCache::invalidarTodo));
+    }
+}
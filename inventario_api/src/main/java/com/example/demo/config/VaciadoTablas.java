@@ -0,0 +1,32 @@
+package com.example.demo.config;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Vacía las tablas del catálogo y de ventas antes de cargar datos de
+ * desarrollo. Los usuarios no se tocan.
+ * <p>
+ * Una sentencia por tabla, sin leer las filas: TRUNCATE en las tablas que
+ * ninguna clave foránea referencia (reinicia el AUTO_INCREMENT y no depende
+ * del tamaño) y DELETE en marca y categoria, que son chicas y que MySQL no
+ * deja truncar porque producto las referencia.
+ */
+final class VaciadoTablas {
+
+    private static final String[] TRUNCAR = { "venta", "venta_diaria", "producto", "producto_eliminado",
+            "marca_categoria", "progreso_tarea", "clave_idempotencia" };
+
+    private static final String[] BORRAR = { "marca", "categoria" };
+
+    private VaciadoTablas() {
+    }
+
+    static void vaciar(JdbcTemplate jdbcTemplate) {
+        for (String tabla : TRUNCAR) {
+            jdbcTemplate.execute("TRUNCATE TABLE " + tabla);
+        }
+        for (String tabla : BORRAR) {
+            jdbcTemplate.update("DELETE FROM " + tabla);
+        }
+    }
+}
@@ -2,31 +2,40 @@ package com.example.demo.controller;
 
 import com.example.demo.model.Categoria;
 import com.example.demo.repository.CategoriaRepository;
+import com.example.demo.service.CatalogoCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/categorias")
 public class CategoriaController {
 
+    private static final Logger log = LoggerFactory.getLogger(CategoriaController.class);
+
     private final CategoriaRepository categoriaRepository;
+    private final CatalogoCache catalogoCache;
 
-    public CategoriaController(CategoriaRepository categoriaRepository) {
+    public CategoriaController(CategoriaRepository categoriaRepository, CatalogoCache catalogoCache) {
         this.categoriaRepository = categoriaRepository;
+        this.catalogoCache = catalogoCache;
     }
 
     @GetMapping
-    public List<Categoria> obtenerTodas() {
-        return categoriaRepository.findAll();
+    public ResponseEntity<byte[]> obtenerTodas(WebRequest request) {
+        return RespuestasCatalogo.responder(request,
+                catalogoCache.obtener(CatalogoCache.Coleccion.CATEGORIAS, categoriaRepository::findAll));
     }
 
     @org.springframework.web.bind.annotation.PostMapping
     public Categoria crearCategoria(@org.springframework.web.bind.annotation.RequestBody Categoria categoria) {
         Categoria nueva = categoriaRepository.save(categoria);
-        System.out.println("Nueva Categoría creada con éxito: " + nueva.getNombre());
+        catalogoCache.invalidar(CatalogoCache.Coleccion.CATEGORIAS);
+        log.info("Nueva Categoría creada con éxito: {}", nueva.getNombre());
         return nueva;
     }
 }
@@ -1,31 +1,39 @@
 package com.example.demo.controller;
 
 import com.example.demo.model.Marca;
+import com.example.demo.service.CatalogoCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/marcas")
 public class MarcaController {
 
+    private static final Logger log = LoggerFactory.getLogger(MarcaController.class);
+
     private final com.example.demo.service.MarcaService marcaService;
+    private final CatalogoCache catalogoCache;
 
-    public MarcaController(com.example.demo.service.MarcaService marcaService) {
+    public MarcaController(com.example.demo.service.MarcaService marcaService, CatalogoCache catalogoCache) {
         this.marcaService = marcaService;
+        this.catalogoCache = catalogoCache;
     }
 
     @GetMapping
-    public List<Marca> obtenerTodas() {
-        return marcaService.findAll();
+    public ResponseEntity<byte[]> obtenerTodas(WebRequest request) {
+        return RespuestasCatalogo.responder(request,
+                catalogoCache.obtener(CatalogoCache.Coleccion.MARCAS, marcaService::findAll));
     }
 
     @org.springframework.web.bind.annotation.PostMapping
     public Marca crearMarca(@org.springframework.web.bind.annotation.RequestBody Marca marca) {
         Marca nueva = marcaService.save(marca);
-        System.out.println("Nueva Marca creada con éxito: " + nueva.getNombre());
+        log.info("Nueva Marca creada con éxito: {}", nueva.getNombre());
         return nueva;
     }
 
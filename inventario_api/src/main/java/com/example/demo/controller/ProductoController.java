@@ -1,11 +1,35 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.AlertaStock;
+import com.example.demo.dto.CambiosProductos;
+import com.example.demo.dto.FiltroProductos;
+import com.example.demo.dto.PaginaProductos;
+import com.example.demo.dto.ProductoListado;
+import com.example.demo.dto.ProductoResumen;
+import com.example.demo.dto.ResultadoImportacion;
 import com.example.demo.model.Producto;
+import com.example.demo.service.AlertasStock;
+import com.example.demo.service.CanalCambiosProducto;
+import com.example.demo.service.CatalogoCache;
+import com.example.demo.service.ClaveIdempotenciaReutilizadaException;
+import com.example.demo.service.ClavesIdempotencia;
+import com.example.demo.service.ImportacionProductos;
 import com.example.demo.service.ProductoService;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Principal;
 import java.util.List;
+import java.util.Optional;
+
 
 /**
  * Controlador REST para gestionar las operaciones CRUD de Productos.
@@ -21,13 +45,25 @@ import java.util.List;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final CatalogoCache catalogoCache;
+    private final AlertasStock alertasStock;
+    private final CanalCambiosProducto canalCambios;
+    private final ImportacionProductos importacionProductos;
+    private final ClavesIdempotencia clavesIdempotencia;
 
     /**
      * Inyección de dependencias por constructor.
      * Spring inyecta automáticamente la instancia de ProductoService.
      */
-    public ProductoController(ProductoService productoService) {
+    public ProductoController(ProductoService productoService, CatalogoCache catalogoCache,
+            AlertasStock alertasStock, CanalCambiosProducto canalCambios,
+            ImportacionProductos importacionProductos, ClavesIdempotencia clavesIdempotencia) {
         this.productoService = productoService;
+        this.catalogoCache = catalogoCache;
+        this.alertasStock = alertasStock;
+        this.canalCambios = canalCambios;
+        this.importacionProductos = importacionProductos;
+        this.clavesIdempotencia = clavesIdempotencia;
     }
 
     /**
@@ -42,15 +78,126 @@ public class ProductoController {
      * <p>
      * Endpoint: GET /productos?search={nombre}
      *
+     * Sin búsqueda, la respuesta lleva un ETag y devuelve 304 Not Modified si
+     * el cliente envía If-None-Match con la versión vigente.
+     *
      * @param search Término de búsqueda opcional.
      * @return Lista de productos.
      */
     @GetMapping
-    public List<Producto> obtenerTodos(@RequestParam(required = false) String search) {
+    public ResponseEntity<?> obtenerTodos(@RequestParam(required = false) String search, WebRequest request) {
         if (search != null && !search.isEmpty()) {
-            return productoService.buscarPorNombre(search);
+            return ResponseEntity.ok(productoService.buscarPorNombre(search));
         }
-        return productoService.obtenerTodos();
+        // El listado completo sale de la caché; 304 si el cliente ya tiene esta versión
+        return RespuestasCatalogo.responder(request,
+                catalogoCache.obtener(CatalogoCache.Coleccion.PRODUCTOS, productoService::obtenerTodos));
+    }
+
+    /**
+     * Obtiene una página de productos filtrada y ordenada en el servidor.
+     * <p>
+     * Endpoint: GET /productos?limite={n}[&cursor=..][&categoriaId=..][&marcaId=..]
+     * [&stockBajo=true][&search=..][&orden=id|nombre|precio|stock][&direccion=asc|desc]
+     * <p>
+     * Se activa cuando viene el parámetro {@code limite}; sin él se mantiene
+     * la respuesta de lista completa.
+     *
+     * @return 200 OK con la página y su cursor, o 400 si algún parámetro es
+     *         inválido.
+     */
+    @GetMapping(params = "limite")
+    public ResponseEntity<?> obtenerPagina(@RequestParam int limite,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Long categoriaId,
+            @RequestParam(required = false) Long marcaId,
+            @RequestParam(required = false, defaultValue = "false") boolean stockBajo,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false, defaultValue = "id") String orden,
+            @RequestParam(required = false, defaultValue = "asc") String direccion) {
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setCategoriaId(categoriaId);
+        filtro.setMarcaId(marcaId);
+        filtro.setStockBajo(stockBajo);
+        filtro.setNombre(search);
+        filtro.setOrden(orden);
+        filtro.setDescendente("desc".equalsIgnoreCase(direccion));
+        try {
+            PaginaProductos pagina = productoService.obtenerPagina(filtro, cursor, limite);
+            return ResponseEntity.ok(pagina);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Productos con stock en o por debajo de su mínimo, del más crítico al
+     * menos crítico. Sale del índice en memoria, sin consultar la base.
+     * <p>
+     * Endpoint: GET /productos/alertas
+     *
+     * @return Lista de alertas vigentes.
+     */
+    @GetMapping("/alertas")
+    public List<AlertaStock> obtenerAlertas() {
+        return alertasStock.obtenerAlertas();
+    }
+
+    /**
+     * Suscripción a las alertas de stock por Server-Sent Events.
+     * <p>
+     * Endpoint: GET /productos/alertas/stream
+     * <p>
+     * Primero llega un evento {@code inicial} con las alertas vigentes y
+     * después {@code bajo_minimo} o {@code repuesto} cada vez que un producto
+     * cruza su stock mínimo.
+     *
+     * @return Emisor SSE de la suscripción.
+     */
+    @GetMapping(value = "/alertas/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirAlertas() {
+        return alertasStock.suscribir();
+    }
+
+    /**
+     * Sincronización incremental del catálogo.
+     * <p>
+     * Endpoint: GET /productos/cambios?desde={version}
+     * <p>
+     * Devuelve los productos modificados y los IDs eliminados después de la
+     * versión indicada, y la versión a pedir la próxima vez. Con
+     * {@code desde=0}, o una versión anterior a la última recarga de datos,
+     * devuelve el catálogo completo con {@code completo=true}.
+     *
+     * @param desde Última versión que tiene el cliente.
+     * @return 200 OK con los cambios, o 400 si la versión es inválida.
+     */
+    @GetMapping("/cambios")
+    public ResponseEntity<?> obtenerCambios(@RequestParam long desde) {
+        try {
+            CambiosProductos cambios = productoService.obtenerCambios(desde);
+            return ResponseEntity.ok(cambios);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Suscripción a los cambios de stock y precio por Server-Sent Events.
+     * <p>
+     * Endpoint: GET /productos/cambios/stream
+     * <p>
+     * Reemplaza a recargar el listado completo después de cada acción: llega
+     * un evento {@code conectado} con la versión actual y después eventos
+     * {@code cambios} con {@code id}, {@code stock}, {@code precio} y
+     * {@code version}. Después de reconectar o ante {@code resync}, el cliente
+     * se pone al día con GET /productos/cambios.
+     *
+     * @return Emisor SSE de la suscripción.
+     */
+    @GetMapping(value = "/cambios/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirCambios() {
+        return canalCambios.suscribir();
     }
 
     /**
@@ -67,22 +214,132 @@ public class ProductoController {
     }
 
     /**
-     * Actualiza un producto existente por su ID.
+     * Importa un catálogo de productos (altas y modificaciones) en una sola
+     * petición.
+     * <p>
+     * Endpoint: POST /productos/importar
+     * <p>
+     * El cuerpo es un CSV con cabecera ({@code Content-Type: text/csv}) o un
+     * objeto JSON por línea ({@code application/x-ndjson}) y se procesa a
+     * medida que llega, en lotes. Columnas y reglas de alta o modificación en
+     * {@link ImportacionProductos}.
+     *
+     * @param contentType Formato del cuerpo.
+     * @param cuerpo      Archivo a importar.
+     * @return 200 OK con las cantidades y los errores por línea, o 400 si la
+     *         cabecera del CSV no es válida.
+     */
+    @PostMapping(value = "/importar", consumes = { "text/csv", "application/x-ndjson" })
+    public ResponseEntity<?> importar(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream cuerpo) {
+        ImportacionProductos.Formato formato = MediaType.parseMediaType(contentType).isCompatibleWith(
+                MediaType.parseMediaType("text/csv")) ? ImportacionProductos.Formato.CSV
+                        : ImportacionProductos.Formato.NDJSON;
+        try {
+            ResultadoImportacion resultado = importacionProductos.importar(cuerpo, formato);
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("No se pudo leer el archivo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene un producto por su ID.
+     * <p>
+     * Endpoint: GET /productos/{id}
+     * <p>
+     * El ETag es {@code "<version>-<versionCambio>"}: la versión de
+     * edición, para enviarlo en If-Match al editar, y la del último cambio,
+     * que también mueven las ventas y los ajustes de stock. Así un
+     * If-None-Match no devuelve 304 con un stock viejo.
+     *
+     * @param id Identificador del producto.
+     * @return 200 OK con el producto, 304 si no cambió o 404 si no existe.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ProductoListado> obtenerPorId(@PathVariable Long id, WebRequest request) {
+        Optional<ProductoListado> encontrado = productoService.obtenerPorId(id);
+        if (encontrado.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ProductoListado producto = encontrado.get();
+        String etag = etagDe(producto.getVersion(), producto.getVersionCambio());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(producto);
+    }
+
+    /**
+     * Actualiza el nombre y el precio de un producto existente por su ID.
      * <p>
      * Endpoint: PUT /productos/{id}
-     * 
+     * <p>
+     * Bloqueo optimista: con el header {@code If-Match} (el ETag de
+     * GET /productos/{id}, o solo {@code "<version>"}) o el campo
+     * {@code version} del cuerpo, la
+     * edición sólo se aplica si el producto sigue en esa versión. El stock
+     * del cuerpo se ignora; se modifica con PATCH /productos/{id}/stock.
+     *
      * @param id               Identificador del producto a actualizar.
-     * @param productoDetalles Datos nuevos para actualizar (nombre, precio, stock).
-     * @return ResponseEntity con el producto actualizado (200 OK) o 404 Not Found
-     *         si no existe.
+     * @param productoDetalles Datos nuevos para actualizar (nombre, precio).
+     * @return 200 OK con el producto actualizado y su nuevo ETag, 404 si no
+     *         existe, 412 si no coincide el If-Match o 409 si no coincide la
+     *         versión del cuerpo o hubo una edición concurrente.
      */
     @PutMapping("/{id}")
-    public ResponseEntity<Producto> actualizar(@PathVariable Long id, @RequestBody Producto productoDetalles) {
+    public ResponseEntity<?> actualizar(@PathVariable Long id, @RequestBody Producto productoDetalles,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long versionIfMatch;
+        try {
+            versionIfMatch = versionDe(ifMatch);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body("If-Match inválido: " + ifMatch);
+        }
+        if (versionIfMatch != null) {
+            productoDetalles.setVersion(versionIfMatch);
+        }
         try {
             Producto productoActualizado = productoService.actualizarProducto(id, productoDetalles);
-            return ResponseEntity.ok(productoActualizado);
+            return ResponseEntity.ok()
+                    .eTag(etagDe(productoActualizado.getVersion(), productoActualizado.getVersionCambio()))
+                    .body(productoActualizado);
+        } catch (OptimisticLockingFailureException e) {
+            HttpStatus estado = versionIfMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+            return ResponseEntity.status(estado).body(e.getMessage());
         } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
+            if (e.getMessage() != null && e.getMessage().contains("no encontrado")) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Suma o resta unidades al stock de un producto.
+     * <p>
+     * Endpoint: PATCH /productos/{id}/stock?delta={n}
+     * <p>
+     * Es la única forma de cambiar el stock fuera de las ventas: se aplica
+     * con un UPDATE atómico sobre el valor actual, así que no se pierde
+     * ninguna venta concurrente.
+     *
+     * @param id    Identificador del producto.
+     * @param delta Unidades a sumar (negativo para restar).
+     * @return 200 OK con el producto y su stock nuevo, 404 si no existe o 400
+     *         si el stock quedaría negativo.
+     */
+    @PatchMapping("/{id}/stock")
+    public ResponseEntity<?> ajustarStock(@PathVariable Long id, @RequestParam int delta) {
+        try {
+            return ResponseEntity.ok(productoService.ajustarStock(id, delta));
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("no encontrado")) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
@@ -90,16 +347,31 @@ public class ProductoController {
      * Realiza una venta rápida de un producto.
      * <p>
      * Endpoint: PUT /productos/{id}/vender
+     * <p>
+     * Con el header {@code Idempotency-Key} se puede reintentar sin vender
+     * dos veces: un reintento del mismo usuario con la misma clave devuelve
+     * la respuesta original con {@code Idempotent-Replayed: true} (ver
+     * {@link ClavesIdempotencia}).
      *
      * @param id Identificador del producto a vender.
-     * @return El producto actualizado o error si no hay stock/no existe.
+     * @return El producto actualizado o error si no hay stock/no existe; 422
+     *         si la clave ya se usó con otro producto o cantidad.
      */
     @PutMapping("/{id}/vender")
     public ResponseEntity<?> venderProducto(@PathVariable Long id,
-            @RequestParam(required = false, defaultValue = "1") int cantidad) {
+            @RequestParam(required = false, defaultValue = "1") int cantidad,
+            @RequestHeader(value = RespuestasIdempotentes.CLAVE, required = false) String claveIdempotencia,
+            Principal usuario) {
         try {
-            Producto producto = productoService.venderProducto(id, cantidad);
+            if (claveIdempotencia != null) {
+                return RespuestasIdempotentes.responder(clavesIdempotencia.ejecutar(usuario.getName(),
+                        claveIdempotencia, "PUT /productos/" + id + "/vender", cantidad,
+                        () -> productoService.venderProducto(id, cantidad)));
+            }
+            ProductoResumen producto = productoService.venderProducto(id, cantidad);
             return ResponseEntity.ok(producto);
+        } catch (ClaveIdempotenciaReutilizadaException e) {
+            return ResponseEntity.unprocessableEntity().body(e.getMessage());
         } catch (RuntimeException e) {
             if (e.getMessage() != null && e.getMessage().contains("no encontrado")) {
                 return ResponseEntity.notFound().build();
@@ -126,4 +398,26 @@ public class ProductoController {
         // Retornamos 404 si el ID no existe en la base de datos
         return ResponseEntity.notFound().build();
     }
+
+    private static String etagDe(Long version, long versionCambio) {
+        return "\"" + (version != null ? version : 0) + "-" + versionCambio + "\"";
+    }
+
+    /**
+     * Versión de edición indicada en If-Match ({@code "3-17"}, {@code "3"} o
+     * con {@code W/}); null si no hay header o es {@code *}. La versión de
+     * cambio se ignora: una venta no invalida la edición.
+     */
+    private static Long versionDe(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String valor = ifMatch.trim();
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        valor = valor.replace("\"", "");
+        int guion = valor.indexOf('-');
+        return Long.parseLong(guion >= 0 ? valor.substring(0, guion) : valor);
+    }
 }
@@ -0,0 +1,32 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.CatalogoCache;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Arma las respuestas de los listados cacheados del catálogo.
+ */
+final class RespuestasCatalogo {
+
+    private RespuestasCatalogo() {
+    }
+
+    /**
+     * 304 Not Modified si el If-None-Match del cliente coincide con el ETag
+     * vigente; si no, 200 con el JSON ya serializado. Cache-Control: no-cache
+     * hace que el navegador revalide siempre con el ETag.
+     */
+    static ResponseEntity<byte[]> responder(WebRequest request, CatalogoCache.Respuesta catalogo) {
+        if (request.checkNotModified(catalogo.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(catalogo.getEtag())
+                .body(catalogo.getCuerpo());
+    }
+}
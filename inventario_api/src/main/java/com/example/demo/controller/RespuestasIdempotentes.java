@@ -0,0 +1,29 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ClavesIdempotencia;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Arma las respuestas de las ventas hechas con {@code Idempotency-Key}.
+ */
+final class RespuestasIdempotentes {
+
+    static final String CLAVE = "Idempotency-Key";
+    static final String REPETIDA = "Idempotent-Replayed";
+
+    private RespuestasIdempotentes() {
+    }
+
+    /**
+     * 200 con el JSON guardado, el mismo en el primer pedido y en los
+     * reintentos; estos llevan además {@code Idempotent-Replayed: true}.
+     */
+    static ResponseEntity<String> responder(ClavesIdempotencia.Respuesta respuesta) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (respuesta.repetida()) {
+            ok.header(REPETIDA, "true");
+        }
+        return ok.body(respuesta.cuerpo());
+    }
+}
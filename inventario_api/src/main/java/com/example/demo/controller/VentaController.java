@@ -1,21 +1,53 @@
 package com.example.demo.controller;
 
-import com.example.demo.model.Venta;
-import com.example.demo.repository.VentaRepository;
+import com.example.demo.dto.AnulacionVentas;
+import com.example.demo.dto.LineaCarrito;
+import com.example.demo.dto.MetricasVentas;
+import com.example.demo.dto.ResultadoAnulacion;
+import com.example.demo.dto.ResultadoCheckout;
+import com.example.demo.dto.ResultadoReconstruccion;
+import com.example.demo.dto.VentaListado;
+import com.example.demo.service.ClaveIdempotenciaReutilizadaException;
+import com.example.demo.service.ClavesIdempotencia;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.security.Principal;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/ventas")
 public class VentaController {
 
     private final com.example.demo.service.VentaService ventaService;
+    private final ClavesIdempotencia clavesIdempotencia;
+    private final Duration timeoutExportacion;
 
-    public VentaController(com.example.demo.service.VentaService ventaService) {
+    public VentaController(com.example.demo.service.VentaService ventaService,
+            ClavesIdempotencia clavesIdempotencia,
+            @Value("${app.ventas.exportacion.timeout:1h}") Duration timeoutExportacion) {
         this.ventaService = ventaService;
+        this.clavesIdempotencia = clavesIdempotencia;
+        this.timeoutExportacion = timeoutExportacion;
     }
 
     /**
@@ -26,10 +58,161 @@ public class VentaController {
      * @return Lista de todas las ventas registradas.
      */
     @GetMapping
-    public List<Venta> obtenerTodasLasVentas() {
+    public List<VentaListado> obtenerTodasLasVentas() {
         return ventaService.obtenerTodas();
     }
 
+    /**
+     * Obtiene las métricas de ventas calculadas en la base de datos.
+     * <p>
+     * Endpoint: GET /ventas/metricas?desde=AAAA-MM-DD&hasta=AAAA-MM-DD&agrupar=dia|mes|producto
+     *
+     * @param desde   Primer día incluido (opcional).
+     * @param hasta   Último día incluido (opcional).
+     * @param agrupar Criterio del detalle, "dia" por defecto.
+     * @return 200 OK con totales y detalle, o 400 si los parámetros son inválidos.
+     */
+    @GetMapping("/metricas")
+    public ResponseEntity<?> obtenerMetricas(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false, defaultValue = "dia") String agrupar) {
+        try {
+            MetricasVentas metricas = ventaService.obtenerMetricas(desde, hasta, agrupar);
+            return ResponseEntity.ok(metricas);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Exporta el historial de ventas en CSV o NDJSON.
+     * <p>
+     * Endpoint: GET /ventas/exportar?formato=csv|ndjson&desde=AAAA-MM-DD&hasta=AAAA-MM-DD
+     * <p>
+     * Las filas se escriben a medida que se leen de la base, por lo que la
+     * memoria usada no depende del tamaño del rango. La respuesta tiene su
+     * propio límite de tiempo ({@code app.ventas.exportacion.timeout}), más
+     * largo que el de las demás respuestas asíncronas.
+     *
+     * @return 200 OK con el archivo en streaming, o 400 si los parámetros son
+     *         inválidos.
+     */
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false, defaultValue = "csv") String formato, WebRequest request) {
+        MediaType tipo;
+        if ("csv".equals(formato)) {
+            tipo = new MediaType("text", "csv", java.nio.charset.StandardCharsets.UTF_8);
+        } else if ("ndjson".equals(formato)) {
+            tipo = MediaType.APPLICATION_NDJSON;
+        } else {
+            return errorExportacion("Formato no soportado: " + formato);
+        }
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            return errorExportacion("La fecha 'desde' no puede ser posterior a 'hasta'");
+        }
+
+        // El StreamingResponseBody no acepta un timeout propio: se fija justo antes de iniciar el modo asíncrono
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(VentaController.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest asincrono, Callable<T> tarea) {
+                        ((AsyncWebRequest) asincrono).setTimeout(timeoutExportacion.toMillis());
+                    }
+                });
+        StreamingResponseBody cuerpo = salida -> ventaService.exportar(desde, hasta, formato, salida);
+        return ResponseEntity.ok()
+                .contentType(tipo)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"ventas." + formato + "\"")
+                .body(cuerpo);
+    }
+
+    private ResponseEntity<StreamingResponseBody> errorExportacion(String mensaje) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(salida -> salida.write(mensaje.getBytes(java.nio.charset.StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Vende un carrito completo en una única transacción.
+     * <p>
+     * Endpoint: POST /ventas/checkout
+     * Cuerpo: [{"productoId": 1, "cantidad": 2}, ...]
+     * <p>
+     * Con el header {@code Idempotency-Key} un reintento del mismo usuario
+     * con la misma clave y el mismo carrito devuelve la respuesta original
+     * sin volver a vender.
+     *
+     * @param lineas Líneas del carrito.
+     * @return 200 OK con el stock resultante, 404 si un producto no existe,
+     *         400 si no hay stock o el carrito es inválido o 422 si la clave
+     *         ya se usó con otro carrito. Ante cualquier error no se registra
+     *         ninguna venta.
+     */
+    @PostMapping("/checkout")
+    public ResponseEntity<?> checkout(@RequestBody List<LineaCarrito> lineas,
+            @RequestHeader(value = RespuestasIdempotentes.CLAVE, required = false) String claveIdempotencia,
+            Principal usuario) {
+        try {
+            if (claveIdempotencia != null) {
+                return RespuestasIdempotentes.responder(clavesIdempotencia.ejecutar(usuario.getName(),
+                        claveIdempotencia, "POST /ventas/checkout", lineas, () -> ventaService.checkout(lineas)));
+            }
+            ResultadoCheckout resultado = ventaService.checkout(lineas);
+            return ResponseEntity.ok(resultado);
+        } catch (ClaveIdempotenciaReutilizadaException e) {
+            return ResponseEntity.unprocessableEntity().body(e.getMessage());
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("no encontrado")) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Anula un conjunto de ventas (por ejemplo, un turno mal cargado) en una
+     * única transacción, devolviendo las unidades al stock.
+     * <p>
+     * Endpoint: POST /ventas/anular
+     * Cuerpo: {"ids": [10, 11, 12]} o {"desde": "AAAA-MM-DD", "hasta": "AAAA-MM-DD"}
+     *
+     * @param anulacion Ids de las ventas o rango de días, ambos extremos incluidos.
+     * @return 200 OK con las ventas anuladas y el stock resultante, 404 si
+     *         alguna venta no existe o 400 si el pedido es inválido o supera
+     *         {@code app.ventas.anulacion.maximo} ventas. Ante cualquier
+     *         error no se anula ninguna venta.
+     */
+    @PostMapping("/anular")
+    public ResponseEntity<?> anular(@RequestBody AnulacionVentas anulacion) {
+        try {
+            ResultadoAnulacion resultado = ventaService.anularVentas(anulacion.getIds(), anulacion.getDesde(),
+                    anulacion.getHasta());
+            return ResponseEntity.ok(resultado);
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("no encontrada")) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Recalcula el resumen diario de ventas desde el historial, en bloques
+     * paralelos. Para la carga inicial o tras importaciones masivas.
+     * <p>
+     * Endpoint: POST /ventas/resumen-diario/reconstruir
+     *
+     * @return 200 OK con el rango procesado y las filas generadas.
+     */
+    @PostMapping("/resumen-diario/reconstruir")
+    public ResultadoReconstruccion reconstruirResumenDiario() {
+        return ventaService.reconstruirResumenDiario();
+    }
+
     @org.springframework.web.bind.annotation.DeleteMapping("/{id}")
     public void eliminarVenta(@org.springframework.web.bind.annotation.PathVariable Long id) {
         ventaService.eliminarVenta(id);
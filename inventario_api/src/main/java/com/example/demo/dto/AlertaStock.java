@@ -0,0 +1,41 @@
+package com.example.demo.dto;
+
+/**
+ * Producto con stock en o por debajo de su mínimo.
+ */
+public class AlertaStock {
+    private final Long productoId;
+    private final String nombre;
+    private final int stock;
+    private final int stockMinimo;
+
+    public AlertaStock(Long productoId, String nombre, int stock, int stockMinimo) {
+        this.productoId = productoId;
+        this.nombre = nombre;
+        this.stock = stock;
+        this.stockMinimo = stockMinimo;
+    }
+
+    public Long getProductoId() {
+        return productoId;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public int getStockMinimo() {
+        return stockMinimo;
+    }
+
+    /**
+     * Unidades que faltan para volver a superar el mínimo (al menos 1).
+     */
+    public int getFaltante() {
+        return stockMinimo - stock + 1;
+    }
+}
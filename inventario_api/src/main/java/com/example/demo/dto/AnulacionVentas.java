@@ -0,0 +1,47 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Cuerpo de POST /ventas/anular: ids de las ventas a anular, o un rango de
+ * días (ambos extremos incluidos).
+ */
+public class AnulacionVentas {
+    private List<Long> ids;
+    private LocalDate desde;
+    private LocalDate hasta;
+
+    public AnulacionVentas() {
+    }
+
+    public AnulacionVentas(List<Long> ids, LocalDate desde, LocalDate hasta) {
+        this.ids = ids;
+        this.desde = desde;
+        this.hasta = hasta;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public LocalDate getDesde() {
+        return desde;
+    }
+
+    public void setDesde(LocalDate desde) {
+        this.desde = desde;
+    }
+
+    public LocalDate getHasta() {
+        return hasta;
+    }
+
+    public void setHasta(LocalDate hasta) {
+        this.hasta = hasta;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Cambio de stock o precio de un producto, tal como se envía por el stream
+ * de cambios. Un producto eliminado llega con {@code eliminado = true} y sin
+ * stock ni precio.
+ */
+public class CambioProducto {
+    private final Long id;
+    private final Integer stock;
+    private final BigDecimal precio;
+    private final long version;
+    private final boolean eliminado;
+
+    public CambioProducto(Long id, Integer stock, BigDecimal precio, long version, boolean eliminado) {
+        this.id = id;
+        this.stock = stock;
+        this.precio = precio;
+        this.version = version;
+        this.eliminado = eliminado;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public BigDecimal getPrecio() {
+        return precio;
+    }
+
+    /**
+     * Versión de cambio del producto (registro global de cambios).
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isEliminado() {
+        return eliminado;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Respuesta de GET /productos/cambios?desde={version}.
+ * <p>
+ * {@code version} es la que el cliente tiene que enviar como {@code desde}
+ * en la próxima consulta. Si {@code completo} es true, {@code productos} es
+ * el catálogo entero y reemplaza a la copia local (la versión pedida es
+ * anterior a la última recarga de datos o no corresponde a esta base).
+ */
+public class CambiosProductos {
+    private final long version;
+    private final boolean completo;
+    private final List<ProductoListado> productos;
+    private final List<Long> eliminados;
+
+    public CambiosProductos(long version, boolean completo, List<ProductoListado> productos, List<Long> eliminados) {
+        this.version = version;
+        this.completo = completo;
+        this.productos = productos;
+        this.eliminados = eliminados;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isCompleto() {
+        return completo;
+    }
+
+    public List<ProductoListado> getProductos() {
+        return productos;
+    }
+
+    public List<Long> getEliminados() {
+        return eliminados;
+    }
+}
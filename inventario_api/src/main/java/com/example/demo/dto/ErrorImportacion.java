@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+/**
+ * Fila rechazada por la importación de productos.
+ */
+public class ErrorImportacion {
+    private final long linea;
+    private final String mensaje;
+
+    public ErrorImportacion(long linea, String mensaje) {
+        this.linea = linea;
+        this.mensaje = mensaje;
+    }
+
+    /** Número de línea en el archivo (la cabecera del CSV es la 1). */
+    public long getLinea() {
+        return linea;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+}
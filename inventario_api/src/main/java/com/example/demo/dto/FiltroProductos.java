@@ -0,0 +1,66 @@
+package com.example.demo.dto;
+
+/**
+ * Criterios de filtrado y orden para el listado paginado de productos.
+ * <p>
+ * Todos los filtros son opcionales; un valor null significa "sin filtro".
+ */
+public class FiltroProductos {
+    private Long categoriaId;
+    private Long marcaId;
+    private boolean stockBajo;
+    private String nombre;
+    private String orden = "id";
+    private boolean descendente;
+
+    public FiltroProductos() {
+    }
+
+    public Long getCategoriaId() {
+        return categoriaId;
+    }
+
+    public void setCategoriaId(Long categoriaId) {
+        this.categoriaId = categoriaId;
+    }
+
+    public Long getMarcaId() {
+        return marcaId;
+    }
+
+    public void setMarcaId(Long marcaId) {
+        this.marcaId = marcaId;
+    }
+
+    public boolean isStockBajo() {
+        return stockBajo;
+    }
+
+    public void setStockBajo(boolean stockBajo) {
+        this.stockBajo = stockBajo;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getOrden() {
+        return orden;
+    }
+
+    public void setOrden(String orden) {
+        this.orden = orden;
+    }
+
+    public boolean isDescendente() {
+        return descendente;
+    }
+
+    public void setDescendente(boolean descendente) {
+        this.descendente = descendente;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.dto;
+
+/**
+ * Una línea del carrito: producto y cantidad a vender.
+ */
+public class LineaCarrito {
+    private Long productoId;
+    private int cantidad;
+
+    public LineaCarrito() {
+    }
+
+    public LineaCarrito(Long productoId, int cantidad) {
+        this.productoId = productoId;
+        this.cantidad = cantidad;
+    }
+
+    public Long getProductoId() {
+        return productoId;
+    }
+
+    public void setProductoId(Long productoId) {
+        this.productoId = productoId;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(int cantidad) {
+        this.cantidad = cantidad;
+    }
+}
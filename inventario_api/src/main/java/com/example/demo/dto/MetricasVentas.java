@@ -0,0 +1,67 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Respuesta de GET /ventas/metricas: totales del rango y detalle agrupado.
+ */
+public class MetricasVentas {
+    private LocalDate desde;
+    private LocalDate hasta;
+    private String agrupacion;
+    private ResumenVentas totales;
+    private List<ResumenVentas> detalle;
+
+    public MetricasVentas() {
+    }
+
+    public MetricasVentas(LocalDate desde, LocalDate hasta, String agrupacion, ResumenVentas totales,
+            List<ResumenVentas> detalle) {
+        this.desde = desde;
+        this.hasta = hasta;
+        this.agrupacion = agrupacion;
+        this.totales = totales;
+        this.detalle = detalle;
+    }
+
+    public LocalDate getDesde() {
+        return desde;
+    }
+
+    public void setDesde(LocalDate desde) {
+        this.desde = desde;
+    }
+
+    public LocalDate getHasta() {
+        return hasta;
+    }
+
+    public void setHasta(LocalDate hasta) {
+        this.hasta = hasta;
+    }
+
+    public String getAgrupacion() {
+        return agrupacion;
+    }
+
+    public void setAgrupacion(String agrupacion) {
+        this.agrupacion = agrupacion;
+    }
+
+    public ResumenVentas getTotales() {
+        return totales;
+    }
+
+    public void setTotales(ResumenVentas totales) {
+        this.totales = totales;
+    }
+
+    public List<ResumenVentas> getDetalle() {
+        return detalle;
+    }
+
+    public void setDetalle(List<ResumenVentas> detalle) {
+        this.detalle = detalle;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Producto;
+
+import java.util.List;
+
+/**
+ * Página de productos obtenida por keyset pagination.
+ * <p>
+ * {@code siguienteCursor} es opaco para el cliente: basta con reenviarlo en
+ * el parámetro {@code cursor} para obtener la página siguiente. Es null cuando
+ * no hay más resultados.
+ */
+public class PaginaProductos {
+    private List<Producto> contenido;
+    private String siguienteCursor;
+    private boolean hayMas;
+
+    public PaginaProductos() {
+    }
+
+    public PaginaProductos(List<Producto> contenido, String siguienteCursor, boolean hayMas) {
+        this.contenido = contenido;
+        this.siguienteCursor = siguienteCursor;
+        this.hayMas = hayMas;
+    }
+
+    public List<Producto> getContenido() {
+        return contenido;
+    }
+
+    public void setContenido(List<Producto> contenido) {
+        this.contenido = contenido;
+    }
+
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    public void setSiguienteCursor(String siguienteCursor) {
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public boolean isHayMas() {
+        return hayMas;
+    }
+
+    public void setHayMas(boolean hayMas) {
+        this.hayMas = hayMas;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Producto;
+
+import java.math.BigDecimal;
+
+/**
+ * Fila inmutable del listado de productos (GET /productos).
+ * <p>
+ * Se arma con una proyección JPQL que hace join con categoría y marca, así
+ * que no hay entidades administradas ni snapshots de Hibernate detrás. El
+ * JSON conserva la forma del de la entidad (categoria y marca como
+ * {@code {id, nombre}}, margenGanancia calculado), sin las categorías de la
+ * marca, que el listado no usa.
+ */
+public class ProductoListado {
+    private final Long id;
+    private final String nombre;
+    private final BigDecimal precio;
+    private final Integer stock;
+    private final Double precioCosto;
+    private final Integer stockMinimo;
+    private final Referencia categoria;
+    private final Referencia marca;
+    private final Long version;
+    private final long versionCambio;
+
+    public ProductoListado(Long id, String nombre, BigDecimal precio, Integer stock, Double precioCosto,
+            Integer stockMinimo, Long categoriaId, String categoriaNombre, Long marcaId, String marcaNombre) {
+        this(id, nombre, precio, stock, precioCosto, stockMinimo, categoriaId, categoriaNombre, marcaId, marcaNombre,
+                null, 0L);
+    }
+
+    public ProductoListado(Long id, String nombre, BigDecimal precio, Integer stock, Double precioCosto,
+            Integer stockMinimo, Long categoriaId, String categoriaNombre, Long marcaId, String marcaNombre,
+            Long version, long versionCambio) {
+        this.id = id;
+        this.nombre = nombre;
+        this.precio = precio;
+        this.stock = stock;
+        this.precioCosto = precioCosto;
+        this.stockMinimo = stockMinimo;
+        this.categoria = categoriaId != null ? new Referencia(categoriaId, categoriaNombre) : null;
+        this.marca = marcaId != null ? new Referencia(marcaId, marcaNombre) : null;
+        this.version = version;
+        this.versionCambio = versionCambio;
+    }
+
+    /**
+     * Copia los datos de una entidad ya cargada (con categoría y marca).
+     */
+    public static ProductoListado de(Producto producto) {
+        return new ProductoListado(producto.getId(), producto.getNombre(), producto.getPrecio(),
+                producto.getStock(), producto.getPrecioCosto(), producto.getStockMinimo(),
+                producto.getCategoria() != null ? producto.getCategoria().getId() : null,
+                producto.getCategoria() != null ? producto.getCategoria().getNombre() : null,
+                producto.getMarca() != null ? producto.getMarca().getId() : null,
+                producto.getMarca() != null ? producto.getMarca().getNombre() : null,
+                producto.getVersion(), producto.getVersionCambio());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public BigDecimal getPrecio() {
+        return precio;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public Double getPrecioCosto() {
+        return precioCosto;
+    }
+
+    public Integer getStockMinimo() {
+        return stockMinimo;
+    }
+
+    public Referencia getCategoria() {
+        return categoria;
+    }
+
+    public Referencia getMarca() {
+        return marca;
+    }
+
+    /**
+     * Versión para el bloqueo optimista; se envía en If-Match al editar.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Versión del último cambio; sirve como {@code desde} para
+     * GET /productos/cambios.
+     */
+    public long getVersionCambio() {
+        return versionCambio;
+    }
+
+    /**
+     * Margen de ganancia en porcentaje, igual que
+     * {@link Producto#getMargenGanancia()}.
+     */
+    public Double getMargenGanancia() {
+        if (precioCosto == null || precioCosto == 0) {
+            return 0.0;
+        }
+        if (precio == null) {
+            return 0.0;
+        }
+        return ((precio.doubleValue() - precioCosto) / precioCosto) * 100;
+    }
+
+    /**
+     * Categoría o marca referenciada: sólo id y nombre.
+     */
+    public static final class Referencia {
+        private final Long id;
+        private final String nombre;
+
+        public Referencia(Long id, String nombre) {
+            this.id = id;
+            this.nombre = nombre;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+    }
+}
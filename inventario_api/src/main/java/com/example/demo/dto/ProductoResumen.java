@@ -0,0 +1,57 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Vista inmutable y liviana de un producto: sólo los datos necesarios para
+ * registrar una venta y devolver el stock resultante.
+ * <p>
+ * Se obtiene con una proyección JPQL ("select new ..."), por lo que no pasa
+ * por el contexto de persistencia ni carga categoría y marca.
+ */
+public class ProductoResumen {
+    private final Long id;
+    private final String nombre;
+    private final BigDecimal precio;
+    private final Double precioCosto;
+    private final Integer stock;
+    private final Integer stockMinimo;
+
+    public ProductoResumen(Long id, String nombre, BigDecimal precio, Double precioCosto, Integer stock) {
+        this(id, nombre, precio, precioCosto, stock, null);
+    }
+
+    public ProductoResumen(Long id, String nombre, BigDecimal precio, Double precioCosto, Integer stock,
+            Integer stockMinimo) {
+        this.id = id;
+        this.nombre = nombre;
+        this.precio = precio;
+        this.precioCosto = precioCosto;
+        this.stock = stock;
+        this.stockMinimo = stockMinimo;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public BigDecimal getPrecio() {
+        return precio;
+    }
+
+    public Double getPrecioCosto() {
+        return precioCosto;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public Integer getStockMinimo() {
+        return stockMinimo;
+    }
+}
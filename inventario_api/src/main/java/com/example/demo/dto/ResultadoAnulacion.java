@@ -0,0 +1,57 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de POST /ventas/anular: ventas eliminadas, totales anulados y
+ * stock final de cada producto repuesto.
+ */
+public class ResultadoAnulacion {
+    private int ventasAnuladas;
+    private long unidadesRepuestas;
+    private double montoAnulado;
+    private List<ProductoResumen> productos;
+
+    public ResultadoAnulacion() {
+    }
+
+    public ResultadoAnulacion(int ventasAnuladas, long unidadesRepuestas, double montoAnulado,
+            List<ProductoResumen> productos) {
+        this.ventasAnuladas = ventasAnuladas;
+        this.unidadesRepuestas = unidadesRepuestas;
+        this.montoAnulado = montoAnulado;
+        this.productos = productos;
+    }
+
+    public int getVentasAnuladas() {
+        return ventasAnuladas;
+    }
+
+    public void setVentasAnuladas(int ventasAnuladas) {
+        this.ventasAnuladas = ventasAnuladas;
+    }
+
+    public long getUnidadesRepuestas() {
+        return unidadesRepuestas;
+    }
+
+    public void setUnidadesRepuestas(long unidadesRepuestas) {
+        this.unidadesRepuestas = unidadesRepuestas;
+    }
+
+    public double getMontoAnulado() {
+        return montoAnulado;
+    }
+
+    public void setMontoAnulado(double montoAnulado) {
+        this.montoAnulado = montoAnulado;
+    }
+
+    public List<ProductoResumen> getProductos() {
+        return productos;
+    }
+
+    public void setProductos(List<ProductoResumen> productos) {
+        this.productos = productos;
+    }
+}
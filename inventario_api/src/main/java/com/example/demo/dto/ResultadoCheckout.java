@@ -0,0 +1,58 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Resultado de POST /ventas/checkout: stock final de cada producto vendido
+ * y totales de la operación.
+ */
+public class ResultadoCheckout {
+    private LocalDateTime fechaVenta;
+    private List<ProductoResumen> productos;
+    private int unidadesVendidas;
+    private double montoTotal;
+
+    public ResultadoCheckout() {
+    }
+
+    public ResultadoCheckout(LocalDateTime fechaVenta, List<ProductoResumen> productos, int unidadesVendidas,
+            double montoTotal) {
+        this.fechaVenta = fechaVenta;
+        this.productos = productos;
+        this.unidadesVendidas = unidadesVendidas;
+        this.montoTotal = montoTotal;
+    }
+
+    public LocalDateTime getFechaVenta() {
+        return fechaVenta;
+    }
+
+    public void setFechaVenta(LocalDateTime fechaVenta) {
+        this.fechaVenta = fechaVenta;
+    }
+
+    public List<ProductoResumen> getProductos() {
+        return productos;
+    }
+
+    public void setProductos(List<ProductoResumen> productos) {
+        this.productos = productos;
+    }
+
+    public int getUnidadesVendidas() {
+        return unidadesVendidas;
+    }
+
+    public void setUnidadesVendidas(int unidadesVendidas) {
+        this.unidadesVendidas = unidadesVendidas;
+    }
+
+    public double getMontoTotal() {
+        return montoTotal;
+    }
+
+    public void setMontoTotal(double montoTotal) {
+        this.montoTotal = montoTotal;
+    }
+}
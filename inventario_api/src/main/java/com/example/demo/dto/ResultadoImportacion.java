@@ -0,0 +1,59 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de POST /productos/importar.
+ * <p>
+ * Las filas con error no cortan la importación: el resto se procesa igual.
+ * El detalle de errores está acotado ({@code app.importacion.max-errores});
+ * {@link #getConError()} cuenta todos.
+ */
+public class ResultadoImportacion {
+    private final long filas;
+    private final long creados;
+    private final long actualizados;
+    private final long conError;
+    private final List<ErrorImportacion> errores;
+    private final long milisegundos;
+
+    public ResultadoImportacion(long filas, long creados, long actualizados, long conError,
+            List<ErrorImportacion> errores, long milisegundos) {
+        this.filas = filas;
+        this.creados = creados;
+        this.actualizados = actualizados;
+        this.conError = conError;
+        this.errores = errores;
+        this.milisegundos = milisegundos;
+    }
+
+    /** Filas de datos leídas (sin cabecera ni líneas vacías). */
+    public long getFilas() {
+        return filas;
+    }
+
+    public long getCreados() {
+        return creados;
+    }
+
+    public long getActualizados() {
+        return actualizados;
+    }
+
+    public long getConError() {
+        return conError;
+    }
+
+    public List<ErrorImportacion> getErrores() {
+        return errores;
+    }
+
+    /** true si hubo más errores que los incluidos en {@link #getErrores()}. */
+    public boolean isErroresTruncados() {
+        return conError > errores.size();
+    }
+
+    public long getMilisegundos() {
+        return milisegundos;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Resultado de recalcular el rollup venta_diaria desde el historial.
+ */
+public class ResultadoReconstruccion {
+    private final LocalDate desde;
+    private final LocalDate hasta;
+    private final int bloques;
+    private final long filas;
+    private final long milisegundos;
+
+    public ResultadoReconstruccion(LocalDate desde, LocalDate hasta, int bloques, long filas, long milisegundos) {
+        this.desde = desde;
+        this.hasta = hasta;
+        this.bloques = bloques;
+        this.filas = filas;
+        this.milisegundos = milisegundos;
+    }
+
+    /** Primer día con ventas, o null si no hay ventas. */
+    public LocalDate getDesde() {
+        return desde;
+    }
+
+    /** Último día con ventas, o null si no hay ventas. */
+    public LocalDate getHasta() {
+        return hasta;
+    }
+
+    public int getBloques() {
+        return bloques;
+    }
+
+    /** Filas (día, producto) generadas. */
+    public long getFilas() {
+        return filas;
+    }
+
+    public long getMilisegundos() {
+        return milisegundos;
+    }
+}
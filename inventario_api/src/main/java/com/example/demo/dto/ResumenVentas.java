@@ -0,0 +1,78 @@
+package com.example.demo.dto;
+
+/**
+ * Agregado de ventas calculado en la base de datos.
+ * <p>
+ * Se usa tanto para el total del rango como para cada grupo del detalle
+ * (un día o un producto). {@code grupo} es null en el total.
+ */
+public class ResumenVentas {
+    private String grupo;
+    private double totalVendido;
+    private double costoTotal;
+    private long unidadesVendidas;
+    private long nroOperaciones;
+
+    public ResumenVentas() {
+    }
+
+    /**
+     * Constructor usado por las consultas JPQL ("select new ...").
+     * Las sumas llegan null cuando el rango no tiene ventas.
+     */
+    public ResumenVentas(Object grupo, Double totalVendido, Double costoTotal, Long unidadesVendidas,
+            Long nroOperaciones) {
+        this.grupo = grupo != null ? grupo.toString() : null;
+        this.totalVendido = totalVendido != null ? totalVendido : 0.0;
+        this.costoTotal = costoTotal != null ? costoTotal : 0.0;
+        this.unidadesVendidas = unidadesVendidas != null ? unidadesVendidas : 0L;
+        this.nroOperaciones = nroOperaciones != null ? nroOperaciones : 0L;
+    }
+
+    public String getGrupo() {
+        return grupo;
+    }
+
+    public void setGrupo(String grupo) {
+        this.grupo = grupo;
+    }
+
+    public double getTotalVendido() {
+        return totalVendido;
+    }
+
+    public void setTotalVendido(double totalVendido) {
+        this.totalVendido = totalVendido;
+    }
+
+    public double getCostoTotal() {
+        return costoTotal;
+    }
+
+    public void setCostoTotal(double costoTotal) {
+        this.costoTotal = costoTotal;
+    }
+
+    /**
+     * Utilidad real: lo vendido menos el costo histórico de cada venta.
+     */
+    public double getUtilidadReal() {
+        return totalVendido - costoTotal;
+    }
+
+    public long getUnidadesVendidas() {
+        return unidadesVendidas;
+    }
+
+    public void setUnidadesVendidas(long unidadesVendidas) {
+        this.unidadesVendidas = unidadesVendidas;
+    }
+
+    public long getNroOperaciones() {
+        return nroOperaciones;
+    }
+
+    public void setNroOperaciones(long nroOperaciones) {
+        this.nroOperaciones = nroOperaciones;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila inmutable del historial de ventas (GET /ventas), obtenida con una
+ * proyección JPQL en lugar de entidades administradas. El JSON tiene los
+ * mismos campos que la entidad Venta.
+ */
+public class VentaListado {
+    private final Long id;
+    private final LocalDateTime fechaVenta;
+    private final String nombreProducto;
+    private final Long productoId;
+    private final int cantidadVendida;
+    private final double precioUnitario;
+    private final double montoTotal;
+    private final Double costoUnitario;
+
+    public VentaListado(Long id, LocalDateTime fechaVenta, String nombreProducto, Long productoId,
+            int cantidadVendida, double precioUnitario, double montoTotal, Double costoUnitario) {
+        this.id = id;
+        this.fechaVenta = fechaVenta;
+        this.nombreProducto = nombreProducto;
+        this.productoId = productoId;
+        this.cantidadVendida = cantidadVendida;
+        this.precioUnitario = precioUnitario;
+        this.montoTotal = montoTotal;
+        this.costoUnitario = costoUnitario;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getFechaVenta() {
+        return fechaVenta;
+    }
+
+    public String getNombreProducto() {
+        return nombreProducto;
+    }
+
+    public Long getProductoId() {
+        return productoId;
+    }
+
+    public int getCantidadVendida() {
+        return cantidadVendida;
+    }
+
+    public double getPrecioUnitario() {
+        return precioUnitario;
+    }
+
+    public double getMontoTotal() {
+        return montoTotal;
+    }
+
+    public Double getCostoUnitario() {
+        return costoUnitario;
+    }
+}
@@ -2,10 +2,13 @@ package com.example.demo.model;
 
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.util.List;
 
 @Entity
 @Table(name = "categoria")
+// Campos internos del proxy lazy de Hibernate, que Jackson no sabe serializar
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Categoria {
 
     @Id
@@ -0,0 +1,105 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Resultado de una venta hecha con {@code Idempotency-Key}, para devolver el
+ * mismo resultado si el cliente reintenta el pedido. Cada usuario tiene sus
+ * propias claves: la misma clave enviada por otro usuario es otro pedido y
+ * nunca recibe la respuesta ajena. Se opera con JDBC desde
+ * {@link com.example.demo.repository.ClaveIdempotenciaJdbcRepository}; la
+ * entidad sólo declara la tabla.
+ */
+@Entity
+@Table(name = "clave_idempotencia", indexes = @Index(name = "idx_clave_idempotencia_vence", columnList = "vence"))
+@IdClass(ClaveIdempotencia.Identificador.class)
+public class ClaveIdempotencia {
+
+    /** Usuario autenticado que envió el pedido. */
+    @Id
+    private String usuario;
+
+    @Id
+    @Column(length = 100)
+    private String clave;
+
+    /** SHA-256 del pedido original: la misma clave con otro pedido se rechaza. */
+    @Column(nullable = false, length = 64)
+    private String huella;
+
+    /**
+     * Cuerpo JSON de la respuesta original. Es null sólo dentro de la
+     * transacción que reservó la clave, mientras se procesa el pedido.
+     */
+    @Lob
+    private String respuesta;
+
+    @Column(nullable = false)
+    private LocalDateTime creada;
+
+    @Column(nullable = false)
+    private LocalDateTime vence;
+
+    public ClaveIdempotencia() {
+    }
+
+    public String getUsuario() {
+        return usuario;
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    public String getHuella() {
+        return huella;
+    }
+
+    public String getRespuesta() {
+        return respuesta;
+    }
+
+    public LocalDateTime getCreada() {
+        return creada;
+    }
+
+    public LocalDateTime getVence() {
+        return vence;
+    }
+
+    /**
+     * Clave primaria compuesta (usuario, clave).
+     */
+    public static class Identificador implements Serializable {
+        private String usuario;
+        private String clave;
+
+        public Identificador() {
+        }
+
+        public Identificador(String usuario, String clave) {
+            this.usuario = usuario;
+            this.clave = clave;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Identificador otro)) {
+                return false;
+            }
+            return Objects.equals(usuario, otro.usuario) && Objects.equals(clave, otro.clave);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(usuario, clave);
+        }
+    }
+}
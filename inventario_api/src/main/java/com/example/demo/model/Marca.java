@@ -1,9 +1,12 @@
 package com.example.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 
 @Entity
 @Table(name = "marca")
+// Campos internos del proxy lazy de Hibernate, que Jackson no sabe serializar
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Marca {
 
     @Id
@@ -36,7 +39,7 @@ public class Marca {
         this.nombre = nombre;
     }
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany
     @JoinTable(name = "marca_categoria", joinColumns = @JoinColumn(name = "marca_id"), inverseJoinColumns = @JoinColumn(name = "categoria_id"))
     private java.util.List<Categoria> categorias;
 
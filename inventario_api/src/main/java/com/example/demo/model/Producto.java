@@ -2,13 +2,19 @@ package com.example.demo.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Version;
 import jakarta.persistence.JoinColumn;
 import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 /**
  * Entidad que representa un Producto en la base de datos.
@@ -18,9 +24,19 @@ import java.math.BigDecimal;
  * @Table Define la tabla 'producto' donde se persistirán los datos.
  */
 @Entity
-@Table(name = "producto")
+@Table(name = "producto", indexes = {
+        // Un índice (columna, id) por cada orden del listado paginado: el
+        // keyset lee la página en orden en lugar de ordenar todo el filtro
+        @Index(name = "idx_producto_nombre_id", columnList = "nombre, id"),
+        @Index(name = "idx_producto_precio_id", columnList = "precio, id"),
+        @Index(name = "idx_producto_stock_id", columnList = "stock, id"),
+        @Index(name = "idx_producto_version_cambio", columnList = "version_cambio"),
+        @Index(name = "idx_producto_nombre_normalizado", columnList = "nombre_normalizado") })
 public class Producto {
 
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern NO_ALFANUMERICOS = Pattern.compile("[^\\p{Alnum}]+");
+
     /**
      * Identificador único del producto.
      * 
@@ -38,6 +54,15 @@ public class Producto {
     @Column(nullable = false, length = 255)
     private String nombre;
 
+    /**
+     * Nombre normalizado ({@link #normalizarNombre}), para buscar por nombre
+     * exacto con índice sin depender de la intercalación de la base: lo usan
+     * la importación y las ventas históricas sin productoId. Se mantiene en
+     * {@link #setNombre}; las escrituras por JDBC lo calculan aparte.
+     */
+    @Column(name = "nombre_normalizado", length = 255)
+    private String nombreNormalizado;
+
     /**
      * Precio del producto.
      * Se usa BigDecimal para precisión monetaria exacta.
@@ -48,8 +73,12 @@ public class Producto {
 
     /**
      * Cantidad de stock disponible.
+     * <p>
+     * No es actualizable desde la entidad: solo cambia con los UPDATE
+     * atómicos de ventas y ajustes. Así la edición, que guarda la entidad que
+     * leyó, no vuelve a escribir un stock viejo.
      */
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private Integer stock;
 
     /**
@@ -59,16 +88,45 @@ public class Producto {
     private Double precioCosto;
 
     /**
-     * Stock mínimo para alertas. Valor por defecto 5.
+     * Stock mínimo para alertas. Valor por defecto 5. Como {@link #stock},
+     * no es actualizable desde la entidad: la edición no lo cambia y la
+     * importación lo actualiza por JDBC.
      */
-    @Column(name = "stock_minimo")
+    @Column(name = "stock_minimo", updatable = false)
     private Integer stockMinimo = 5;
 
-    @ManyToOne
+    /**
+     * Versión para el bloqueo optimista de las ediciones (PUT /productos/{id},
+     * If-Match). Las ventas y los ajustes de stock se hacen con UPDATE
+     * atómicos que no la incrementan: no hacen fallar una edición de nombre o
+     * precio ni se pisan con ella, porque el UPDATE de la edición no incluye
+     * el stock ({@code updatable = false}).
+     */
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    /**
+     * Versión del último cambio del producto, tomada del registro global de
+     * cambios ({@link com.example.demo.service.VersionesProducto}).
+     * GET /productos/cambios?desde=N devuelve los productos con versión
+     * mayor a N.
+     * <p>
+     * No es actualizable desde la entidad: se asigna siempre con un UPDATE
+     * aparte, así asignarla no vuelve a incrementar {@link #version}.
+     */
+    @Column(name = "version_cambio", nullable = false, updatable = false, columnDefinition = "bigint default 0")
+    private long versionCambio;
+
+    /**
+     * Lazy: los listados las traen con un entity graph de
+     * {@link com.example.demo.repository.ProductoRepository}.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
     @jakarta.persistence.JoinColumn(name = "categoria_id")
     private Categoria categoria;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @jakarta.persistence.JoinColumn(name = "marca_id")
     private Marca marca;
 
@@ -98,7 +156,7 @@ public class Producto {
      * Constructor simple (existente).
      */
     public Producto(String nombre, BigDecimal precio, Integer stock) {
-        this.nombre = nombre;
+        setNombre(nombre);
         this.precio = precio;
         this.stock = stock;
     }
@@ -119,6 +177,21 @@ public class Producto {
 
     public void setNombre(String nombre) {
         this.nombre = nombre;
+        this.nombreNormalizado = nombre != null ? normalizarNombre(nombre) : null;
+    }
+
+    /**
+     * Minúsculas, sin acentos y con cualquier secuencia de signos o espacios
+     * reducida a un único espacio: "Mecánico  5W-30" y "mecanico 5w 30" son
+     * el mismo nombre.
+     */
+    public static String normalizarNombre(String nombre) {
+        if (nombre == null) {
+            return "";
+        }
+        String sinAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(nombre, Normalizer.Form.NFD))
+                .replaceAll("");
+        return NO_ALFANUMERICOS.matcher(sinAcentos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
     }
 
     public BigDecimal getPrecio() {
@@ -145,6 +218,22 @@ public class Producto {
         this.precioCosto = precioCosto;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public long getVersionCambio() {
+        return versionCambio;
+    }
+
+    public void setVersionCambio(long versionCambio) {
+        this.versionCambio = versionCambio;
+    }
+
     public Integer getStockMinimo() {
         return stockMinimo;
     }
@@ -0,0 +1,48 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marca de borrado ("tombstone") de un producto eliminado.
+ * <p>
+ * Permite que GET /productos/cambios informe también las bajas: un cliente
+ * que sincroniza desde una versión anterior sabe qué productos quitar de su
+ * copia local.
+ */
+@Entity
+@Table(name = "producto_eliminado", indexes = @Index(name = "idx_producto_eliminado_version", columnList = "version_cambio"))
+public class ProductoEliminado {
+
+    @Id
+    @Column(name = "producto_id")
+    private Long productoId;
+
+    @Column(name = "version_cambio", nullable = false)
+    private long versionCambio;
+
+    @Column(name = "fecha_eliminacion", nullable = false)
+    private LocalDateTime fechaEliminacion;
+
+    public ProductoEliminado() {
+    }
+
+    public ProductoEliminado(Long productoId, long versionCambio) {
+        this.productoId = productoId;
+        this.versionCambio = versionCambio;
+        this.fechaEliminacion = LocalDateTime.now();
+    }
+
+    public Long getProductoId() {
+        return productoId;
+    }
+
+    public long getVersionCambio() {
+        return versionCambio;
+    }
+
+    public LocalDateTime getFechaEliminacion() {
+        return fechaEliminacion;
+    }
+}
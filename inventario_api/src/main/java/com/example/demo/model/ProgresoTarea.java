@@ -0,0 +1,43 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Avance de una tarea de fondo que recorre una tabla por id (una fila por
+ * tarea), para retomarla donde quedó después de reiniciar la aplicación.
+ * Se opera con JDBC desde
+ * {@link com.example.demo.repository.ProgresoTareaJdbcRepository}; la
+ * entidad sólo declara la tabla.
+ */
+@Entity
+@Table(name = "progreso_tarea")
+public class ProgresoTarea {
+
+    @Id
+    @Column(length = 50)
+    private String nombre;
+
+    /** Último id procesado. */
+    @Column(name = "ultimo_id", nullable = false)
+    private long ultimoId;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    public ProgresoTarea() {
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getUltimoId() {
+        return ultimoId;
+    }
+
+    public LocalDateTime getFechaActualizacion() {
+        return fechaActualizacion;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro de cambios del catálogo: una fila por transacción que modifica
+ * productos, cuyo id autoincremental es la versión de cambio. Se opera con
+ * JDBC desde {@link com.example.demo.repository.RegistroCambioJdbcRepository};
+ * la entidad sólo declara la tabla.
+ */
+@Entity
+@Table(name = "registro_cambio")
+public class RegistroCambio {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Hora (de la instancia) en que se tomó la versión. */
+    @Column(nullable = false)
+    private LocalDateTime registrado;
+
+    public RegistroCambio() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getRegistrado() {
+        return registrado;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Estado global de las versiones de cambio del catálogo (una fila por
+ * secuencia). Las versiones las asigna {@link RegistroCambio}.
+ * <p>
+ * {@code valor} es la marca: la versión hasta la que todos los cambios están
+ * confirmados o descartados, que guarda la limpieza periódica del registro.
+ * {@code base} es la versión más antigua desde la que se pueden pedir
+ * cambios: por debajo de ella los datos se recargaron por completo y faltan
+ * marcas de borrado, así que el cliente tiene que recibir el catálogo
+ * entero. Se opera con JDBC desde
+ * {@link com.example.demo.repository.SecuenciaCambiosJdbcRepository}; la
+ * entidad sólo declara la tabla.
+ */
+@Entity
+@Table(name = "secuencia_cambios")
+public class SecuenciaCambios {
+
+    @Id
+    @Column(length = 50)
+    private String nombre;
+
+    @Column(nullable = false)
+    private long valor;
+
+    @Column(nullable = false)
+    private long base;
+
+    public SecuenciaCambios() {
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getValor() {
+        return valor;
+    }
+
+    public long getBase() {
+        return base;
+    }
+}
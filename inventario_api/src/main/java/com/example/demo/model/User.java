@@ -1,9 +1,11 @@
 package com.example.demo.model;
 
+import com.example.demo.config.UserChangeListener;
 import jakarta.persistence.*;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserChangeListener.class)
 public class User {
 
     @Id
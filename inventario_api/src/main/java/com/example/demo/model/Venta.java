@@ -6,14 +6,14 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "venta")
+@Table(name = "venta", indexes = @Index(name = "idx_venta_fecha", columnList = "fecha_venta"))
 public class Venta {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(updatable = false)
+    @Column(name = "fecha_venta", updatable = false)
     private LocalDateTime fechaVenta;
 
     @PrePersist
@@ -0,0 +1,109 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Acumulado de ventas por día y producto (tabla de rollup).
+ * <p>
+ * Se mantiene en la misma transacción que cada venta y cada reversión (ver
+ * {@link com.example.demo.service.VentaDiariaService}), así los reportes por
+ * día, mes o año leen una fila por día y producto en lugar de cada venta.
+ * Las ventas históricas sin producto asociado se acumulan con
+ * {@code productoId = 0}.
+ */
+@Entity
+@Table(name = "venta_diaria")
+@IdClass(VentaDiaria.Clave.class)
+public class VentaDiaria {
+
+    @Id
+    private LocalDate fecha;
+
+    @Id
+    @Column(name = "producto_id")
+    private Long productoId;
+
+    /** Último nombre con el que se vendió el producto ese día. */
+    @Column(name = "nombre_producto")
+    private String nombreProducto;
+
+    @Column(nullable = false)
+    private long unidades;
+
+    @Column(name = "monto_total", nullable = false)
+    private double montoTotal;
+
+    /** Costo de lo vendido, con el costo unitario de cada venta. */
+    @Column(name = "costo_total", nullable = false)
+    private double costoTotal;
+
+    @Column(nullable = false)
+    private long operaciones;
+
+    public VentaDiaria() {
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public Long getProductoId() {
+        return productoId;
+    }
+
+    public String getNombreProducto() {
+        return nombreProducto;
+    }
+
+    public long getUnidades() {
+        return unidades;
+    }
+
+    public double getMontoTotal() {
+        return montoTotal;
+    }
+
+    public double getCostoTotal() {
+        return costoTotal;
+    }
+
+    public long getOperaciones() {
+        return operaciones;
+    }
+
+    /**
+     * Clave compuesta (fecha, productoId).
+     */
+    public static class Clave implements Serializable {
+        private LocalDate fecha;
+        private Long productoId;
+
+        public Clave() {
+        }
+
+        public Clave(LocalDate fecha, Long productoId) {
+            this.fecha = fecha;
+            this.productoId = productoId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Clave otra)) {
+                return false;
+            }
+            return Objects.equals(fecha, otra.fecha) && Objects.equals(productoId, otra.productoId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fecha, productoId);
+        }
+    }
+}
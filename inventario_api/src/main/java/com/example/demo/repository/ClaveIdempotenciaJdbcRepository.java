@@ -0,0 +1,85 @@
+package com.example.demo.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Respuestas guardadas por {@code Idempotency-Key} en la tabla
+ * {@code clave_idempotencia}. Las claves son de cada usuario: todas las
+ * operaciones van por (usuario, clave).
+ */
+@Repository
+public class ClaveIdempotenciaJdbcRepository {
+
+    /**
+     * Clave vigente: la huella del pedido, la respuesta que se devolvió y
+     * cuándo vence. Fuera de la transacción que la reservó, la respuesta
+     * nunca es null.
+     */
+    public record Registro(String huella, String respuesta, LocalDateTime vence) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ClaveIdempotenciaJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return La clave si existe y no venció.
+     */
+    public Optional<Registro> buscar(String usuario, String clave, LocalDateTime ahora) {
+        List<Registro> registros = jdbcTemplate.query(
+                "SELECT huella, respuesta, vence FROM clave_idempotencia WHERE usuario = ? AND clave = ? AND vence > ?",
+                (rs, fila) -> new Registro(rs.getString("huella"), rs.getString("respuesta"),
+                        rs.getTimestamp("vence").toLocalDateTime()),
+                usuario, clave, Timestamp.valueOf(ahora));
+        return registros.stream().findFirst();
+    }
+
+    /**
+     * Reserva la clave al empezar el pedido, todavía sin respuesta. Participa
+     * de la transacción activa: la clave se confirma junto con la venta. Si
+     * otra transacción reservó la misma clave y todavía no terminó, espera a
+     * que termine.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException si la clave ya existe.
+     */
+    public void reservar(String usuario, String clave, String huella, LocalDateTime ahora, LocalDateTime vence) {
+        jdbcTemplate.update(
+                "INSERT INTO clave_idempotencia (usuario, clave, huella, creada, vence) VALUES (?, ?, ?, ?, ?)",
+                usuario, clave, huella, Timestamp.valueOf(ahora), Timestamp.valueOf(vence));
+    }
+
+    /**
+     * Completa la clave reservada con la respuesta del pedido, en la misma
+     * transacción que la reservó.
+     */
+    public void guardarRespuesta(String usuario, String clave, String respuesta) {
+        jdbcTemplate.update("UPDATE clave_idempotencia SET respuesta = ? WHERE usuario = ? AND clave = ?",
+                respuesta, usuario, clave);
+    }
+
+    /**
+     * Borra la clave si venció, para poder volver a usarla.
+     */
+    public void eliminarVencida(String usuario, String clave, LocalDateTime ahora) {
+        jdbcTemplate.update("DELETE FROM clave_idempotencia WHERE usuario = ? AND clave = ? AND vence <= ?",
+                usuario, clave, Timestamp.valueOf(ahora));
+    }
+
+    /**
+     * Borra hasta {@code limite} claves vencidas (por índice sobre vence).
+     *
+     * @return Filas borradas.
+     */
+    public int eliminarVencidas(LocalDateTime ahora, int limite) {
+        return jdbcTemplate.update("DELETE FROM clave_idempotencia WHERE vence <= ? LIMIT ?",
+                Timestamp.valueOf(ahora), limite);
+    }
+}
@@ -1,12 +1,24 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.Marca;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface MarcaRepository extends JpaRepository<Marca, Long> {
+
+    // Las categorías son lazy; donde la marca se devuelve como JSON se traen en la misma consulta
+    @Override
+    @EntityGraph(attributePaths = "categorias")
+    List<Marca> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "categorias")
+    Optional<Marca> findById(Long id);
+
     Optional<Marca> findByNombre(String nombre);
 }
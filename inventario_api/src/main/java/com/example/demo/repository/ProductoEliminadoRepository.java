@@ -0,0 +1,22 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.ProductoEliminado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductoEliminadoRepository extends JpaRepository<ProductoEliminado, Long> {
+
+    /**
+     * IDs de los productos eliminados después de una versión.
+     *
+     * @param desde Última versión que ya tiene el cliente.
+     * @return IDs en orden de versión.
+     */
+    @Query("SELECT e.productoId FROM ProductoEliminado e WHERE e.versionCambio > :desde ORDER BY e.versionCambio")
+    List<Long> findProductoIdByVersionCambioGreaterThan(@Param("desde") long desde);
+}
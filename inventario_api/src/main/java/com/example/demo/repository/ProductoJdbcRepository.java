@@ -0,0 +1,160 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.Producto;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Altas y modificaciones masivas de productos con JDBC (importación).
+ * <p>
+ * Igual que en {@link VentaJdbcRepository}: con IDENTITY Hibernate inserta
+ * de a una fila. Acá cada lote es un único batch, y los ids generados se leen
+ * del mismo batch. Las filas no pasan por el contexto de persistencia, así
+ * que un archivo grande no acumula entidades en memoria.
+ */
+@Repository
+public class ProductoJdbcRepository {
+
+    private static final String INSERT_PRODUCTO = "INSERT INTO producto (nombre, nombre_normalizado, precio, stock, "
+            + "precio_costo, stock_minimo, categoria_id, marca_id, version, version_cambio) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, 0)";
+
+    // Los campos opcionales vacíos conservan el valor actual. El stock no se
+    // toca: los productos existentes se ajustan con PATCH /productos/{id}/stock.
+    // version + 1: una edición abierta con If-Match sobre este producto falla.
+    private static final String UPDATE_PRODUCTO = "UPDATE producto SET nombre = ?, nombre_normalizado = ?, "
+            + "precio = ?, precio_costo = COALESCE(?, precio_costo), stock_minimo = COALESCE(?, stock_minimo), "
+            + "categoria_id = COALESCE(?, categoria_id), marca_id = COALESCE(?, marca_id), "
+            + "version = version + 1 WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductoJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserta los productos en un único batch y les asigna el id generado.
+     * Participa de la transacción activa de Spring, si la hay.
+     *
+     * @param productos Productos nuevos, con categoría y marca ya resueltas.
+     */
+    public void insertarLote(List<Producto> productos) {
+        KeyHolder ids = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(conexion -> conexion.prepareStatement(INSERT_PRODUCTO, new String[] { "id" }),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Producto producto = productos.get(i);
+                        ps.setString(1, producto.getNombre());
+                        ps.setString(2, Producto.normalizarNombre(producto.getNombre()));
+                        ps.setBigDecimal(3, producto.getPrecio());
+                        ps.setInt(4, producto.getStock());
+                        setDouble(ps, 5, producto.getPrecioCosto());
+                        setInteger(ps, 6, producto.getStockMinimo());
+                        setLong(ps, 7, producto.getCategoria() != null ? producto.getCategoria().getId() : null);
+                        setLong(ps, 8, producto.getMarca() != null ? producto.getMarca().getId() : null);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return productos.size();
+                    }
+                }, ids);
+
+        List<Map<String, Object>> generados = ids.getKeyList();
+        for (int i = 0; i < productos.size(); i++) {
+            Object id = generados.get(i).values().iterator().next();
+            productos.get(i).setId(((Number) id).longValue());
+        }
+    }
+
+    /**
+     * Modifica los productos en un único batch.
+     *
+     * @param productos Productos con id; precio de costo, stock mínimo,
+     *                  categoría y marca en null conservan el valor actual.
+     * @return Filas modificadas por cada producto, en el mismo orden: 0 si ya
+     *         no existe ({@code Statement.SUCCESS_NO_INFO} si el driver no lo
+     *         informa).
+     */
+    public int[] actualizarLote(List<Producto> productos) {
+        return jdbcTemplate.batchUpdate(UPDATE_PRODUCTO, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Producto producto = productos.get(i);
+                ps.setString(1, producto.getNombre());
+                ps.setString(2, Producto.normalizarNombre(producto.getNombre()));
+                ps.setBigDecimal(3, producto.getPrecio());
+                setDouble(ps, 4, producto.getPrecioCosto());
+                setInteger(ps, 5, producto.getStockMinimo());
+                setLong(ps, 6, producto.getCategoria() != null ? producto.getCategoria().getId() : null);
+                setLong(ps, 7, producto.getMarca() != null ? producto.getMarca().getId() : null);
+                ps.setLong(8, producto.getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return productos.size();
+            }
+        });
+    }
+
+    /**
+     * Completa {@code nombre_normalizado} en productos creados antes de que
+     * existiera la columna, de a un bloque.
+     *
+     * @param limite Productos por bloque.
+     * @return Productos completados (menos que el límite cuando no quedan).
+     */
+    public int normalizarNombresPendientes(int limite) {
+        List<Object[]> pendientes = jdbcTemplate.query(
+                "SELECT id, nombre FROM producto WHERE nombre_normalizado IS NULL ORDER BY id LIMIT ?",
+                (rs, fila) -> new Object[] { rs.getLong("id"), rs.getString("nombre") }, limite);
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> valores = new ArrayList<>(pendientes.size());
+        for (Object[] pendiente : pendientes) {
+            valores.add(new Object[] { Producto.normalizarNombre((String) pendiente[1]), pendiente[0] });
+        }
+        // Un producto renombrado mientras tanto ya tiene su nombre normalizado
+        jdbcTemplate.batchUpdate(
+                "UPDATE producto SET nombre_normalizado = ? WHERE id = ? AND nombre_normalizado IS NULL", valores);
+        return pendientes.size();
+    }
+
+    private static void setDouble(PreparedStatement ps, int indice, Double valor) throws SQLException {
+        if (valor != null) {
+            ps.setDouble(indice, valor);
+        } else {
+            ps.setNull(indice, Types.DOUBLE);
+        }
+    }
+
+    private static void setInteger(PreparedStatement ps, int indice, Integer valor) throws SQLException {
+        if (valor != null) {
+            ps.setInt(indice, valor);
+        } else {
+            ps.setNull(indice, Types.INTEGER);
+        }
+    }
+
+    private static void setLong(PreparedStatement ps, int indice, Long valor) throws SQLException {
+        if (valor != null) {
+            ps.setLong(indice, valor);
+        } else {
+            ps.setNull(indice, Types.BIGINT);
+        }
+    }
+}
@@ -1,9 +1,20 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.ProductoListado;
+import com.example.demo.dto.ProductoResumen;
 import com.example.demo.model.Producto;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repositorio de acceso a datos para la entidad Producto.
  * <p>
@@ -14,12 +25,93 @@ import org.springframework.stereotype.Repository;
  * - findAll()
  * - deleteById()
  * ... y soporte de paginación y ordenamiento.
+ * <p>
+ * JpaSpecificationExecutor habilita los filtros dinámicos de
+ * {@link ProductoSpecifications} y el scroll por keyset.
  */
 @Repository
-public interface ProductoRepository extends JpaRepository<Producto, Long> {
+public interface ProductoRepository extends JpaRepository<Producto, Long>, JpaSpecificationExecutor<Producto> {
     // Aquí se pueden definir métodos de consulta derivados (Query Methods)
     // Ej: List<Producto> findByNombre(String nombre);
 
+    /**
+     * Todo el catálogo con su categoría, su marca y las categorías de la
+     * marca en una sola consulta, porque el JSON de cada producto las
+     * incluye. Sin el entity graph, cada asociación lazy se resolvería con un
+     * SELECT aparte al serializar.
+     */
+    @Override
+    @EntityGraph(attributePaths = { "categoria", "marca", "marca.categorias" })
+    List<Producto> findAll();
+
+    /**
+     * Listado de sólo lectura: una fila plana por producto con id y nombre de
+     * la categoría y la marca, sin entidades administradas.
+     *
+     * @return Todos los productos, ordenados por ID.
+     */
+    @Query("SELECT new com.example.demo.dto.ProductoListado(p.id, p.nombre, p.precio, p.stock, p.precioCosto, "
+            + "p.stockMinimo, c.id, c.nombre, m.id, m.nombre, p.version, p.versionCambio) "
+            + "FROM Producto p LEFT JOIN p.categoria c LEFT JOIN p.marca m ORDER BY p.id")
+    List<ProductoListado> findAllListado();
+
+    /**
+     * Igual que {@link #findAllListado()} pero sólo para los IDs indicados.
+     *
+     * @param ids IDs de los productos.
+     * @return Filas de los productos existentes, en cualquier orden.
+     */
+    @Query("SELECT new com.example.demo.dto.ProductoListado(p.id, p.nombre, p.precio, p.stock, p.precioCosto, "
+            + "p.stockMinimo, c.id, c.nombre, m.id, m.nombre, p.version, p.versionCambio) "
+            + "FROM Producto p LEFT JOIN p.categoria c LEFT JOIN p.marca m WHERE p.id IN :ids")
+    List<ProductoListado> findListadoByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Fila del listado de un producto.
+     *
+     * @param id ID del producto.
+     * @return La fila, si el producto existe.
+     */
+    @Query("SELECT new com.example.demo.dto.ProductoListado(p.id, p.nombre, p.precio, p.stock, p.precioCosto, "
+            + "p.stockMinimo, c.id, c.nombre, m.id, m.nombre, p.version, p.versionCambio) "
+            + "FROM Producto p LEFT JOIN p.categoria c LEFT JOIN p.marca m WHERE p.id = :id")
+    Optional<ProductoListado> findListadoById(@Param("id") Long id);
+
+    /**
+     * Filas del listado de los productos que cambiaron después de una
+     * versión (usa el índice de {@code version_cambio}).
+     *
+     * @param desde Última versión que ya tiene el cliente.
+     * @return Productos con versión mayor, en orden de versión.
+     */
+    @Query("SELECT new com.example.demo.dto.ProductoListado(p.id, p.nombre, p.precio, p.stock, p.precioCosto, "
+            + "p.stockMinimo, c.id, c.nombre, m.id, m.nombre, p.version, p.versionCambio) "
+            + "FROM Producto p LEFT JOIN p.categoria c LEFT JOIN p.marca m "
+            + "WHERE p.versionCambio > :desde ORDER BY p.versionCambio, p.id")
+    List<ProductoListado> findListadoCambiadosDesde(@Param("desde") long desde);
+
+    /**
+     * Asigna la versión de cambio a varios productos con un solo UPDATE.
+     *
+     * @param ids     IDs de los productos modificados.
+     * @param version Versión tomada del registro de cambios.
+     * @return Filas actualizadas.
+     */
+    @Modifying
+    @Query("UPDATE Producto p SET p.versionCambio = :version WHERE p.id IN :ids")
+    int marcarVersion(@Param("ids") Collection<Long> ids, @Param("version") long version);
+
+    /**
+     * Asigna una versión a los productos que todavía no tienen (cargados por
+     * fuera del servicio, como los datos iniciales).
+     *
+     * @param version Versión tomada del registro de cambios.
+     * @return Filas actualizadas.
+     */
+    @Modifying
+    @Query("UPDATE Producto p SET p.versionCambio = :version WHERE p.versionCambio = 0")
+    int marcarVersionSinAsignar(@Param("version") long version);
+
     /**
      * Busca productos cuyo nombre contenga la cadena proporcionada,
      * ignorando mayúsculas y minúsculas.
@@ -27,5 +119,91 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
      * @param nombre Parte del nombre a buscar.
      * @return Lista de productos encontrados.
      */
+    @EntityGraph(attributePaths = { "categoria", "marca", "marca.categorias" })
     java.util.List<Producto> findByNombreContainingIgnoreCase(String nombre);
+
+    /**
+     * Descuenta stock de forma atómica, sólo si alcanza para la cantidad
+     * pedida. La condición se evalúa dentro del mismo UPDATE, así que dos
+     * ventas concurrentes nunca pueden dejar el stock negativo.
+     *
+     * @param id       ID del producto.
+     * @param cantidad Unidades a descontar (> 0).
+     * @return 1 si se descontó, 0 si el producto no existe o no hay stock.
+     */
+    @Modifying
+    @Query("UPDATE Producto p SET p.stock = p.stock - :cantidad WHERE p.id = :id AND p.stock >= :cantidad")
+    int descontarStock(@Param("id") Long id, @Param("cantidad") int cantidad);
+
+    /**
+     * Suma (o resta) unidades al stock de forma atómica, sin dejarlo
+     * negativo. No toca la versión de bloqueo optimista: un ajuste de stock
+     * no invalida una edición de nombre o precio en curso.
+     *
+     * @param id    ID del producto.
+     * @param delta Unidades a sumar; negativo para restar.
+     * @return 1 si se ajustó, 0 si el producto no existe o el stock quedaría negativo.
+     */
+    @Modifying
+    @Query("UPDATE Producto p SET p.stock = p.stock + :delta WHERE p.id = :id AND p.stock + :delta >= 0")
+    int ajustarStock(@Param("id") Long id, @Param("delta") int delta);
+
+    /**
+     * Proyección liviana del producto, sin categoría ni marca.
+     *
+     * @param id ID del producto.
+     * @return Resumen del producto, si existe.
+     */
+    @Query("SELECT new com.example.demo.dto.ProductoResumen(p.id, p.nombre, p.precio, p.precioCosto, p.stock, "
+            + "p.stockMinimo) FROM Producto p WHERE p.id = :id")
+    Optional<ProductoResumen> findResumenById(@Param("id") Long id);
+
+    /**
+     * Proyección liviana de varios productos en una sola consulta.
+     *
+     * @param ids IDs de los productos.
+     * @return Resúmenes de los productos existentes, en cualquier orden.
+     */
+    @Query("SELECT new com.example.demo.dto.ProductoResumen(p.id, p.nombre, p.precio, p.precioCosto, p.stock, "
+            + "p.stockMinimo) FROM Producto p WHERE p.id IN :ids")
+    List<ProductoResumen> findResumenByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Productos por nombre normalizado ({@link Producto#normalizarNombre}),
+     * en una sola consulta por índice. La usa la importación para decidir
+     * entre alta y modificación.
+     *
+     * @param nombres Nombres ya normalizados.
+     * @return Resúmenes de los productos con alguno de esos nombres.
+     */
+    @Query("SELECT new com.example.demo.dto.ProductoResumen(p.id, p.nombre, p.precio, p.precioCosto, p.stock, "
+            + "p.stockMinimo) FROM Producto p WHERE p.nombreNormalizado IN :nombres")
+    List<ProductoResumen> findResumenByNombreNormalizadoIn(@Param("nombres") Collection<String> nombres);
+
+    /**
+     * Producto con ese nombre normalizado (el de menor id si hay varios).
+     * Reemplaza al LIKE para resolver ventas históricas sin productoId.
+     *
+     * @param nombreNormalizado Nombre ya normalizado.
+     * @return El producto, si existe.
+     */
+    Optional<Producto> findFirstByNombreNormalizadoOrderByIdAsc(String nombreNormalizado);
+
+    /**
+     * Proyección liviana de todo el catálogo, para armar índices en memoria.
+     *
+     * @return Resúmenes de todos los productos.
+     */
+    @Query("SELECT new com.example.demo.dto.ProductoResumen(p.id, p.nombre, p.precio, p.precioCosto, p.stock, "
+            + "p.stockMinimo) FROM Producto p")
+    List<ProductoResumen> findAllResumen();
+
+    /**
+     * Productos con el stock en o por debajo de su mínimo.
+     *
+     * @return Resúmenes de los productos bajo el mínimo.
+     */
+    @Query("SELECT new com.example.demo.dto.ProductoResumen(p.id, p.nombre, p.precio, p.precioCosto, p.stock, "
+            + "p.stockMinimo) FROM Producto p WHERE p.stock <= p.stockMinimo")
+    List<ProductoResumen> findResumenBajoMinimo();
 }
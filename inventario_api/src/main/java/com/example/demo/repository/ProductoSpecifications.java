@@ -0,0 +1,57 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.FiltroProductos;
+import com.example.demo.model.Producto;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Especificaciones JPA para filtrar productos en el servidor.
+ * <p>
+ * Cada filtro nulo se traduce en una especificación vacía, de modo que
+ * sólo se agregan al WHERE las condiciones que realmente se pidieron.
+ */
+public final class ProductoSpecifications {
+
+    private ProductoSpecifications() {
+    }
+
+    public static Specification<Producto> conFiltro(FiltroProductos filtro) {
+        return Specification.where(deCategoria(filtro.getCategoriaId()))
+                .and(deMarca(filtro.getMarcaId()))
+                .and(filtro.isStockBajo() ? conStockBajo() : null)
+                .and(nombreContiene(filtro.getNombre()));
+    }
+
+    public static Specification<Producto> deCategoria(Long categoriaId) {
+        if (categoriaId == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("categoria").get("id"), categoriaId);
+    }
+
+    public static Specification<Producto> deMarca(Long marcaId) {
+        if (marcaId == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("marca").get("id"), marcaId);
+    }
+
+    /**
+     * Productos en o por debajo de su stock mínimo ({@code stock <= stockMinimo}).
+     */
+    public static Specification<Producto> conStockBajo() {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.<Integer>get("stock"), root.<Integer>get("stockMinimo"));
+    }
+
+    public static Specification<Producto> nombreContiene(String nombre) {
+        if (nombre == null || nombre.isBlank()) {
+            return null;
+        }
+        String escapado = nombre.trim().toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        String patron = "%" + escapado + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("nombre")), patron, '\\');
+    }
+}
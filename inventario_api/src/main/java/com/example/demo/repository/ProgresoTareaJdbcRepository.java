@@ -0,0 +1,54 @@
+package com.example.demo.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Avance de las tareas de fondo sobre la tabla {@code progreso_tarea}.
+ */
+@Repository
+public class ProgresoTareaJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProgresoTareaJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return Último id procesado por la tarea, o 0 si nunca corrió.
+     */
+    public long ultimoId(String tarea) {
+        List<Long> valores = jdbcTemplate.queryForList(
+                "SELECT ultimo_id FROM progreso_tarea WHERE nombre = ?", Long.class, tarea);
+        return valores.isEmpty() ? 0 : valores.get(0);
+    }
+
+    /**
+     * Registra hasta qué id llegó la tarea. Participa de la transacción
+     * activa: el avance se confirma junto con el bloque procesado.
+     */
+    public void guardar(String tarea, long ultimoId) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        int filas = jdbcTemplate.update(
+                "UPDATE progreso_tarea SET ultimo_id = ?, fecha_actualizacion = ? WHERE nombre = ?",
+                ultimoId, ahora, tarea);
+        if (filas == 0) {
+            try {
+                jdbcTemplate.update(
+                        "INSERT INTO progreso_tarea (nombre, ultimo_id, fecha_actualizacion) VALUES (?, ?, ?)",
+                        tarea, ultimoId, ahora);
+            } catch (DuplicateKeyException e) {
+                // La creó otra instancia al mismo tiempo
+                jdbcTemplate.update(
+                        "UPDATE progreso_tarea SET ultimo_id = ?, fecha_actualizacion = ? WHERE nombre = ?",
+                        ultimoId, ahora, tarea);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Versiones de cambio del catálogo sobre la tabla {@code registro_cambio}.
+ * <p>
+ * Cada versión es el id autoincremental de una fila insertada dentro de la
+ * transacción que hace el cambio. El AUTO_INCREMENT no deja nada bloqueado
+ * hasta el commit, así que las escrituras concurrentes toman versiones sin
+ * esperarse; a cambio pueden confirmar en otro orden, y una transacción
+ * revertida deja un hueco. Ver {@link com.example.demo.service.VersionesProducto#actual()}.
+ */
+@Repository
+public class RegistroCambioJdbcRepository {
+
+    /**
+     * Versión confirmada y la hora en que se tomó.
+     */
+    public record Cambio(long version, LocalDateTime registrado) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RegistroCambioJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Toma una versión nueva. Participa de la transacción activa: la versión
+     * se ve recién con el commit y, si la transacción se revierte, no se usa.
+     *
+     * @return Versión asignada.
+     */
+    public long registrar(LocalDateTime ahora) {
+        KeyHolder clave = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("INSERT INTO registro_cambio (registrado) VALUES (?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            ps.setTimestamp(1, Timestamp.valueOf(ahora));
+            return ps;
+        }, clave);
+        return clave.getKeyAs(Number.class).longValue();
+    }
+
+    /**
+     * Inserta una versión dada, para que la numeración siga desde ahí (en
+     * MySQL el AUTO_INCREMENT continúa después del mayor id).
+     */
+    public void registrar(long version, LocalDateTime ahora) {
+        jdbcTemplate.update("INSERT INTO registro_cambio (id, registrado) VALUES (?, ?)", version,
+                Timestamp.valueOf(ahora));
+    }
+
+    /**
+     * Hasta {@code limite} versiones confirmadas mayores a la indicada, en orden.
+     */
+    public List<Cambio> posterioresA(long version, int limite) {
+        return jdbcTemplate.query("SELECT id, registrado FROM registro_cambio WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, fila) -> new Cambio(rs.getLong("id"), rs.getTimestamp("registrado").toLocalDateTime()),
+                version, limite);
+    }
+
+    /**
+     * @return Mayor versión confirmada, o 0 si no hay ninguna.
+     */
+    public long ultima() {
+        Long ultima = jdbcTemplate.queryForObject("SELECT MAX(id) FROM registro_cambio", Long.class);
+        return ultima != null ? ultima : 0;
+    }
+
+    /**
+     * Borra hasta {@code limite} versiones menores a la indicada.
+     *
+     * @return Filas borradas.
+     */
+    public int eliminarAnterioresA(long version, int limite) {
+        return jdbcTemplate.update("DELETE FROM registro_cambio WHERE id < ? LIMIT ?", version, limite);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Estado global de las versiones de cambio del catálogo sobre la tabla
+ * {@code secuencia_cambios}: la marca hasta la que todos los cambios están
+ * confirmados y la base. Las versiones en sí las asigna
+ * {@link RegistroCambioJdbcRepository}.
+ */
+@Repository
+public class SecuenciaCambiosJdbcRepository {
+
+    public static final String PRODUCTOS = "producto";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SecuenciaCambiosJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Crea la fila de la secuencia si no existe.
+     */
+    public void inicializar(String nombre) {
+        Integer existe = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM secuencia_cambios WHERE nombre = ?", Integer.class, nombre);
+        if (existe == null || existe == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO secuencia_cambios (nombre, valor, base) VALUES (?, 0, 0)", nombre);
+            } catch (DuplicateKeyException e) {
+                // La creó otra instancia al mismo tiempo
+            }
+        }
+    }
+
+    /**
+     * @return Marca guardada: versión hasta la que todos los cambios están
+     *         confirmados o descartados.
+     */
+    public long actual(String nombre) {
+        return jdbcTemplate.queryForObject("SELECT valor FROM secuencia_cambios WHERE nombre = ?", Long.class,
+                nombre);
+    }
+
+    /**
+     * Guarda la marca si es mayor que la guardada (varias instancias pueden
+     * calcularla a la vez).
+     */
+    public void guardarMarca(String nombre, long marca) {
+        jdbcTemplate.update("UPDATE secuencia_cambios SET valor = GREATEST(valor, ?) WHERE nombre = ?", marca,
+                nombre);
+    }
+
+    /**
+     * @return Versión más antigua desde la que se pueden pedir cambios.
+     */
+    public long base(String nombre) {
+        return jdbcTemplate.queryForObject("SELECT base FROM secuencia_cambios WHERE nombre = ?", Long.class,
+                nombre);
+    }
+
+    /**
+     * Mueve la base a la versión indicada.
+     */
+    public void fijarBase(String nombre, long base) {
+        jdbcTemplate.update("UPDATE secuencia_cambios SET base = ? WHERE nombre = ?", base, nombre);
+    }
+}
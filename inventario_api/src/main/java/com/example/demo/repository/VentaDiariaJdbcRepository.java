@@ -0,0 +1,158 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.Venta;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escrituras del rollup venta_diaria con SQL directo: upsert acumulativo
+ * (INSERT ... ON DUPLICATE KEY UPDATE) y recálculo de rangos desde venta con
+ * INSERT ... SELECT. Participa de la transacción activa de Spring, si la hay.
+ */
+@Repository
+public class VentaDiariaJdbcRepository {
+
+    // Las ventas sin producto (históricas) se acumulan con producto_id = 0
+    private static final String ACUMULAR = "INSERT INTO venta_diaria (fecha, producto_id, nombre_producto, "
+            + "unidades, monto_total, costo_total, operaciones) VALUES (?, ?, ?, ?, ?, ?, 1) "
+            + "ON DUPLICATE KEY UPDATE nombre_producto = VALUES(nombre_producto), "
+            + "unidades = unidades + VALUES(unidades), monto_total = monto_total + VALUES(monto_total), "
+            + "costo_total = costo_total + VALUES(costo_total), operaciones = operaciones + 1";
+
+    private static final String DESCONTAR = "UPDATE venta_diaria SET unidades = unidades - ?, "
+            + "monto_total = monto_total - ?, costo_total = costo_total - ?, operaciones = operaciones - ? "
+            + "WHERE fecha = ? AND producto_id = ?";
+
+    private static final String BORRAR_VACIA = "DELETE FROM venta_diaria "
+            + "WHERE fecha = ? AND producto_id = ? AND operaciones <= 0";
+
+    private static final String BORRAR_RANGO = "DELETE FROM venta_diaria WHERE fecha >= ? AND fecha < ?";
+
+    private static final String BORRAR_FUERA_DE_RANGO = "DELETE FROM venta_diaria WHERE fecha < ? OR fecha >= ?";
+
+    private static final String RECALCULAR_RANGO = "INSERT INTO venta_diaria (fecha, producto_id, "
+            + "nombre_producto, unidades, monto_total, costo_total, operaciones) "
+            + "SELECT CAST(fecha_venta AS DATE), COALESCE(producto_id, 0), MAX(nombre_producto), "
+            + "SUM(cantidad_vendida), SUM(monto_total), SUM(COALESCE(costo_unitario, 0) * cantidad_vendida), COUNT(*) "
+            + "FROM venta WHERE fecha_venta >= ? AND fecha_venta < ? "
+            + "GROUP BY CAST(fecha_venta AS DATE), COALESCE(producto_id, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VentaDiariaJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Suma cada venta a la fila de su día y producto, creándola si no existe.
+     *
+     * @param ventas Ventas ya registradas (con fecha de venta cargada).
+     */
+    public void acumular(List<Venta> ventas) {
+        jdbcTemplate.batchUpdate(ACUMULAR, ventas, ventas.size(), (ps, venta) -> {
+            ps.setDate(1, Date.valueOf(venta.getFechaVenta().toLocalDate()));
+            ps.setLong(2, productoIdDe(venta));
+            ps.setString(3, venta.getNombreProducto());
+            ps.setLong(4, venta.getCantidadVendida());
+            ps.setDouble(5, venta.getMontoTotal());
+            ps.setDouble(6, costoDe(venta));
+        });
+    }
+
+    /**
+     * Resta una venta de su fila y borra la fila si quedó sin operaciones.
+     */
+    public void descontar(Venta venta) {
+        descontar(venta, productoIdDe(venta));
+    }
+
+    /**
+     * Igual que {@link #descontar(Venta)}, pero de la fila de otro producto
+     * (0 para las ventas sin producto).
+     */
+    public void descontar(Venta venta, long productoId) {
+        Date fecha = Date.valueOf(venta.getFechaVenta().toLocalDate());
+        jdbcTemplate.update(DESCONTAR, venta.getCantidadVendida(), venta.getMontoTotal(), costoDe(venta), 1,
+                fecha, productoId);
+        jdbcTemplate.update(BORRAR_VACIA, fecha, productoId);
+    }
+
+    /**
+     * Resta muchas ventas a la vez: las agrupa por día y producto, descuenta
+     * cada grupo con un único UPDATE (en un batch) y borra las filas que
+     * quedaron sin operaciones.
+     */
+    public void descontarLote(List<Venta> ventas) {
+        Map<List<Object>, double[]> grupos = new LinkedHashMap<>();
+        for (Venta venta : ventas) {
+            double[] totales = grupos.computeIfAbsent(
+                    List.of(Date.valueOf(venta.getFechaVenta().toLocalDate()), productoIdDe(venta)),
+                    clave -> new double[4]);
+            totales[0] += venta.getCantidadVendida();
+            totales[1] += venta.getMontoTotal();
+            totales[2] += costoDe(venta);
+            totales[3]++;
+        }
+        List<Object[]> descuentos = new ArrayList<>(grupos.size());
+        List<Object[]> filas = new ArrayList<>(grupos.size());
+        grupos.forEach((clave, totales) -> {
+            descuentos.add(new Object[] { (long) totales[0], totales[1], totales[2], (long) totales[3],
+                    clave.get(0), clave.get(1) });
+            filas.add(clave.toArray());
+        });
+        jdbcTemplate.batchUpdate(DESCONTAR, descuentos);
+        jdbcTemplate.batchUpdate(BORRAR_VACIA, filas);
+    }
+
+    /**
+     * Reemplaza las filas de los días [inicio, fin) por las calculadas desde
+     * la tabla venta.
+     *
+     * @return Cantidad de filas generadas.
+     */
+    public int recalcular(LocalDate inicio, LocalDate fin) {
+        jdbcTemplate.update(BORRAR_RANGO, Date.valueOf(inicio), Date.valueOf(fin));
+        return jdbcTemplate.update(RECALCULAR_RANGO, Timestamp.valueOf(inicio.atStartOfDay()),
+                Timestamp.valueOf(fin.atStartOfDay()));
+    }
+
+    /**
+     * Borra las filas de días fuera de [inicio, fin), que ya no tienen ventas.
+     */
+    public int borrarFueraDe(LocalDate inicio, LocalDate fin) {
+        return jdbcTemplate.update(BORRAR_FUERA_DE_RANGO, Date.valueOf(inicio), Date.valueOf(fin));
+    }
+
+    public void borrarTodo() {
+        jdbcTemplate.update("DELETE FROM venta_diaria");
+    }
+
+    /**
+     * Primer y último día con ventas, o null si no hay ventas.
+     */
+    public LocalDate[] rangoDeVentas() {
+        return jdbcTemplate.queryForObject("SELECT MIN(fecha_venta), MAX(fecha_venta) FROM venta", (rs, i) -> {
+            Timestamp min = rs.getTimestamp(1);
+            Timestamp max = rs.getTimestamp(2);
+            return min == null ? null
+                    : new LocalDate[] { min.toLocalDateTime().toLocalDate(), max.toLocalDateTime().toLocalDate() };
+        });
+    }
+
+    private static long productoIdDe(Venta venta) {
+        return venta.getProductoId() != null ? venta.getProductoId() : 0L;
+    }
+
+    private static double costoDe(Venta venta) {
+        double costoUnitario = venta.getCostoUnitario() != null ? venta.getCostoUnitario() : 0.0;
+        return costoUnitario * venta.getCantidadVendida();
+    }
+}
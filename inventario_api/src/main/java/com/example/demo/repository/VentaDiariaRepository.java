@@ -0,0 +1,41 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.ResumenVentas;
+import com.example.demo.model.VentaDiaria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Consultas de reportes sobre el rollup {@link VentaDiaria}. Todos los
+ * rangos son [inicio, fin) en días. Las escrituras van por
+ * {@link VentaDiariaJdbcRepository}.
+ */
+public interface VentaDiariaRepository extends JpaRepository<VentaDiaria, VentaDiaria.Clave> {
+
+    @Query("SELECT new com.example.demo.dto.ResumenVentas(null, SUM(d.montoTotal), SUM(d.costoTotal), "
+            + "SUM(d.unidades), SUM(d.operaciones)) "
+            + "FROM VentaDiaria d WHERE d.fecha >= :inicio AND d.fecha < :fin")
+    ResumenVentas resumir(@Param("inicio") LocalDate inicio, @Param("fin") LocalDate fin);
+
+    @Query("SELECT new com.example.demo.dto.ResumenVentas(d.fecha, SUM(d.montoTotal), SUM(d.costoTotal), "
+            + "SUM(d.unidades), SUM(d.operaciones)) "
+            + "FROM VentaDiaria d WHERE d.fecha >= :inicio AND d.fecha < :fin "
+            + "GROUP BY d.fecha ORDER BY d.fecha")
+    List<ResumenVentas> resumirPorDia(@Param("inicio") LocalDate inicio, @Param("fin") LocalDate fin);
+
+    /**
+     * Totales por mes.
+     *
+     * @return Filas [año, mes, monto, costo, unidades, operaciones] en orden
+     *         cronológico.
+     */
+    @Query("SELECT YEAR(d.fecha), MONTH(d.fecha), SUM(d.montoTotal), SUM(d.costoTotal), "
+            + "SUM(d.unidades), SUM(d.operaciones) "
+            + "FROM VentaDiaria d WHERE d.fecha >= :inicio AND d.fecha < :fin "
+            + "GROUP BY YEAR(d.fecha), MONTH(d.fecha) ORDER BY YEAR(d.fecha), MONTH(d.fecha)")
+    List<Object[]> resumirPorMes(@Param("inicio") LocalDate inicio, @Param("fin") LocalDate fin);
+}
@@ -0,0 +1,178 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.Venta;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Inserciones y actualizaciones masivas de ventas con JDBC.
+ * <p>
+ * Venta usa IDENTITY, y con esa estrategia Hibernate no puede agrupar los
+ * INSERT en un batch (necesita el id de cada fila). Acá se envían todas las
+ * filas en un único batch JDBC; los ids generados no se leen.
+ */
+@Repository
+public class VentaJdbcRepository {
+
+    private static final String INSERT_VENTA = "INSERT INTO venta (fecha_venta, nombre_producto, producto_id, "
+            + "cantidad_vendida, precio_unitario, monto_total, costo_unitario) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String COLUMNAS = "SELECT id, fecha_venta, nombre_producto, producto_id, "
+            + "cantidad_vendida, precio_unitario, monto_total, costo_unitario FROM venta ";
+
+    // Ids por sentencia en las consultas y borrados con IN (...)
+    private static final int IDS_POR_SENTENCIA = 500;
+
+    private static final RowMapper<Venta> VENTA = (rs, fila) -> {
+        Venta venta = new Venta(rs.getString("nombre_producto"), rs.getInt("cantidad_vendida"),
+                rs.getDouble("precio_unitario"), rs.getDouble("monto_total"));
+        venta.setId(rs.getLong("id"));
+        venta.setFechaVenta(rs.getTimestamp("fecha_venta").toLocalDateTime());
+        long productoId = rs.getLong("producto_id");
+        venta.setProductoId(rs.wasNull() ? null : productoId);
+        double costo = rs.getDouble("costo_unitario");
+        venta.setCostoUnitario(rs.wasNull() ? null : costo);
+        return venta;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VentaJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserta las ventas en un único batch. Participa de la transacción
+     * activa de Spring, si la hay.
+     *
+     * @param ventas Ventas a insertar; deben traer la fecha de venta cargada.
+     */
+    public void insertarLote(List<Venta> ventas) {
+        jdbcTemplate.batchUpdate(INSERT_VENTA, ventas, ventas.size(), (ps, venta) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(venta.getFechaVenta()));
+            ps.setString(2, venta.getNombreProducto());
+            if (venta.getProductoId() != null) {
+                ps.setLong(3, venta.getProductoId());
+            } else {
+                ps.setNull(3, Types.BIGINT);
+            }
+            ps.setInt(4, venta.getCantidadVendida());
+            ps.setDouble(5, venta.getPrecioUnitario());
+            ps.setDouble(6, venta.getMontoTotal());
+            if (venta.getCostoUnitario() != null) {
+                ps.setDouble(7, venta.getCostoUnitario());
+            } else {
+                ps.setNull(7, Types.DOUBLE);
+            }
+        });
+    }
+
+    /**
+     * @return Mayor id de venta, o 0 si no hay ventas.
+     */
+    public long maximoId() {
+        Long maximo = jdbcTemplate.queryForObject("SELECT MAX(id) FROM venta", Long.class);
+        return maximo != null ? maximo : 0;
+    }
+
+    /**
+     * Ventas sin productoId en el rango de ids (desde, hasta]. El rango acota
+     * lo que recorre cada consulta aunque casi todas las ventas tengan
+     * producto.
+     */
+    public List<Venta> buscarSinProducto(long desdeExclusivo, long hastaInclusivo) {
+        return jdbcTemplate.query(COLUMNAS + "WHERE id > ? AND id <= ? AND producto_id IS NULL ORDER BY id", VENTA,
+                desdeExclusivo, hastaInclusivo);
+    }
+
+    /**
+     * Asigna el productoId a ventas que no lo tenían, en un único batch.
+     *
+     * @param ventas Ventas con id y el productoId a asignar.
+     * @return Filas modificadas por venta, en el mismo orden: 0 si la venta
+     *         ya no existe o ya tenía producto.
+     */
+    public int[] asignarProducto(List<Venta> ventas) {
+        return jdbcTemplate.batchUpdate("UPDATE venta SET producto_id = ? WHERE id = ? AND producto_id IS NULL",
+                ventas, ventas.size(), (ps, venta) -> {
+                    ps.setLong(1, venta.getProductoId());
+                    ps.setLong(2, venta.getId());
+                })[0];
+    }
+
+    /**
+     * Lee las ventas con esos ids y bloquea sus filas hasta el fin de la
+     * transacción (SELECT ... FOR UPDATE), en bloques de
+     * {@value #IDS_POR_SENTENCIA} ids.
+     *
+     * @return Ventas existentes, en orden de id; las que no existen se omiten.
+     */
+    public List<Venta> bloquearPorIds(Collection<Long> ids) {
+        List<Venta> ventas = new ArrayList<>(ids.size());
+        for (List<Long> bloque : bloques(ids)) {
+            ventas.addAll(jdbcTemplate.query(COLUMNAS + "WHERE id IN (" + marcadores(bloque.size())
+                    + ") ORDER BY id FOR UPDATE", VENTA, bloque.toArray()));
+        }
+        return ventas;
+    }
+
+    /**
+     * Cantidad de ventas del rango [inicio, fin), sin bloquearlas. Usa el
+     * índice sobre fecha_venta.
+     */
+    public long contarPorRango(LocalDateTime inicio, LocalDateTime fin) {
+        Long cantidad = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM venta WHERE fecha_venta >= ? AND fecha_venta < ?", Long.class,
+                Timestamp.valueOf(inicio), Timestamp.valueOf(fin));
+        return cantidad != null ? cantidad : 0;
+    }
+
+    /**
+     * Lee las ventas del rango [inicio, fin) y bloquea sus filas hasta el fin
+     * de la transacción. Usa el índice sobre fecha_venta.
+     */
+    public List<Venta> bloquearPorRango(LocalDateTime inicio, LocalDateTime fin) {
+        return jdbcTemplate.query(COLUMNAS + "WHERE fecha_venta >= ? AND fecha_venta < ? ORDER BY id FOR UPDATE",
+                VENTA, Timestamp.valueOf(inicio), Timestamp.valueOf(fin));
+    }
+
+    /**
+     * Borra las ventas con un DELETE ... WHERE id IN (...) por cada bloque de
+     * {@value #IDS_POR_SENTENCIA} ids.
+     *
+     * @return Ventas borradas.
+     */
+    public int eliminar(Collection<Long> ids) {
+        int borradas = 0;
+        for (List<Long> bloque : bloques(ids)) {
+            borradas += jdbcTemplate.update("DELETE FROM venta WHERE id IN (" + marcadores(bloque.size()) + ")",
+                    bloque.toArray());
+        }
+        return borradas;
+    }
+
+    private static List<List<Long>> bloques(Collection<Long> ids) {
+        List<Long> todos = List.copyOf(ids);
+        if (todos.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<Long>> bloques = new ArrayList<>();
+        for (int i = 0; i < todos.size(); i += IDS_POR_SENTENCIA) {
+            bloques.add(todos.subList(i, Math.min(i + IDS_POR_SENTENCIA, todos.size())));
+        }
+        return bloques;
+    }
+
+    private static String marcadores(int cantidad) {
+        return String.join(", ", Collections.nCopies(cantidad, "?"));
+    }
+}
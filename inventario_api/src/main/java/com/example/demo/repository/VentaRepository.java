@@ -1,7 +1,62 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.ResumenVentas;
+import com.example.demo.dto.VentaListado;
 import com.example.demo.model.Venta;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 public interface VentaRepository extends JpaRepository<Venta, Long> {
+
+    /**
+     * Busca la venta bloqueando su fila hasta el fin de la transacción. Al
+     * eliminar, así se lee el productoId que dejó la asignación de ventas
+     * históricas si terminó antes, o se la frena hasta el commit si no.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM Venta v WHERE v.id = :id")
+    Optional<Venta> findByIdParaEliminar(@Param("id") Long id);
+
+    /**
+     * Historial completo como filas inmutables, sin pasar por el contexto de
+     * persistencia.
+     */
+    @Query("SELECT new com.example.demo.dto.VentaListado(v.id, v.fechaVenta, v.nombreProducto, v.productoId, "
+            + "v.cantidadVendida, v.precioUnitario, v.montoTotal, v.costoUnitario) FROM Venta v ORDER BY v.id")
+    List<VentaListado> findAllListado();
+
+    /**
+     * Totales de ventas en el rango [inicio, fin). Usa el índice sobre
+     * fecha_venta; el costo se calcula con el costo unitario histórico.
+     */
+    @Query("SELECT new com.example.demo.dto.ResumenVentas(null, SUM(v.montoTotal), "
+            + "SUM(COALESCE(v.costoUnitario, 0) * v.cantidadVendida), SUM(v.cantidadVendida), COUNT(v)) "
+            + "FROM Venta v WHERE v.fechaVenta >= :inicio AND v.fechaVenta < :fin")
+    ResumenVentas resumir(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    /**
+     * Igual que {@link #resumir} pero agrupado por día de venta.
+     */
+    @Query("SELECT new com.example.demo.dto.ResumenVentas(CAST(v.fechaVenta AS LocalDate), SUM(v.montoTotal), "
+            + "SUM(COALESCE(v.costoUnitario, 0) * v.cantidadVendida), SUM(v.cantidadVendida), COUNT(v)) "
+            + "FROM Venta v WHERE v.fechaVenta >= :inicio AND v.fechaVenta < :fin "
+            + "GROUP BY CAST(v.fechaVenta AS LocalDate) ORDER BY CAST(v.fechaVenta AS LocalDate)")
+    List<ResumenVentas> resumirPorDia(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    /**
+     * Igual que {@link #resumir} pero agrupado por producto, de mayor a menor
+     * monto vendido.
+     */
+    @Query("SELECT new com.example.demo.dto.ResumenVentas(v.nombreProducto, SUM(v.montoTotal), "
+            + "SUM(COALESCE(v.costoUnitario, 0) * v.cantidadVendida), SUM(v.cantidadVendida), COUNT(v)) "
+            + "FROM Venta v WHERE v.fechaVenta >= :inicio AND v.fechaVenta < :fin "
+            + "GROUP BY v.nombreProducto ORDER BY SUM(v.montoTotal) DESC")
+    List<ResumenVentas> resumirPorProducto(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
 }
@@ -0,0 +1,393 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AlertaStock;
+import com.example.demo.dto.ProductoResumen;
+import com.example.demo.model.Producto;
+import com.example.demo.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Índice en memoria de los productos con {@code stock <= stockMinimo},
+ * ordenado del más crítico al menos crítico, y suscripciones SSE que reciben
+ * un evento cada vez que un producto cruza el mínimo en cualquier sentido.
+ * <p>
+ * Se carga completo al arrancar y después se actualiza con cada venta,
+ * edición, baja y reposición por eliminación de venta. Dentro de una
+ * transacción los cambios se aplican recién después del commit, así una
+ * venta revertida no genera alertas.
+ * <p>
+ * El índice es local a cada instancia: los cambios hechos por otra se ven al
+ * recargarlo completo, cada {@code app.alertas.recarga}. La recarga publica
+ * los productos que cruzaron el mínimo desde la carga anterior, así los
+ * suscriptores de esta instancia también reciben esas alertas.
+ * <p>
+ * Eventos del stream: {@code inicial} (lista completa al suscribirse),
+ * {@code bajo_minimo} (el producto entró al índice) y {@code repuesto} (salió
+ * del índice, por reposición o porque se eliminó el producto). Como en
+ * {@link CanalCambiosProducto}, cada suscripción tiene su propio buffer
+ * acotado ({@code app.alertas.sse.buffer}): si un cliente lento lo llena, se
+ * descartan sus eventos pendientes y se le vuelve a enviar {@code inicial}
+ * con la lista vigente.
+ */
+@Component
+public class AlertasStock {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertasStock.class);
+
+    // Primero lo que está más por debajo del mínimo
+    private static final Comparator<AlertaStock> POR_CRITICIDAD = Comparator
+            .comparingInt((AlertaStock a) -> a.getStock() - a.getStockMinimo())
+            .thenComparingInt(AlertaStock::getStock)
+            .thenComparing(AlertaStock::getProductoId);
+
+    private final ProductoRepository productoRepository;
+    private final int capacidadBuffer;
+    private final long timeoutSseMillis;
+    private final Duration recarga;
+
+    // Se reemplazan juntos en cada recarga, con el lock de escritura tomado
+    private volatile Map<Long, AlertaStock> porProducto = new ConcurrentHashMap<>();
+    private volatile NavigableSet<AlertaStock> ordenadas = new ConcurrentSkipListSet<>(POR_CRITICIDAD);
+    private final ReentrantLock escritura = new ReentrantLock();
+    // Una recarga a la vez (la periódica y la de los datos iniciales)
+    private final ReentrantLock cargas = new ReentrantLock();
+    // Estado que dejaron los cambios aplicados durante una recarga (null = sin
+    // alerta): pueden no estar en lo que leyó la consulta
+    private Map<Long, AlertaStock> pendientes;
+    private ScheduledExecutorService recargador;
+
+    // Registrar la suscripción y encolar no se intercalan: ningún evento llega antes de "inicial"
+    private final ReentrantLock publicacion = new ReentrantLock();
+    private final Map<SseEmitter, Suscripcion> suscripciones = new ConcurrentHashMap<>();
+    // Los envíos SSE no corren en el hilo de la venta y hay uno en curso como
+    // máximo por cliente: un cliente lento sólo ocupa su propio hilo
+    private final ExecutorService envios = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger numero = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread hilo = new Thread(r, "alertas-stock-sse-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        }
+    });
+
+    public AlertasStock(ProductoRepository productoRepository,
+            @Value("${app.alertas.sse.buffer:256}") int capacidadBuffer,
+            @Value("${app.alertas.sse.timeout:30m}") Duration timeoutSse,
+            @Value("${app.alertas.recarga:1m}") Duration recarga) {
+        this.productoRepository = productoRepository;
+        this.capacidadBuffer = capacidadBuffer;
+        this.timeoutSseMillis = timeoutSse.toMillis();
+        this.recarga = recarga;
+    }
+
+    /**
+     * Carga el índice al arrancar y en cada recarga periódica. Arma un índice
+     * nuevo y lo reemplaza de una vez: mientras tanto se sigue respondiendo
+     * con el anterior.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        cargas.lock();
+        try {
+            escritura.lock();
+            try {
+                pendientes = new HashMap<>();
+            } finally {
+                escritura.unlock();
+            }
+            List<ProductoResumen> productos;
+            try {
+                productos = productoRepository.findResumenBajoMinimo();
+            } catch (RuntimeException e) {
+                escritura.lock();
+                try {
+                    pendientes = null;
+                } finally {
+                    escritura.unlock();
+                }
+                throw e;
+            }
+
+            Map<Long, AlertaStock> nuevas = new ConcurrentHashMap<>();
+            for (ProductoResumen producto : productos) {
+                nuevas.put(producto.getId(), new AlertaStock(producto.getId(), producto.getNombre(),
+                        producto.getStock(), producto.getStockMinimo()));
+            }
+            Map<Long, AlertaStock> anteriores;
+            escritura.lock();
+            try {
+                pendientes.forEach((id, alerta) -> {
+                    if (alerta != null) {
+                        nuevas.put(id, alerta);
+                    } else {
+                        nuevas.remove(id);
+                    }
+                });
+                pendientes = null;
+                anteriores = porProducto;
+                NavigableSet<AlertaStock> ordenadasNuevas = new ConcurrentSkipListSet<>(POR_CRITICIDAD);
+                ordenadasNuevas.addAll(nuevas.values());
+                porProducto = nuevas;
+                ordenadas = ordenadasNuevas;
+            } finally {
+                escritura.unlock();
+            }
+
+            // Lo que cambió desde la carga anterior sin pasar por esta instancia
+            nuevas.forEach((id, alerta) -> {
+                if (!anteriores.containsKey(id)) {
+                    publicar("bajo_minimo", alerta);
+                }
+            });
+            anteriores.forEach((id, alerta) -> {
+                if (!nuevas.containsKey(id)) {
+                    publicar("repuesto", alerta);
+                }
+            });
+            log.info("Índice de alertas de stock cargado: {} productos bajo el mínimo", nuevas.size());
+        } finally {
+            cargas.unlock();
+        }
+    }
+
+    /**
+     * Arranca la recarga periódica, para ver los cambios hechos por otras
+     * instancias.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        recargador = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("alertas-stock-recarga").daemon().factory());
+        recargador.scheduleWithFixedDelay(this::recargar, recarga.toMillis(), recarga.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void recargar() {
+        try {
+            cargar();
+        } catch (RuntimeException e) {
+            // Se sigue con el índice anterior hasta la próxima recarga
+            log.warn("No se pudo recargar el índice de alertas de stock", e);
+        }
+    }
+
+    /**
+     * Alertas vigentes, de la más crítica a la menos crítica.
+     */
+    public List<AlertaStock> obtenerAlertas() {
+        return new ArrayList<>(ordenadas);
+    }
+
+    /**
+     * Registra el stock actual de un producto (después del commit, si hay
+     * una transacción activa).
+     */
+    public void actualizar(Long id, String nombre, Integer stock, Integer stockMinimo) {
+        Transacciones.despuesDelCommit(() -> {
+            AlertaStock anterior;
+            AlertaStock actual;
+            escritura.lock();
+            try {
+                anterior = porProducto.get(id);
+                actual = aplicar(id, nombre, stock, stockMinimo);
+                if (pendientes != null) {
+                    pendientes.put(id, actual);
+                }
+            } finally {
+                escritura.unlock();
+            }
+            if (anterior == null && actual != null) {
+                publicar("bajo_minimo", actual);
+            } else if (anterior != null && actual == null) {
+                publicar("repuesto", new AlertaStock(id, nombre, stock != null ? stock : 0,
+                        stockMinimo != null ? stockMinimo : 0));
+            }
+        });
+    }
+
+    public void actualizar(Producto producto) {
+        actualizar(producto.getId(), producto.getNombre(), producto.getStock(), producto.getStockMinimo());
+    }
+
+    public void actualizar(ProductoResumen producto) {
+        actualizar(producto.getId(), producto.getNombre(), producto.getStock(), producto.getStockMinimo());
+    }
+
+    /**
+     * Saca del índice un producto eliminado.
+     */
+    public void eliminar(Long id) {
+        Transacciones.despuesDelCommit(() -> {
+            AlertaStock anterior;
+            escritura.lock();
+            try {
+                anterior = porProducto.remove(id);
+                if (anterior != null) {
+                    ordenadas.remove(anterior);
+                }
+                if (pendientes != null) {
+                    pendientes.put(id, null);
+                }
+            } finally {
+                escritura.unlock();
+            }
+            if (anterior != null) {
+                publicar("repuesto", anterior);
+            }
+        });
+    }
+
+    /**
+     * Abre una suscripción SSE y le envía las alertas vigentes. El cliente
+     * (EventSource) se reconecta solo al vencer
+     * {@code app.alertas.sse.timeout}.
+     */
+    public SseEmitter suscribir() {
+        SseEmitter emitter = new SseEmitter(timeoutSseMillis);
+        Suscripcion suscripcion = new Suscripcion(emitter, capacidadBuffer);
+        emitter.onCompletion(() -> suscripciones.remove(emitter));
+        emitter.onTimeout(() -> suscripciones.remove(emitter));
+        emitter.onError(e -> suscripciones.remove(emitter));
+        publicacion.lock();
+        try {
+            suscripcion.encolar(new Evento("inicial", obtenerAlertas()));
+            suscripciones.put(emitter, suscripcion);
+        } finally {
+            publicacion.unlock();
+        }
+        return emitter;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (recargador != null) {
+            recargador.shutdownNow();
+        }
+        envios.shutdownNow();
+        suscripciones.keySet().forEach(SseEmitter::complete);
+    }
+
+    /**
+     * Aplica el nuevo stock al índice. Debe llamarse con el lock tomado.
+     *
+     * @return La alerta vigente, o null si el producto no está bajo el mínimo.
+     */
+    private AlertaStock aplicar(Long id, String nombre, Integer stock, Integer stockMinimo) {
+        AlertaStock anterior = porProducto.remove(id);
+        if (anterior != null) {
+            ordenadas.remove(anterior);
+        }
+        if (stock == null || stockMinimo == null || stock > stockMinimo) {
+            return null;
+        }
+        AlertaStock actual = new AlertaStock(id, nombre, stock, stockMinimo);
+        porProducto.put(id, actual);
+        ordenadas.add(actual);
+        return actual;
+    }
+
+    private void publicar(String nombre, AlertaStock alerta) {
+        if (suscripciones.isEmpty()) {
+            return;
+        }
+        Evento evento = new Evento(nombre, alerta);
+        publicacion.lock();
+        try {
+            for (Suscripcion suscripcion : suscripciones.values()) {
+                suscripcion.encolar(evento);
+            }
+        } finally {
+            publicacion.unlock();
+        }
+    }
+
+    private record Evento(String nombre, Object datos) {
+    }
+
+    private final class Suscripcion {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Evento> buffer;
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private volatile boolean desbordado;
+
+        Suscripcion(SseEmitter emitter, int capacidad) {
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(capacidad);
+        }
+
+        void encolar(Evento evento) {
+            if (!buffer.offer(evento)) {
+                // El cliente no da abasto: lo pendiente ya no sirve, recibe la lista de nuevo
+                desbordado = true;
+                buffer.clear();
+            }
+            programarEnvio();
+        }
+
+        private void programarEnvio() {
+            if (enviando.compareAndSet(false, true)) {
+                envios.execute(this::enviarPendientes);
+            }
+        }
+
+        private void enviarPendientes() {
+            try {
+                while (true) {
+                    if (desbordado) {
+                        desbordado = false;
+                        buffer.clear();
+                        emitter.send(SseEmitter.event().name("inicial").data(obtenerAlertas()));
+                    }
+                    Evento evento = buffer.poll();
+                    if (evento == null) {
+                        break;
+                    }
+                    emitter.send(SseEmitter.event().name(evento.nombre()).data(evento.datos()));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado
+                suscripciones.remove(emitter);
+                buffer.clear();
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                enviando.set(false);
+            }
+            // Lo encolado entre el último poll y el set(false) no debe quedar esperando
+            if ((!buffer.isEmpty() || desbordado) && suscripciones.containsKey(emitter)) {
+                programarEnvio();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductoResumen;
+import com.example.demo.model.Producto;
+import com.example.demo.model.Venta;
+import com.example.demo.repository.ProductoJdbcRepository;
+import com.example.demo.repository.ProductoRepository;
+import com.example.demo.repository.ProgresoTareaJdbcRepository;
+import com.example.demo.repository.VentaJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tarea de fondo que completa el productoId de las ventas históricas que
+ * sólo guardaban el nombre del producto.
+ * <p>
+ * Cada venta se vincula al producto con el mismo nombre normalizado (por
+ * índice) y su importe pasa, en el rollup venta_diaria, de la fila "sin
+ * producto" a la de su producto. Las ventas cuyo producto ya no existe
+ * quedan como estaban.
+ * <p>
+ * Recorre la tabla venta por rangos de {@code app.ventas-historicas.rango}
+ * ids, cada uno en una transacción corta, y guarda el avance en
+ * progreso_tarea junto con el rango: si la aplicación se reinicia, sigue
+ * donde quedó. Entre rango y rango espera lo que tardó el último (como mínimo
+ * {@code app.ventas-historicas.pausa}), así usa la base a lo sumo la mitad
+ * del tiempo y se frena sola cuando la base está cargada.
+ * <p>
+ * Antes completa {@code producto.nombre_normalizado} en los productos
+ * anteriores a esa columna.
+ */
+@Component
+public class AsignacionProductoVentas {
+
+    static final String TAREA = "venta_producto_id";
+    private static final int PRODUCTOS_POR_BLOQUE = 500;
+
+    private static final Logger log = LoggerFactory.getLogger(AsignacionProductoVentas.class);
+
+    private final VentaJdbcRepository ventaJdbcRepository;
+    private final ProductoJdbcRepository productoJdbcRepository;
+    private final ProductoRepository productoRepository;
+    private final VentaDiariaService ventaDiariaService;
+    private final ProgresoTareaJdbcRepository progreso;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitada;
+    private final int rango;
+    private final long pausaMinimaNanos;
+
+    // Una sola corrida a la vez por instancia
+    private final ReentrantLock ejecucion = new ReentrantLock();
+    private volatile boolean detenida;
+    private volatile Thread hilo;
+
+    public AsignacionProductoVentas(VentaJdbcRepository ventaJdbcRepository,
+            ProductoJdbcRepository productoJdbcRepository, ProductoRepository productoRepository,
+            VentaDiariaService ventaDiariaService, ProgresoTareaJdbcRepository progreso,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.ventas-historicas.habilitada:true}") boolean habilitada,
+            @Value("${app.ventas-historicas.rango:1000}") int rango,
+            @Value("${app.ventas-historicas.pausa:200ms}") Duration pausa) {
+        this.ventaJdbcRepository = ventaJdbcRepository;
+        this.productoJdbcRepository = productoJdbcRepository;
+        this.productoRepository = productoRepository;
+        this.ventaDiariaService = ventaDiariaService;
+        this.progreso = progreso;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.habilitada = habilitada;
+        this.rango = rango;
+        this.pausaMinimaNanos = pausa.toNanos();
+    }
+
+    /**
+     * Arranca la tarea en un hilo propio cuando la aplicación terminó de
+     * arrancar (después de los datos iniciales).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+        Thread tarea = new Thread(() -> {
+            try {
+                ejecutar();
+            } catch (RuntimeException e) {
+                log.error("Falló la asignación de producto a ventas históricas; se retoma al reiniciar", e);
+            }
+        }, "asignacion-producto-ventas");
+        tarea.setDaemon(true);
+        hilo = tarea;
+        tarea.start();
+    }
+
+    @PreDestroy
+    public void detener() {
+        detenida = true;
+        Thread tarea = hilo;
+        if (tarea != null) {
+            tarea.interrupt();
+        }
+    }
+
+    /**
+     * Procesa todas las ventas pendientes hasta la última existente al
+     * empezar. Si ya hay una corrida en curso, no hace nada.
+     *
+     * @return Ventas vinculadas a su producto.
+     */
+    public long ejecutar() {
+        if (!ejecucion.tryLock()) {
+            return 0;
+        }
+        try {
+            int normalizados;
+            do {
+                normalizados = transactionTemplate
+                        .execute(estado -> productoJdbcRepository.normalizarNombresPendientes(PRODUCTOS_POR_BLOQUE));
+            } while (normalizados == PRODUCTOS_POR_BLOQUE && !detenida);
+
+            long hasta = ventaJdbcRepository.maximoId();
+            long desde = progreso.ultimoId(TAREA);
+            if (desde >= hasta) {
+                return 0;
+            }
+            log.info("Asignando producto a ventas históricas: ids {} a {}", desde + 1, hasta);
+            long comienzo = System.nanoTime();
+            long vinculadas = 0;
+            while (desde < hasta && !detenida) {
+                long inicioBloque = desde;
+                long finBloque = Math.min(desde + rango, hasta);
+                long comienzoBloque = System.nanoTime();
+                vinculadas += transactionTemplate.execute(estado -> procesarRango(inicioBloque, finBloque));
+                desde = finBloque;
+                if (desde < hasta) {
+                    esperar(System.nanoTime() - comienzoBloque);
+                }
+            }
+            log.info("Asignación de producto a ventas históricas {}: {} ventas vinculadas ({} ms)",
+                    desde >= hasta ? "terminada" : "interrumpida", vinculadas,
+                    (System.nanoTime() - comienzo) / 1_000_000);
+            return vinculadas;
+        } finally {
+            ejecucion.unlock();
+        }
+    }
+
+    private int procesarRango(long desdeExclusivo, long hastaInclusivo) {
+        List<Venta> ventas = ventaJdbcRepository.buscarSinProducto(desdeExclusivo, hastaInclusivo);
+        List<Venta> vinculadas = new ArrayList<>();
+        if (!ventas.isEmpty()) {
+            Set<String> nombres = new HashSet<>();
+            for (Venta venta : ventas) {
+                nombres.add(Producto.normalizarNombre(venta.getNombreProducto()));
+            }
+            Map<String, Long> productos = new HashMap<>();
+            for (ProductoResumen producto : productoRepository.findResumenByNombreNormalizadoIn(nombres)) {
+                productos.merge(Producto.normalizarNombre(producto.getNombre()), producto.getId(), Math::min);
+            }
+
+            List<Venta> asignadas = new ArrayList<>();
+            for (Venta venta : ventas) {
+                Long productoId = productos.get(Producto.normalizarNombre(venta.getNombreProducto()));
+                if (productoId != null) {
+                    venta.setProductoId(productoId);
+                    asignadas.add(venta);
+                }
+            }
+            if (!asignadas.isEmpty()) {
+                int[] filas = ventaJdbcRepository.asignarProducto(asignadas);
+                for (int i = 0; i < filas.length; i++) {
+                    // 0: la venta se eliminó mientras tanto
+                    if (filas[i] != 0) {
+                        vinculadas.add(asignadas.get(i));
+                    }
+                }
+                ventaDiariaService.asignarProducto(vinculadas);
+            }
+        }
+        progreso.guardar(TAREA, hastaInclusivo);
+        return vinculadas.size();
+    }
+
+    private void esperar(long duracionBloqueNanos) {
+        try {
+            Thread.sleep(Duration.ofNanos(Math.max(pausaMinimaNanos, duracionBloqueNanos)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            detenida = true;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CambioProducto;
+import com.example.demo.dto.ProductoResumen;
+import com.example.demo.model.Producto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stream SSE de cambios de stock y precio de los productos, para que las
+ * terminales actualicen su lista sin volver a descargar el catálogo.
+ * <p>
+ * Los cambios se publican después del commit, así una transacción revertida
+ * nunca llega a los clientes. Cada suscripción tiene su propio buffer
+ * acotado ({@code app.cambios.sse.buffer}): publicar nunca bloquea, y si un
+ * cliente lento llena su buffer se descartan sus cambios pendientes y recibe
+ * un evento {@code resync} para que recargue el listado una vez.
+ * <p>
+ * Eventos: {@code conectado} (última versión publicada, al suscribirse),
+ * {@code cambios} (arreglo de {@link CambioProducto}) y {@code resync}. La
+ * versión de cada cambio es la {@code versionCambio} del producto; los
+ * cambios de distintas transacciones pueden llegar desordenados, así que el
+ * cliente aplica uno sólo si es más nuevo que lo que tiene de ese producto.
+ * Para ponerse al día después de una reconexión o un {@code resync} está
+ * GET /productos/cambios?desde={version}.
+ */
+@Component
+public class CanalCambiosProducto {
+
+    // Cambios que se agrupan como máximo en un mismo evento
+    private static final int MAXIMO_POR_EVENTO = 100;
+
+    private final int capacidadBuffer;
+    private final long timeoutSseMillis;
+
+    // Mayor versión publicada, para el evento inicial
+    private final AtomicLong ultimaVersion = new AtomicLong();
+    // Registrar la suscripción y encolar no se intercalan: ningún cambio se pierde ni llega antes de "conectado"
+    private final ReentrantLock publicacion = new ReentrantLock();
+    private final Map<SseEmitter, Suscripcion> suscripciones = new ConcurrentHashMap<>();
+    // Un envío en curso como máximo por cliente; un cliente lento sólo ocupa su propio hilo
+    private final ExecutorService envios = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger numero = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread hilo = new Thread(r, "cambios-sse-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        }
+    });
+
+    public CanalCambiosProducto(@Value("${app.cambios.sse.buffer:256}") int capacidadBuffer,
+            @Value("${app.cambios.sse.timeout:30m}") Duration timeoutSse) {
+        this.capacidadBuffer = capacidadBuffer;
+        this.timeoutSseMillis = timeoutSse.toMillis();
+    }
+
+    /**
+     * Publica el stock y el precio actuales de un producto (después del
+     * commit, si hay una transacción activa).
+     *
+     * @param version Versión de cambio asignada por {@link VersionesProducto}.
+     */
+    public void publicar(Long id, Integer stock, BigDecimal precio, long version) {
+        Transacciones.despuesDelCommit(() -> difundir(new CambioProducto(id, stock, precio, version, false)));
+    }
+
+    public void publicar(Producto producto) {
+        publicar(producto.getId(), producto.getStock(), producto.getPrecio(), producto.getVersionCambio());
+    }
+
+    public void publicar(ProductoResumen producto, long version) {
+        publicar(producto.getId(), producto.getStock(), producto.getPrecio(), version);
+    }
+
+    /**
+     * Publica la baja de un producto.
+     */
+    public void publicarEliminado(Long id, long version) {
+        Transacciones.despuesDelCommit(() -> difundir(new CambioProducto(id, null, null, version, true)));
+    }
+
+    /**
+     * Abre una suscripción. El primer evento ({@code conectado}) lleva la
+     * última versión publicada por esta instancia.
+     */
+    public SseEmitter suscribir() {
+        SseEmitter emitter = new SseEmitter(timeoutSseMillis);
+        Suscripcion suscripcion = new Suscripcion(emitter, capacidadBuffer);
+        emitter.onCompletion(() -> suscripciones.remove(emitter));
+        emitter.onTimeout(() -> suscripciones.remove(emitter));
+        emitter.onError(e -> suscripciones.remove(emitter));
+        publicacion.lock();
+        try {
+            // Todavía no se devolvió el emitter: el envío queda en memoria hasta que arranque la respuesta
+            emitter.send(SseEmitter.event().name("conectado").data(ultimaVersion.get()));
+            suscripciones.put(emitter, suscripcion);
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        } finally {
+            publicacion.unlock();
+        }
+        return emitter;
+    }
+
+    /**
+     * Cantidad de clientes conectados.
+     */
+    public int suscriptores() {
+        return suscripciones.size();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        envios.shutdownNow();
+        suscripciones.keySet().forEach(SseEmitter::complete);
+    }
+
+    private void difundir(CambioProducto cambio) {
+        publicacion.lock();
+        try {
+            ultimaVersion.accumulateAndGet(cambio.getVersion(), Math::max);
+            for (Suscripcion suscripcion : suscripciones.values()) {
+                suscripcion.encolar(cambio);
+            }
+        } finally {
+            publicacion.unlock();
+        }
+    }
+
+    private final class Suscripcion {
+        private final SseEmitter emitter;
+        private final BlockingQueue<CambioProducto> buffer;
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private volatile boolean desbordado;
+
+        Suscripcion(SseEmitter emitter, int capacidad) {
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(capacidad);
+        }
+
+        void encolar(CambioProducto cambio) {
+            if (!buffer.offer(cambio)) {
+                // El cliente no da abasto: lo pendiente ya no sirve, que recargue
+                desbordado = true;
+                buffer.clear();
+            }
+            programarEnvio();
+        }
+
+        private void programarEnvio() {
+            if (enviando.compareAndSet(false, true)) {
+                envios.execute(this::enviarPendientes);
+            }
+        }
+
+        private void enviarPendientes() {
+            try {
+                List<CambioProducto> lote = new ArrayList<>(MAXIMO_POR_EVENTO);
+                while (true) {
+                    if (desbordado) {
+                        desbordado = false;
+                        buffer.clear();
+                        emitter.send(SseEmitter.event().name("resync").data(ultimaVersion.get()));
+                    }
+                    buffer.drainTo(lote, MAXIMO_POR_EVENTO);
+                    if (lote.isEmpty()) {
+                        break;
+                    }
+                    emitter.send(SseEmitter.event().name("cambios").data(lote));
+                    lote = new ArrayList<>(MAXIMO_POR_EVENTO);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado
+                suscripciones.remove(emitter);
+                buffer.clear();
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                enviando.set(false);
+            }
+            // Lo encolado entre el último drainTo y el set(false) no debe quedar esperando
+            if ((!buffer.isEmpty() || desbordado) && suscripciones.containsKey(emitter)) {
+                programarEnvio();
+            }
+        }
+    }
+}
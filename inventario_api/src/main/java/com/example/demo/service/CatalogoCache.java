@@ -0,0 +1,166 @@
+package com.example.demo.service;
+
+import com.example.demo.config.ReplicaRoutingDataSource;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria de los listados completos del catálogo (productos,
+ * categorías y marcas), ya serializados a JSON.
+ * <p>
+ * Cada colección tiene un número de versión que los servicios incrementan al
+ * escribir ({@link #invalidar}). Mientras la versión no cambie, el listado se
+ * sirve sin consultar la base ni volver a serializar. El ETag es un hash del
+ * contenido, así que es el mismo en todas las instancias para los mismos
+ * datos.
+ * <p>
+ * La caché es local a cada instancia: las escrituras hechas por otra
+ * instancia se ven a más tardar al vencer {@code app.catalogo.cache.ttl}.
+ * <p>
+ * Cuando la entrada vence, sólo un pedido por colección recarga; los demás
+ * esperan en un {@link ReentrantLock} (no {@code synchronized}, para no
+ * clavar hilos virtuales) y reciben el mismo resultado.
+ */
+@Component
+public class CatalogoCache {
+
+    public enum Coleccion {
+        PRODUCTOS, CATEGORIAS, MARCAS
+    }
+
+    /**
+     * Listado serializado junto con su ETag (entre comillas, listo para el
+     * header).
+     */
+    public static final class Respuesta {
+        private final byte[] cuerpo;
+        private final String etag;
+
+        private Respuesta(byte[] cuerpo, String etag) {
+            this.cuerpo = cuerpo;
+            this.etag = etag;
+        }
+
+        public byte[] getCuerpo() {
+            return cuerpo;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    private static final class Entrada {
+        private final long version;
+        private final long cargadaEnNanos;
+        private final Respuesta respuesta;
+
+        private Entrada(long version, long cargadaEnNanos, Respuesta respuesta) {
+            this.version = version;
+            this.cargadaEnNanos = cargadaEnNanos;
+            this.respuesta = respuesta;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    private final Map<Coleccion, AtomicLong> versiones = new EnumMap<>(Coleccion.class);
+    private final Map<Coleccion, Entrada> entradas = new ConcurrentHashMap<>();
+    private final Map<Coleccion, ReentrantLock> cargas = new EnumMap<>(Coleccion.class);
+
+    public CatalogoCache(ObjectMapper objectMapper, @Value("${app.catalogo.cache.ttl:5m}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.ttlNanos = ttl.toNanos();
+        for (Coleccion coleccion : Coleccion.values()) {
+            versiones.put(coleccion, new AtomicLong());
+            cargas.put(coleccion, new ReentrantLock());
+        }
+    }
+
+    /**
+     * Devuelve el listado de la colección, cargándolo sólo si cambió desde la
+     * última vez.
+     *
+     * @param coleccion Colección pedida.
+     * @param cargador  Consulta a la base, usada sólo si la caché está vencida.
+     * @return El JSON y su ETag.
+     */
+    public Respuesta obtener(Coleccion coleccion, Supplier<?> cargador) {
+        // La versión se lee antes de cargar: si una escritura llega durante la
+        // carga, la entrada queda con la versión vieja y el próximo pedido recarga.
+        long version = versiones.get(coleccion).get();
+        Entrada entrada = entradas.get(coleccion);
+        if (vigente(entrada, version)) {
+            return entrada.respuesta;
+        }
+
+        ReentrantLock carga = cargas.get(coleccion);
+        carga.lock();
+        try {
+            // Otro pedido pudo haberla recargado mientras se esperaba el lock
+            version = versiones.get(coleccion).get();
+            entrada = entradas.get(coleccion);
+            if (vigente(entrada, version)) {
+                return entrada.respuesta;
+            }
+            long ahora = System.nanoTime();
+            // De la primaria: una réplica atrasada dejaría el listado anterior
+            // a la escritura cacheado con la versión nueva
+            byte[] cuerpo = serializar(ReplicaRoutingDataSource.leerEnPrimaria(cargador));
+            Respuesta respuesta = new Respuesta(cuerpo, calcularEtag(cuerpo));
+            entradas.put(coleccion, new Entrada(version, ahora, respuesta));
+            return respuesta;
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    private boolean vigente(Entrada entrada, long version) {
+        return entrada != null && entrada.version == version && System.nanoTime() - entrada.cargadaEnNanos < ttlNanos;
+    }
+
+    /**
+     * Marca las colecciones como modificadas. Si hay una transacción activa,
+     * la invalidación se aplica recién después del commit; así ningún pedido
+     * concurrente vuelve a cachear los datos anteriores con la versión nueva.
+     */
+    public void invalidar(Coleccion... colecciones) {
+        Transacciones.despuesDelCommit(() -> incrementarVersiones(colecciones));
+    }
+
+    private void incrementarVersiones(Coleccion... colecciones) {
+        for (Coleccion coleccion : colecciones) {
+            versiones.get(coleccion).incrementAndGet();
+        }
+    }
+
+    private byte[] serializar(Object datos) {
+        try {
+            return objectMapper.writeValueAsBytes(datos);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el catálogo", e);
+        }
+    }
+
+    private static String calcularEtag(byte[] cuerpo) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(cuerpo);
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
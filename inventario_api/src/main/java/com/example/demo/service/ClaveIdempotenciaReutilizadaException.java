@@ -0,0 +1,13 @@
+package com.example.demo.service;
+
+/**
+ * Se usó una {@code Idempotency-Key} que ya corresponde a otro pedido
+ * (otra operación, producto, cantidad o carrito). Los controladores la
+ * responden con 422.
+ */
+public class ClaveIdempotenciaReutilizadaException extends RuntimeException {
+
+    public ClaveIdempotenciaReutilizadaException(String mensaje) {
+        super(mensaje);
+    }
+}
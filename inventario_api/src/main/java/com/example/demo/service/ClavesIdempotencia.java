@@ -0,0 +1,252 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.ClaveIdempotenciaJdbcRepository;
+import com.example.demo.repository.ClaveIdempotenciaJdbcRepository.Registro;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Ventas idempotentes con el header {@code Idempotency-Key}: si un terminal
+ * reintenta un pedido que ya se procesó (por ejemplo, porque se cortó la
+ * conexión antes de recibir la respuesta), se devuelve la respuesta original
+ * sin volver a vender.
+ * <p>
+ * La clave se reserva en {@code clave_idempotencia} al empezar la transacción
+ * de la venta, antes de tocar el stock, y al final se le guarda la respuesta:
+ * o se confirman las dos o ninguna. Si dos reintentos llegan a la vez (a esta
+ * u otra instancia), el segundo espera en el INSERT de la clave a que termine
+ * el primero, sin haber descontado nada; si el primero se confirmó, falla por
+ * clave duplicada y devuelve su respuesta (aunque el primero se haya llevado
+ * el último stock). Los pedidos que fallan (sin stock, producto inexistente)
+ * no dejan nada guardado: no tuvieron efecto y el reintento se procesa de
+ * nuevo.
+ * <p>
+ * Las claves son de cada usuario: la misma clave enviada por otro usuario es
+ * otro pedido, y nunca recibe la respuesta guardada para el primero.
+ * <p>
+ * Delante de la tabla hay una caché en memoria acotada a
+ * {@code app.idempotencia.cache.max-size} claves. Las claves vencen a las
+ * {@code app.idempotencia.ttl}; cada entrada de la caché vence en el mismo
+ * momento que su fila ({@code vence}), así las dos nunca difieren. Las
+ * vencidas se borran de la tabla cada {@code app.idempotencia.limpieza}.
+ */
+@Component
+public class ClavesIdempotencia {
+
+    public static final int LONGITUD_MAXIMA = 100;
+    private static final int BORRADOS_POR_LOTE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(ClavesIdempotencia.class);
+
+    /**
+     * Cuerpo JSON a devolver y si es la repetición de un pedido anterior.
+     */
+    public record Respuesta(String cuerpo, boolean repetida) {
+    }
+
+    private final ClaveIdempotenciaJdbcRepository repositorio;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<ClaveUsuario, Registro> cache;
+    private final Duration ttl;
+    private final Duration limpieza;
+    private ScheduledExecutorService limpiador;
+
+    public ClavesIdempotencia(ClaveIdempotenciaJdbcRepository repositorio,
+            PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+            @Value("${app.idempotencia.ttl:24h}") Duration ttl,
+            @Value("${app.idempotencia.cache.max-size:10000}") long maxSize,
+            @Value("${app.idempotencia.limpieza:10m}") Duration limpieza) {
+        this.repositorio = repositorio;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.limpieza = limpieza;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new HastaVencer())
+                .build();
+    }
+
+    /**
+     * Ejecuta el pedido una sola vez por usuario y clave.
+     *
+     * @param usuario   Usuario autenticado que envía el pedido.
+     * @param clave     Valor del header {@code Idempotency-Key}.
+     * @param operacion Método y ruta del pedido (p. ej. "PUT /productos/5/vender").
+     * @param pedido    Parámetros o cuerpo del pedido; junto con la operación
+     *                  forman la huella que se compara en los reintentos.
+     * @param accion    La venta. Corre dentro de la transacción de la clave.
+     * @return La respuesta de la primera ejecución exitosa.
+     * @throws IllegalArgumentException      si la clave está vacía o es muy larga.
+     * @throws ClaveIdempotenciaReutilizadaException si la clave ya se usó con
+     *                                       otro pedido.
+     */
+    public Respuesta ejecutar(String usuario, String clave, String operacion, Object pedido,
+            Supplier<?> accion) {
+        if (clave.isBlank() || clave.length() > LONGITUD_MAXIMA) {
+            throw new IllegalArgumentException(
+                    "Idempotency-Key inválida: debe tener entre 1 y " + LONGITUD_MAXIMA + " caracteres");
+        }
+        ClaveUsuario id = new ClaveUsuario(usuario, clave);
+        String huella = huella(operacion, pedido);
+
+        Optional<Registro> anterior = buscar(id);
+        if (anterior.isPresent()) {
+            return repetir(id, anterior.get(), huella);
+        }
+        try {
+            return new Respuesta(ejecutarYGuardar(id, huella, accion), false);
+        } catch (DuplicateKeyException e) {
+            // Otro pedido con la misma clave se confirmó mientras este esperaba
+            anterior = repositorio.buscar(usuario, clave, LocalDateTime.now());
+            if (anterior.isPresent()) {
+                return repetir(id, anterior.get(), huella);
+            }
+            // La fila que chocó estaba vencida: se libera la clave y se reintenta una vez
+            repositorio.eliminarVencida(usuario, clave, LocalDateTime.now());
+            return new Respuesta(ejecutarYGuardar(id, huella, accion), false);
+        }
+    }
+
+    private String ejecutarYGuardar(ClaveUsuario id, String huella, Supplier<?> accion) {
+        LocalDateTime[] vence = new LocalDateTime[1];
+        String cuerpo = transactionTemplate.execute(estado -> {
+            // Primero la clave: un reintento simultáneo espera acá y no en el stock
+            LocalDateTime ahora = LocalDateTime.now();
+            vence[0] = ahora.plus(ttl);
+            repositorio.reservar(id.usuario(), id.clave(), huella, ahora, vence[0]);
+            String json = json(accion.get());
+            repositorio.guardarRespuesta(id.usuario(), id.clave(), json);
+            return json;
+        });
+        cache.put(id, new Registro(huella, cuerpo, vence[0]));
+        return cuerpo;
+    }
+
+    private Optional<Registro> buscar(ClaveUsuario id) {
+        Registro registro = cache.getIfPresent(id);
+        if (registro != null) {
+            return Optional.of(registro);
+        }
+        Optional<Registro> guardado = repositorio.buscar(id.usuario(), id.clave(), LocalDateTime.now());
+        guardado.ifPresent(r -> cache.put(id, r));
+        return guardado;
+    }
+
+    private Respuesta repetir(ClaveUsuario id, Registro registro, String huella) {
+        if (!registro.huella().equals(huella)) {
+            throw new ClaveIdempotenciaReutilizadaException(
+                    "La Idempotency-Key " + id.clave() + " ya se usó con otro pedido");
+        }
+        return new Respuesta(registro.respuesta(), true);
+    }
+
+    private String huella(String operacion, Object pedido) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(operacion.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) '\n');
+            sha.update(objectMapper.writeValueAsBytes(pedido));
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo calcular la huella del pedido", e);
+        }
+    }
+
+    private String json(Object resultado) {
+        try {
+            return objectMapper.writeValueAsString(resultado);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la respuesta", e);
+        }
+    }
+
+    /**
+     * Arranca la limpieza periódica de claves vencidas.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        limpiador = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("idempotencia-limpieza").daemon().factory());
+        limpiador.scheduleWithFixedDelay(this::eliminarVencidas, limpieza.toMillis(), limpieza.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (limpiador != null) {
+            limpiador.shutdownNow();
+        }
+    }
+
+    /**
+     * Borra las claves vencidas de a lotes, cada lote en su propia sentencia.
+     *
+     * @return Claves borradas.
+     */
+    public long eliminarVencidas() {
+        long total = 0;
+        try {
+            LocalDateTime ahora = LocalDateTime.now();
+            int borradas;
+            do {
+                borradas = repositorio.eliminarVencidas(ahora, BORRADOS_POR_LOTE);
+                total += borradas;
+            } while (borradas == BORRADOS_POR_LOTE && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron borrar las claves de idempotencia vencidas", e);
+        }
+        return total;
+    }
+
+    private record ClaveUsuario(String usuario, String clave) {
+    }
+
+    /**
+     * Cada entrada vive hasta el {@code vence} de su fila, sin importar
+     * cuándo se cargó en la caché.
+     */
+    private static final class HastaVencer implements Expiry<ClaveUsuario, Registro> {
+
+        @Override
+        public long expireAfterCreate(ClaveUsuario id, Registro registro, long ahoraNanos) {
+            return Math.max(0, Duration.between(LocalDateTime.now(), registro.vence()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(ClaveUsuario id, Registro registro, long ahoraNanos, long restanteNanos) {
+            return expireAfterCreate(id, registro, ahoraNanos);
+        }
+
+        @Override
+        public long expireAfterRead(ClaveUsuario id, Registro registro, long ahoraNanos, long restanteNanos) {
+            return restanteNanos;
+        }
+    }
+}
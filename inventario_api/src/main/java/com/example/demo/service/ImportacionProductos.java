@@ -0,0 +1,550 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ErrorImportacion;
+import com.example.demo.dto.ProductoResumen;
+import com.example.demo.dto.ResultadoImportacion;
+import com.example.demo.model.Categoria;
+import com.example.demo.model.Marca;
+import com.example.demo.model.Producto;
+import com.example.demo.repository.CategoriaRepository;
+import com.example.demo.repository.MarcaRepository;
+import com.example.demo.repository.ProductoJdbcRepository;
+import com.example.demo.repository.ProductoRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Importación masiva de productos desde un CSV o NDJSON (POST /productos/importar).
+ * <p>
+ * El cuerpo se lee en streaming, línea por línea, y las filas se guardan en
+ * lotes de {@code app.importacion.lote}, cada uno en su propia transacción y
+ * con un único batch JDBC de altas y otro de modificaciones
+ * ({@link ProductoJdbcRepository}). En memoria sólo están el lote en curso,
+ * las categorías y marcas (cargadas una vez al empezar) y como mucho
+ * {@code app.importacion.max-errores} errores, así que el consumo no crece
+ * con el tamaño del archivo.
+ * <p>
+ * Columnas (cabecera del CSV o claves de cada objeto NDJSON; sin distinguir
+ * mayúsculas, acentos ni guiones bajos): {@code nombre} y {@code precio}
+ * obligatorias; {@code id}, {@code stock}, {@code precioCosto},
+ * {@code stockMinimo}, {@code categoria} y {@code marca} (por nombre)
+ * opcionales.
+ * <p>
+ * Una fila con {@code id} modifica ese producto; sin {@code id}, modifica el
+ * producto con el mismo nombre o, si no hay, crea uno nuevo. En las
+ * modificaciones el stock no se toma del archivo (se ajusta con
+ * PATCH /productos/{id}/stock) y los campos opcionales vacíos conservan su
+ * valor. Cada lote confirmado recibe una versión de la secuencia de cambios
+ * y se refleja en el índice de nombres, las alertas de stock y el canal de
+ * cambios, igual que un alta o edición individual.
+ */
+@Service
+public class ImportacionProductos {
+
+    public enum Formato {
+        CSV, NDJSON
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionProductos.class);
+
+    private static final Set<String> COLUMNAS = Set.of("id", "nombre", "precio", "stock", "preciocosto",
+            "stockminimo", "categoria", "marca");
+    private static final int PRECISION_PRECIO = 10;
+    private static final int ESCALA_PRECIO = 2;
+    private static final int LARGO_NOMBRE = 255;
+
+    private final ProductoRepository productoRepository;
+    private final ProductoJdbcRepository productoJdbcRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final MarcaRepository marcaRepository;
+    private final VersionesProducto versiones;
+    private final IndiceNombresProducto indiceNombres;
+    private final AlertasStock alertasStock;
+    private final CanalCambiosProducto canalCambios;
+    private final CatalogoCache catalogoCache;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoLote;
+    private final int maxErrores;
+
+    public ImportacionProductos(ProductoRepository productoRepository, ProductoJdbcRepository productoJdbcRepository,
+            CategoriaRepository categoriaRepository, MarcaRepository marcaRepository, VersionesProducto versiones,
+            IndiceNombresProducto indiceNombres, AlertasStock alertasStock, CanalCambiosProducto canalCambios,
+            CatalogoCache catalogoCache, ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+            @Value("${app.importacion.lote:500}") int tamanoLote,
+            @Value("${app.importacion.max-errores:1000}") int maxErrores) {
+        this.productoRepository = productoRepository;
+        this.productoJdbcRepository = productoJdbcRepository;
+        this.categoriaRepository = categoriaRepository;
+        this.marcaRepository = marcaRepository;
+        this.versiones = versiones;
+        this.indiceNombres = indiceNombres;
+        this.alertasStock = alertasStock;
+        this.canalCambios = canalCambios;
+        this.catalogoCache = catalogoCache;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanoLote = tamanoLote;
+        this.maxErrores = maxErrores;
+    }
+
+    /**
+     * Importa los productos del cuerpo. Los lotes ya confirmados quedan
+     * guardados aunque la lectura falle después.
+     *
+     * @param cuerpo  Contenido en UTF-8.
+     * @param formato CSV (con cabecera; separador coma o punto y coma) o
+     *                NDJSON (un objeto JSON por línea).
+     * @return Cantidades procesadas y errores por fila.
+     * @throws IllegalArgumentException si falta la cabecera del CSV o tiene
+     *         columnas desconocidas.
+     * @throws IOException              si no se puede leer el cuerpo.
+     */
+    public ResultadoImportacion importar(InputStream cuerpo, Formato formato) throws IOException {
+        long comienzo = System.nanoTime();
+        Importacion importacion = new Importacion(
+                porNombre(categoriaRepository.findAll(), Categoria::getNombre),
+                porNombre(marcaRepository.findAll(), Marca::getNombre));
+
+        BufferedReader lector = new BufferedReader(new InputStreamReader(cuerpo, StandardCharsets.UTF_8));
+        CabeceraCsv cabecera = null;
+        long numeroLinea = 0;
+        String linea;
+        while ((linea = lector.readLine()) != null) {
+            numeroLinea++;
+            if (numeroLinea == 1 && linea.startsWith("\uFEFF")) {
+                linea = linea.substring(1);
+            }
+            if (linea.isBlank()) {
+                continue;
+            }
+            if (formato == Formato.CSV && cabecera == null) {
+                cabecera = CabeceraCsv.leer(linea);
+                continue;
+            }
+            importacion.filas++;
+            Producto producto;
+            try {
+                Map<String, String> campos = formato == Formato.CSV ? cabecera.campos(linea) : camposJson(linea);
+                producto = convertir(campos, importacion);
+            } catch (IllegalArgumentException e) {
+                importacion.error(numeroLinea, e.getMessage());
+                continue;
+            }
+            importacion.agregar(numeroLinea, producto);
+        }
+        if (formato == Formato.CSV && cabecera == null) {
+            throw new IllegalArgumentException("El archivo está vacío: falta la cabecera");
+        }
+        importacion.procesarLote();
+        // Los errores de base aparecen al guardar cada lote, después de los de formato
+        importacion.errores.sort(Comparator.comparingLong(ErrorImportacion::getLinea));
+
+        ResultadoImportacion resultado = new ResultadoImportacion(importacion.filas, importacion.creados,
+                importacion.actualizados, importacion.conError, importacion.errores,
+                (System.nanoTime() - comienzo) / 1_000_000);
+        log.info("Importación de productos: {} filas, {} creados, {} actualizados, {} con error ({} ms)",
+                resultado.getFilas(), resultado.getCreados(), resultado.getActualizados(), resultado.getConError(),
+                resultado.getMilisegundos());
+        return resultado;
+    }
+
+    private Map<String, String> camposJson(String linea) {
+        JsonNode objeto;
+        try {
+            objeto = objectMapper.readTree(linea);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON inválido: " + e.getOriginalMessage());
+        }
+        if (objeto == null || !objeto.isObject()) {
+            throw new IllegalArgumentException("Se esperaba un objeto JSON por línea");
+        }
+        Map<String, String> campos = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> atributos = objeto.fields();
+        while (atributos.hasNext()) {
+            Map.Entry<String, JsonNode> atributo = atributos.next();
+            String columna = columna(atributo.getKey());
+            if (!atributo.getValue().isNull()) {
+                campos.put(columna, atributo.getValue().asText());
+            }
+        }
+        return campos;
+    }
+
+    private static Producto convertir(Map<String, String> campos, Importacion importacion) {
+        String nombre = texto(campos, "nombre");
+        if (nombre == null) {
+            throw new IllegalArgumentException("Falta el nombre");
+        }
+        if (nombre.length() > LARGO_NOMBRE) {
+            throw new IllegalArgumentException("El nombre supera los " + LARGO_NOMBRE + " caracteres");
+        }
+        String precioTexto = texto(campos, "precio");
+        if (precioTexto == null) {
+            throw new IllegalArgumentException("Falta el precio");
+        }
+
+        Producto producto = new Producto(nombre, precio(precioTexto), 0);
+        String id = texto(campos, "id");
+        if (id != null) {
+            producto.setId(entero(id, "id", Long::parseLong));
+        }
+        String stock = texto(campos, "stock");
+        if (stock != null) {
+            producto.setStock(entero(stock, "stock", Integer::parseInt));
+            exigirNoNegativo(producto.getStock(), "stock");
+        }
+        String precioCosto = texto(campos, "preciocosto");
+        if (precioCosto != null) {
+            producto.setPrecioCosto(decimal(precioCosto, "precioCosto").doubleValue());
+            exigirNoNegativo(producto.getPrecioCosto(), "precioCosto");
+        }
+        String stockMinimo = texto(campos, "stockminimo");
+        // Vacío: en un alta queda el valor por defecto; en una modificación, el actual
+        producto.setStockMinimo(stockMinimo != null ? entero(stockMinimo, "stockMinimo", Integer::parseInt) : null);
+        if (producto.getStockMinimo() != null) {
+            exigirNoNegativo(producto.getStockMinimo(), "stockMinimo");
+        }
+        String categoria = texto(campos, "categoria");
+        if (categoria != null) {
+            producto.setCategoria(buscar(importacion.categorias, categoria, "Categoría"));
+        }
+        String marca = texto(campos, "marca");
+        if (marca != null) {
+            producto.setMarca(buscar(importacion.marcas, marca, "Marca"));
+        }
+        return producto;
+    }
+
+    /**
+     * Guarda un lote en la transacción actual.
+     */
+    private LoteGuardado guardarLote(List<Fila> filas) {
+        LoteGuardado guardado = new LoteGuardado();
+
+        // Filas sin id: se busca un producto con el mismo nombre normalizado
+        Set<String> nombres = new HashSet<>();
+        for (Fila fila : filas) {
+            if (fila.producto.getId() == null) {
+                nombres.add(Producto.normalizarNombre(fila.producto.getNombre()));
+            }
+        }
+        Map<String, Long> existentes = new HashMap<>();
+        if (!nombres.isEmpty()) {
+            for (ProductoResumen existente : productoRepository.findResumenByNombreNormalizadoIn(nombres)) {
+                existentes.merge(IndiceNombresProducto.normalizar(existente.getNombre()), existente.getId(),
+                        Math::min);
+            }
+        }
+
+        List<Producto> altas = new ArrayList<>();
+        List<Fila> modificaciones = new ArrayList<>();
+        for (Fila fila : filas) {
+            Producto producto = fila.producto;
+            if (producto.getId() == null) {
+                producto.setId(existentes.get(IndiceNombresProducto.normalizar(producto.getNombre())));
+            }
+            if (producto.getId() != null) {
+                modificaciones.add(fila);
+            } else {
+                if (producto.getStockMinimo() == null) {
+                    producto.setStockMinimo(new Producto().getStockMinimo());
+                }
+                altas.add(producto);
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(filas.size());
+        if (!altas.isEmpty()) {
+            productoJdbcRepository.insertarLote(altas);
+            for (Producto alta : altas) {
+                ids.add(alta.getId());
+            }
+            guardado.creados = altas.size();
+        }
+        if (!modificaciones.isEmpty()) {
+            List<Producto> productos = new ArrayList<>(modificaciones.size());
+            for (Fila fila : modificaciones) {
+                productos.add(fila.producto);
+            }
+            int[] filasModificadas = productoJdbcRepository.actualizarLote(productos);
+            for (int i = 0; i < filasModificadas.length; i++) {
+                Producto producto = productos.get(i);
+                if (filasModificadas[i] == 0) {
+                    guardado.errores.add(new ErrorImportacion(modificaciones.get(i).linea,
+                            "Producto no encontrado con ID: " + producto.getId()));
+                } else {
+                    ids.add(producto.getId());
+                    guardado.actualizados++;
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return guardado;
+        }
+
+        guardado.productos = productoRepository.findResumenByIdIn(ids);
+        // Último: la versión se confirma enseguida
+        long version = versiones.registrar(ids);
+        for (ProductoResumen producto : guardado.productos) {
+            indiceNombres.actualizar(producto.getId(), producto.getNombre());
+            alertasStock.actualizar(producto);
+            canalCambios.publicar(producto, version);
+        }
+        catalogoCache.invalidar(CatalogoCache.Coleccion.PRODUCTOS);
+        return guardado;
+    }
+
+    private static String columna(String nombre) {
+        String columna = IndiceNombresProducto.normalizar(nombre).replace(" ", "");
+        if (!COLUMNAS.contains(columna)) {
+            throw new IllegalArgumentException("Columna desconocida: " + nombre);
+        }
+        return columna;
+    }
+
+    private static String texto(Map<String, String> campos, String columna) {
+        String valor = campos.get(columna);
+        if (valor == null) {
+            return null;
+        }
+        valor = valor.trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    private static BigDecimal precio(String texto) {
+        BigDecimal precio = decimal(texto, "precio");
+        exigirNoNegativo(precio.doubleValue(), "precio");
+        if (precio.scale() > ESCALA_PRECIO && precio.stripTrailingZeros().scale() > ESCALA_PRECIO) {
+            throw new IllegalArgumentException("El precio admite hasta " + ESCALA_PRECIO + " decimales: " + texto);
+        }
+        precio = precio.setScale(ESCALA_PRECIO);
+        if (precio.precision() > PRECISION_PRECIO) {
+            throw new IllegalArgumentException("Precio fuera de rango: " + texto);
+        }
+        return precio;
+    }
+
+    private static BigDecimal decimal(String texto, String columna) {
+        try {
+            return new BigDecimal(texto);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido para " + columna + ": " + texto);
+        }
+    }
+
+    private static <T> T entero(String texto, String columna, Function<String, T> conversion) {
+        try {
+            return conversion.apply(texto);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido para " + columna + ": " + texto);
+        }
+    }
+
+    private static void exigirNoNegativo(double valor, String columna) {
+        if (valor < 0) {
+            throw new IllegalArgumentException("El valor de " + columna + " no puede ser negativo");
+        }
+    }
+
+    private static <T> T buscar(Map<String, T> porNombre, String nombre, String tipo) {
+        T encontrado = porNombre.get(IndiceNombresProducto.normalizar(nombre));
+        if (encontrado == null) {
+            throw new IllegalArgumentException(tipo + " no encontrada: " + nombre);
+        }
+        return encontrado;
+    }
+
+    private static <T> Map<String, T> porNombre(List<T> entidades, Function<T, String> nombre) {
+        Map<String, T> porNombre = new HashMap<>();
+        for (T entidad : entidades) {
+            porNombre.putIfAbsent(IndiceNombresProducto.normalizar(nombre.apply(entidad)), entidad);
+        }
+        return porNombre;
+    }
+
+    /**
+     * Estado de una importación en curso: el lote pendiente y los totales.
+     */
+    private final class Importacion {
+        private final Map<String, Categoria> categorias;
+        private final Map<String, Marca> marcas;
+        private final List<Fila> lote = new ArrayList<>();
+        // id o nombre normalizado de las filas del lote
+        private final Set<String> claves = new HashSet<>();
+        private final List<ErrorImportacion> errores = new ArrayList<>();
+        private long filas;
+        private long creados;
+        private long actualizados;
+        private long conError;
+
+        private Importacion(Map<String, Categoria> categorias, Map<String, Marca> marcas) {
+            this.categorias = categorias;
+            this.marcas = marcas;
+        }
+
+        void agregar(long linea, Producto producto) {
+            String clave = producto.getId() != null
+                    ? "#" + producto.getId()
+                    : IndiceNombresProducto.normalizar(producto.getNombre());
+            // Un producto repetido va al lote siguiente: así la segunda fila
+            // modifica lo que guardó la primera en lugar de duplicarlo
+            if (!claves.add(clave)) {
+                procesarLote();
+                claves.add(clave);
+            }
+            lote.add(new Fila(linea, producto));
+            if (lote.size() >= tamanoLote) {
+                procesarLote();
+            }
+        }
+
+        void procesarLote() {
+            if (lote.isEmpty()) {
+                return;
+            }
+            List<Fila> filasLote = new ArrayList<>(lote);
+            lote.clear();
+            claves.clear();
+            try {
+                LoteGuardado guardado = transactionTemplate.execute(estado -> guardarLote(filasLote));
+                creados += guardado.creados;
+                actualizados += guardado.actualizados;
+                for (ErrorImportacion error : guardado.errores) {
+                    error(error.getLinea(), error.getMensaje());
+                }
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("Falló un lote de la importación de productos", e);
+                String mensaje = "No se pudo guardar el lote: " + e.getMostSpecificCause().getMessage();
+                for (Fila fila : filasLote) {
+                    error(fila.linea, mensaje);
+                }
+            }
+        }
+
+        void error(long linea, String mensaje) {
+            conError++;
+            if (errores.size() < maxErrores) {
+                errores.add(new ErrorImportacion(linea, mensaje));
+            }
+        }
+    }
+
+    private static final class Fila {
+        private final long linea;
+        private final Producto producto;
+
+        private Fila(long linea, Producto producto) {
+            this.linea = linea;
+            this.producto = producto;
+        }
+    }
+
+    private static final class LoteGuardado {
+        private long creados;
+        private long actualizados;
+        private final List<ErrorImportacion> errores = new ArrayList<>();
+        private List<ProductoResumen> productos = List.of();
+    }
+
+    /**
+     * Cabecera de un CSV: columnas en orden y separador (coma, o punto y coma
+     * si la cabecera no tiene comas, como los que exporta Excel en español).
+     * Los campos pueden ir entre comillas dobles ("" escapa una comilla), pero
+     * no pueden ocupar más de una línea.
+     */
+    private static final class CabeceraCsv {
+        private final List<String> columnas;
+        private final char separador;
+
+        private CabeceraCsv(List<String> columnas, char separador) {
+            this.columnas = columnas;
+            this.separador = separador;
+        }
+
+        static CabeceraCsv leer(String linea) {
+            char separador = linea.indexOf(',') < 0 && linea.indexOf(';') >= 0 ? ';' : ',';
+            List<String> columnas = new ArrayList<>();
+            for (String nombre : separar(linea, separador)) {
+                String columna = columna(nombre);
+                if (columnas.contains(columna)) {
+                    throw new IllegalArgumentException("Columna repetida en la cabecera: " + nombre);
+                }
+                columnas.add(columna);
+            }
+            if (!columnas.contains("nombre") || !columnas.contains("precio")) {
+                throw new IllegalArgumentException("La cabecera debe incluir las columnas nombre y precio");
+            }
+            return new CabeceraCsv(columnas, separador);
+        }
+
+        Map<String, String> campos(String linea) {
+            List<String> valores = separar(linea, separador);
+            if (valores.size() != columnas.size()) {
+                throw new IllegalArgumentException(
+                        "Se esperaban " + columnas.size() + " columnas y hay " + valores.size());
+            }
+            Map<String, String> campos = new HashMap<>();
+            for (int i = 0; i < valores.size(); i++) {
+                campos.put(columnas.get(i), valores.get(i));
+            }
+            return campos;
+        }
+
+        private static List<String> separar(String linea, char separador) {
+            List<String> campos = new ArrayList<>();
+            StringBuilder actual = new StringBuilder();
+            boolean entreComillas = false;
+            for (int i = 0; i < linea.length(); i++) {
+                char c = linea.charAt(i);
+                if (entreComillas) {
+                    if (c != '"') {
+                        actual.append(c);
+                    } else if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                        actual.append('"');
+                        i++;
+                    } else {
+                        entreComillas = false;
+                    }
+                } else if (c == '"') {
+                    entreComillas = true;
+                } else if (c == separador) {
+                    campos.add(actual.toString());
+                    actual.setLength(0);
+                } else {
+                    actual.append(c);
+                }
+            }
+            if (entreComillas) {
+                throw new IllegalArgumentException("Comillas sin cerrar (un campo no puede ocupar varias líneas)");
+            }
+            campos.add(actual.toString());
+            return campos;
+        }
+    }
+}
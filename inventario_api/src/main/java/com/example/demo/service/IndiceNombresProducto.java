@@ -0,0 +1,323 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductoResumen;
+import com.example.demo.model.Producto;
+import com.example.demo.repository.ProductoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Índice invertido de trigramas sobre {@code Producto.nombre}, en memoria.
+ * <p>
+ * Reemplaza al {@code LIKE '%x%'} de la búsqueda por nombre, que en MySQL
+ * recorre la tabla completa. Los nombres se normalizan (minúsculas, sin
+ * acentos, signos reducidos a un espacio), así que "mecanico" encuentra
+ * "Mecánico". Los candidatos que salen de cruzar los trigramas se confirman
+ * contra el nombre normalizado, por lo que el resultado es exactamente el
+ * de una búsqueda por subcadena.
+ * <p>
+ * Se carga completo al arrancar y después lo mantiene {@link ProductoServiceImpl}
+ * en cada alta, modificación y baja; dentro de una transacción el cambio se
+ * aplica recién después del commit. Mientras no esté cargado,
+ * {@link #estaListo()} devuelve false y la búsqueda va a la base.
+ * <p>
+ * El índice es local a cada instancia: los cambios hechos por otra se ven al
+ * recargarlo completo, cada {@code app.indice-nombres.recarga}. La recarga
+ * arma un índice nuevo y lo reemplaza de una vez, así las búsquedas nunca ven
+ * uno a medio cargar.
+ */
+@Component
+public class IndiceNombresProducto {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceNombresProducto.class);
+
+    private final ProductoRepository productoRepository;
+    private final Duration recarga;
+
+    private volatile Contenido contenido = new Contenido();
+    // Serializa a los que escriben; las lecturas no bloquean
+    private final ReentrantLock escritura = new ReentrantLock();
+    // Una recarga a la vez (la periódica y la de los datos iniciales)
+    private final ReentrantLock cargas = new ReentrantLock();
+    // Cambios aplicados durante una recarga (null = baja): pueden no estar en
+    // lo que leyó la consulta, así que se repiten sobre el índice nuevo
+    private Map<Long, String> pendientes;
+    private ScheduledExecutorService recargador;
+
+    private volatile boolean listo;
+
+    public IndiceNombresProducto(ProductoRepository productoRepository,
+            @Value("${app.indice-nombres.recarga:5m}") Duration recarga) {
+        this.productoRepository = productoRepository;
+        this.recarga = recarga;
+    }
+
+    /**
+     * Carga el índice cuando la aplicación terminó de arrancar (después de
+     * los datos iniciales) y en cada recarga periódica.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        cargas.lock();
+        try {
+            escritura.lock();
+            try {
+                pendientes = new HashMap<>();
+            } finally {
+                escritura.unlock();
+            }
+            Contenido nuevo = new Contenido();
+            try {
+                for (ProductoResumen producto : productoRepository.findAllResumen()) {
+                    nuevo.agregar(producto.getId(), producto.getNombre());
+                }
+            } catch (RuntimeException e) {
+                escritura.lock();
+                try {
+                    pendientes = null;
+                } finally {
+                    escritura.unlock();
+                }
+                throw e;
+            }
+            escritura.lock();
+            try {
+                pendientes.forEach(nuevo::reemplazar);
+                pendientes = null;
+                contenido = nuevo;
+                listo = true;
+            } finally {
+                escritura.unlock();
+            }
+            log.info("Índice de nombres cargado: {} productos, {} trigramas", nuevo.nombres.size(),
+                    nuevo.trigramas.size());
+        } finally {
+            cargas.unlock();
+        }
+    }
+
+    public boolean estaListo() {
+        return listo;
+    }
+
+    /**
+     * Agrega o reemplaza el nombre de un producto en el índice (después del
+     * commit, si hay una transacción activa).
+     */
+    public void actualizar(Long id, String nombre) {
+        Transacciones.despuesDelCommit(() -> aplicar(id, nombre));
+    }
+
+    /**
+     * Saca un producto del índice (después del commit, si hay una
+     * transacción activa).
+     */
+    public void eliminar(Long id) {
+        Transacciones.despuesDelCommit(() -> aplicar(id, null));
+    }
+
+    /**
+     * Busca los productos cuyo nombre contiene el texto, sin distinguir
+     * mayúsculas ni acentos.
+     * <p>
+     * Orden: nombre idéntico, nombre que empieza con el texto, alguna palabra
+     * que empieza con el texto y el resto; dentro de cada grupo, primero la
+     * coincidencia más temprana y el nombre más corto.
+     *
+     * @param texto Texto a buscar.
+     * @return IDs de los productos encontrados, ordenados por relevancia.
+     */
+    public List<Long> buscar(String texto) {
+        String consulta = normalizar(texto);
+        // Todas las lecturas de la búsqueda sobre el mismo índice, aunque se recargue mientras tanto
+        Contenido contenido = this.contenido;
+        Map<Long, String> nombres = contenido.nombres;
+        if (consulta.isEmpty()) {
+            return new ArrayList<>(nombres.keySet());
+        }
+
+        Set<Long> candidatos = consulta.length() < 3 ? nombres.keySet()
+                : candidatosPorTrigramas(contenido.trigramas, consulta);
+        List<Coincidencia> coincidencias = new ArrayList<>();
+        for (Long id : candidatos) {
+            String nombre = nombres.get(id);
+            int posicion = nombre != null ? nombre.indexOf(consulta) : -1;
+            if (posicion >= 0) {
+                coincidencias.add(new Coincidencia(id, nombre, consulta, posicion));
+            }
+        }
+        coincidencias.sort(Coincidencia.POR_RELEVANCIA);
+
+        List<Long> ids = new ArrayList<>(coincidencias.size());
+        for (Coincidencia coincidencia : coincidencias) {
+            ids.add(coincidencia.id);
+        }
+        return ids;
+    }
+
+    /**
+     * Minúsculas, sin acentos y con cualquier secuencia de signos o espacios
+     * reducida a un único espacio (la misma regla que la columna
+     * {@code producto.nombre_normalizado}).
+     */
+    static String normalizar(String texto) {
+        return Producto.normalizarNombre(texto);
+    }
+
+    private static Set<Long> candidatosPorTrigramas(Map<String, Set<Long>> trigramas, String consulta) {
+        // Se cruza empezando por el trigrama menos frecuente
+        List<Set<Long>> listas = new ArrayList<>();
+        for (String trigrama : trigramasDe(consulta)) {
+            Set<Long> ids = trigramas.get(trigrama);
+            if (ids == null) {
+                return Set.of();
+            }
+            listas.add(ids);
+        }
+        listas.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> resultado = new HashSet<>(listas.get(0));
+        for (int i = 1; i < listas.size() && !resultado.isEmpty(); i++) {
+            resultado.retainAll(listas.get(i));
+        }
+        return resultado;
+    }
+
+    private static Set<String> trigramasDe(String normalizado) {
+        Set<String> resultado = new HashSet<>();
+        for (int i = 0; i + 3 <= normalizado.length(); i++) {
+            resultado.add(normalizado.substring(i, i + 3));
+        }
+        return resultado;
+    }
+
+    /**
+     * Aplica un alta, modificación o baja (nombre null) al índice vigente y,
+     * si hay una recarga en curso, la anota para repetirla sobre el nuevo.
+     */
+    private void aplicar(Long id, String nombre) {
+        escritura.lock();
+        try {
+            contenido.reemplazar(id, nombre);
+            if (pendientes != null) {
+                pendientes.put(id, nombre);
+            }
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Arranca la recarga periódica, para ver los cambios hechos por otras
+     * instancias.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        recargador = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("indice-nombres-recarga").daemon().factory());
+        recargador.scheduleWithFixedDelay(this::recargar, recarga.toMillis(), recarga.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (recargador != null) {
+            recargador.shutdownNow();
+        }
+    }
+
+    private void recargar() {
+        try {
+            cargar();
+        } catch (RuntimeException e) {
+            // Se sigue buscando con el índice anterior hasta la próxima recarga
+            log.warn("No se pudo recargar el índice de nombres", e);
+        }
+    }
+
+    /**
+     * Nombres y trigramas de una carga. Lo modifican sólo los que tienen el
+     * lock de escritura; las búsquedas lo leen sin bloquear.
+     */
+    private static final class Contenido {
+        // id -> nombre normalizado
+        final Map<Long, String> nombres = new ConcurrentHashMap<>();
+        // trigrama -> ids de los productos que lo contienen
+        final Map<String, Set<Long>> trigramas = new ConcurrentHashMap<>();
+
+        void reemplazar(Long id, String nombre) {
+            quitar(id);
+            if (nombre != null) {
+                agregar(id, nombre);
+            }
+        }
+
+        void agregar(Long id, String nombre) {
+            String normalizado = normalizar(nombre);
+            nombres.put(id, normalizado);
+            for (String trigrama : trigramasDe(normalizado)) {
+                trigramas.computeIfAbsent(trigrama, t -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+
+        void quitar(Long id) {
+            String anterior = nombres.remove(id);
+            if (anterior == null) {
+                return;
+            }
+            for (String trigrama : trigramasDe(anterior)) {
+                trigramas.computeIfPresent(trigrama, (t, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+
+    private static final class Coincidencia {
+        static final Comparator<Coincidencia> POR_RELEVANCIA = Comparator
+                .comparingInt((Coincidencia c) -> c.grupo)
+                .thenComparingInt(c -> c.posicion)
+                .thenComparingInt(c -> c.largo)
+                .thenComparing(c -> c.id);
+
+        final Long id;
+        final int grupo;
+        final int posicion;
+        final int largo;
+
+        Coincidencia(Long id, String nombre, String consulta, int posicion) {
+            this.id = id;
+            this.posicion = posicion;
+            this.largo = nombre.length();
+            if (nombre.equals(consulta)) {
+                this.grupo = 0;
+            } else if (posicion == 0) {
+                this.grupo = 1;
+            } else if (nombre.contains(" " + consulta)) {
+                this.grupo = 2;
+            } else {
+                this.grupo = 3;
+            }
+        }
+    }
+}
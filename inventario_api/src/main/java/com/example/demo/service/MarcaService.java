@@ -4,6 +4,7 @@ import com.example.demo.model.Categoria;
 import com.example.demo.model.Marca;
 import com.example.demo.repository.CategoriaRepository;
 import com.example.demo.repository.MarcaRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -11,15 +12,19 @@ import java.util.List;
 import java.util.Optional;
 
 @Service
+@Timed(value = "servicio.metodo", percentiles = { 0.5, 0.95, 0.99 }, histogram = true)
 public class MarcaService {
 
     private final MarcaRepository marcaRepository;
     private final CategoriaRepository categoriaRepository;
+    private final CatalogoCache catalogoCache;
 
     @Autowired
-    public MarcaService(MarcaRepository marcaRepository, CategoriaRepository categoriaRepository) {
+    public MarcaService(MarcaRepository marcaRepository, CategoriaRepository categoriaRepository,
+            CatalogoCache catalogoCache) {
         this.marcaRepository = marcaRepository;
         this.categoriaRepository = categoriaRepository;
+        this.catalogoCache = catalogoCache;
     }
 
     public List<Marca> findAll() {
@@ -42,7 +47,11 @@ public class MarcaService {
             // accept it as is
             // if it has IDs.
         }
-        return marcaRepository.save(marca);
+        Marca guardada = marcaRepository.save(marca);
+        // Los productos incluyen su marca y la marca puede haber creado "Otros"
+        catalogoCache.invalidar(CatalogoCache.Coleccion.MARCAS, CatalogoCache.Coleccion.PRODUCTOS,
+                CatalogoCache.Coleccion.CATEGORIAS);
+        return guardada;
     }
 
     public Optional<Marca> findById(Long id) {
@@ -0,0 +1,71 @@
+package com.example.demo.service;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Codifica y decodifica el cursor opaco del listado paginado de productos.
+ * <p>
+ * El cursor guarda el orden para el que se generó, el valor de la columna
+ * de orden y el id del último producto entregado
+ * ("orden:a|d:id:valor" en Base64 URL-safe). El id actúa como desempate
+ * para que el orden sea total aunque haya valores repetidos. Un cursor usado
+ * con otro orden se rechaza: sus claves no sirven para ubicarse en él.
+ */
+final class ProductoCursor {
+
+    static final Set<String> ORDENES_VALIDOS = Set.of("id", "nombre", "precio", "stock");
+
+    private ProductoCursor() {
+    }
+
+    static String codificar(String orden, boolean descendente, KeysetScrollPosition posicion) {
+        Map<String, Object> claves = posicion.getKeys();
+        String texto = orden + ":" + (descendente ? "d" : "a") + ":" + claves.get("id") + ":"
+                + (orden.equals("id") ? "" : claves.get(orden));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static KeysetScrollPosition decodificar(String orden, boolean descendente, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        String[] partes;
+        try {
+            // El valor va último: un nombre puede contener ':'
+            partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 4);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        if (partes.length != 4) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        if (!partes[0].equals(orden) || !partes[1].equals(descendente ? "d" : "a")) {
+            throw new IllegalArgumentException("El cursor corresponde a otro orden; pedir la primera página de nuevo");
+        }
+        try {
+            Long id = Long.valueOf(partes[2]);
+            String valor = partes[3];
+
+            Map<String, Object> claves = new LinkedHashMap<>();
+            switch (orden) {
+                case "nombre" -> claves.put("nombre", valor);
+                case "precio" -> claves.put("precio", new BigDecimal(valor));
+                case "stock" -> claves.put("stock", Integer.valueOf(valor));
+                default -> {
+                }
+            }
+            claves.put("id", id);
+            return ScrollPosition.forward(claves);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
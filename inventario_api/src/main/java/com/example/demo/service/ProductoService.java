@@ -1,11 +1,33 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.CambiosProductos;
+import com.example.demo.dto.FiltroProductos;
+import com.example.demo.dto.PaginaProductos;
+import com.example.demo.dto.ProductoListado;
+import com.example.demo.dto.ProductoResumen;
 import com.example.demo.model.Producto;
 import java.util.List;
 import java.util.Optional;
 
 public interface ProductoService {
-    List<Producto> obtenerTodos();
+    /**
+     * Listado completo de sólo lectura, con categoría y marca resueltas.
+     */
+    List<ProductoListado> obtenerTodos();
+
+    /**
+     * Obtiene una página de productos filtrada y ordenada en el servidor.
+     * <p>
+     * Usa keyset pagination: la página siguiente se pide con el cursor
+     * devuelto por la anterior, sin OFFSET.
+     *
+     * @param filtro Filtros (categoría, marca, stock bajo, nombre) y orden.
+     * @param cursor Cursor de la página anterior, o null para la primera.
+     * @param limite Cantidad máxima de productos por página.
+     * @return La página con su cursor siguiente.
+     * @throws IllegalArgumentException si el orden, el límite o el cursor no son válidos.
+     */
+    PaginaProductos obtenerPagina(FiltroProductos filtro, String cursor, int limite);
 
     Producto guardar(Producto producto);
 
@@ -14,28 +36,60 @@ public interface ProductoService {
     boolean eliminar(Long id);
 
     /**
-     * Realiza la venta de una unidad de un producto.
-     * Decrementa el stock en 1 si es posible.
+     * Actualiza el nombre y el precio de un producto. El stock no se edita
+     * acá: se modifica sólo con {@link #ajustarStock(Long, int)}.
      *
-     * @param id ID del producto a vender.
-     * @return El producto con el stock actualizado.
+     * @param id               ID del producto a actualizar.
+     * @param productoDetalles Objeto con los nuevos datos. Si trae
+     *                         {@code version}, tiene que coincidir con la
+     *                         actual.
+     * @return El producto actualizado, con la versión nueva.
+     * @throws org.springframework.dao.OptimisticLockingFailureException si el
+     *         producto cambió desde la versión indicada o durante la edición.
      */
+    Producto actualizarProducto(Long id, Producto productoDetalles);
+
     /**
-     * Actualiza todos los datos de un producto.
+     * Suma o resta unidades al stock de forma atómica.
      *
-     * @param id               ID del producto a actualizar.
-     * @param productoDetalles Objeto con los nuevos datos.
-     * @return El producto actualizado.
+     * @param id    ID del producto.
+     * @param delta Unidades a sumar; negativo para restar (distinto de 0).
+     * @return Resumen del producto con el stock actualizado.
+     * @throws RuntimeException si el producto no existe o el stock quedaría negativo.
      */
-    Producto actualizarProducto(Long id, Producto productoDetalles);
+    ProductoResumen ajustarStock(Long id, int delta);
 
-    Producto venderProducto(Long id, int cantidad);
+    /**
+     * Fila del listado de un producto, con su versión para If-Match.
+     */
+    Optional<ProductoListado> obtenerPorId(Long id);
+
+    /**
+     * Realiza la venta de una cantidad de un producto.
+     * Decrementa el stock en forma atómica y registra la venta.
+     *
+     * @param id       ID del producto a vender.
+     * @param cantidad Unidades vendidas (> 0).
+     * @return Resumen del producto con el stock actualizado.
+     */
+    ProductoResumen venderProducto(Long id, int cantidad);
 
     /**
-     * Busca productos por nombre (parcial).
+     * Busca productos por nombre (parcial), sin distinguir mayúsculas ni
+     * acentos. Los resultados vienen ordenados por relevancia.
      * 
      * @param nombre Texto a buscar.
      * @return Lista de productos que coinciden.
      */
-    List<Producto> buscarPorNombre(String nombre);
+    List<ProductoListado> buscarPorNombre(String nombre);
+
+    /**
+     * Productos modificados y eliminados después de una versión, para que un
+     * cliente con copia local se sincronice sin bajar todo el catálogo.
+     *
+     * @param desde Versión que ya tiene el cliente (0 para todo).
+     * @return Cambios y la versión a pedir la próxima vez.
+     * @throws IllegalArgumentException si la versión es negativa.
+     */
+    CambiosProductos obtenerCambios(long desde);
 }
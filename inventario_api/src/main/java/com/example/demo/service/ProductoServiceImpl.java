@@ -1,61 +1,216 @@
 package com.example.demo.service;
 
+import com.example.demo.config.ReplicaRoutingDataSource;
+import com.example.demo.dto.CambiosProductos;
+import com.example.demo.dto.FiltroProductos;
+import com.example.demo.dto.PaginaProductos;
+import com.example.demo.dto.ProductoListado;
+import com.example.demo.dto.ProductoResumen;
 import com.example.demo.model.Producto;
 import com.example.demo.repository.ProductoRepository;
+import com.example.demo.repository.ProductoSpecifications;
 import com.example.demo.model.Venta;
 import com.example.demo.repository.VentaRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
+@Timed(value = "servicio.metodo", percentiles = { 0.5, 0.95, 0.99 }, histogram = true)
 public class ProductoServiceImpl implements ProductoService {
 
+    static final int LIMITE_MAXIMO = 200;
+
     private final ProductoRepository productoRepository;
     private final VentaRepository ventaRepository;
+    private final CatalogoCache catalogoCache;
+    private final IndiceNombresProducto indiceNombres;
+    private final VentaDiariaService ventaDiariaService;
+    private final AlertasStock alertasStock;
+    private final CanalCambiosProducto canalCambios;
+    private final VersionesProducto versiones;
+
+    // Resultado de cada intento de venta, para ver la tasa de rechazos por stock
+    private final Counter ventasOk;
+    private final Counter ventasStockInsuficiente;
+    private final Counter ventasNoEncontrado;
 
-    public ProductoServiceImpl(ProductoRepository productoRepository, VentaRepository ventaRepository) {
+    public ProductoServiceImpl(ProductoRepository productoRepository, VentaRepository ventaRepository,
+            CatalogoCache catalogoCache, IndiceNombresProducto indiceNombres, VentaDiariaService ventaDiariaService,
+            AlertasStock alertasStock, CanalCambiosProducto canalCambios, VersionesProducto versiones,
+            MeterRegistry meterRegistry) {
         this.productoRepository = productoRepository;
         this.ventaRepository = ventaRepository;
+        this.catalogoCache = catalogoCache;
+        this.indiceNombres = indiceNombres;
+        this.ventaDiariaService = ventaDiariaService;
+        this.alertasStock = alertasStock;
+        this.canalCambios = canalCambios;
+        this.versiones = versiones;
+        this.ventasOk = contadorVentas(meterRegistry, "ok");
+        this.ventasStockInsuficiente = contadorVentas(meterRegistry, "stock_insuficiente");
+        this.ventasNoEncontrado = contadorVentas(meterRegistry, "no_encontrado");
+    }
+
+    private static Counter contadorVentas(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("ventas.resultado")
+                .description("Intentos de venta por resultado")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    @Override
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public List<ProductoListado> obtenerTodos() {
+        return productoRepository.findAllListado();
     }
 
     @Override
-    public List<Producto> obtenerTodos() {
-        return productoRepository.findAll();
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public PaginaProductos obtenerPagina(FiltroProductos filtro, String cursor, int limite) {
+        if (limite <= 0 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        String orden = filtro.getOrden() != null ? filtro.getOrden() : "id";
+        if (!ProductoCursor.ORDENES_VALIDOS.contains(orden)) {
+            throw new IllegalArgumentException("Orden no soportado: " + orden);
+        }
+
+        // El id desempata valores repetidos para que el keyset sea estable;
+        // cada orden tiene su índice (columna, id) en Producto.
+        // Categoría y marca se cargan en lote (default_batch_fetch_size), una
+        // consulta por asociación para toda la página: un join fetch de las
+        // categorías de la marca obligaría a Hibernate a paginar en memoria.
+        Sort.Direction direccion = filtro.isDescendente() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = orden.equals("id")
+                ? Sort.by(direccion, "id")
+                : Sort.by(direccion, orden).and(Sort.by(direccion, "id"));
+        KeysetScrollPosition posicion = ProductoCursor.decodificar(orden, filtro.isDescendente(), cursor);
+
+        Window<Producto> ventana = productoRepository.findBy(ProductoSpecifications.conFiltro(filtro),
+                q -> q.sortBy(sort).limit(limite).scroll(posicion));
+
+        String siguiente = null;
+        if (ventana.hasNext() && !ventana.isEmpty()) {
+            siguiente = ProductoCursor.codificar(orden, filtro.isDescendente(),
+                    (KeysetScrollPosition) ventana.positionAt(ventana.size() - 1));
+        }
+        return new PaginaProductos(ventana.getContent(), siguiente, ventana.hasNext());
     }
 
     @Override
+    @org.springframework.transaction.annotation.Transactional
     public Producto guardar(Producto producto) {
-        return productoRepository.save(producto);
+        Producto guardado = productoRepository.save(producto);
+        versiones.registrar(guardado);
+        indiceNombres.actualizar(guardado.getId(), guardado.getNombre());
+        alertasStock.actualizar(guardado);
+        canalCambios.publicar(guardado);
+        catalogoCache.invalidar(CatalogoCache.Coleccion.PRODUCTOS);
+        return guardado;
     }
 
     @Override
+    @org.springframework.transaction.annotation.Transactional
     public Optional<Producto> actualizar(Long id, Producto productoDetalles) {
-        return productoRepository.findById(id).map(producto -> {
-            producto.setNombre(productoDetalles.getNombre());
-            producto.setPrecio(productoDetalles.getPrecio());
-            producto.setStock(productoDetalles.getStock());
-            return productoRepository.save(producto);
-        });
+        return productoRepository.findById(id).map(producto -> editar(producto, productoDetalles));
     }
 
     @Override
+    @org.springframework.transaction.annotation.Transactional
     public Producto actualizarProducto(Long id, Producto productoDetalles) {
         Producto producto = productoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+        return editar(producto, productoDetalles);
+    }
+
+    /**
+     * Aplica una edición de nombre y precio con bloqueo optimista. El stock
+     * no se toma de los detalles: un formulario abierto hace rato pisaría las
+     * ventas hechas mientras tanto. Se cambia con {@link #ajustarStock}.
+     *
+     * @throws OptimisticLockingFailureException si los detalles traen una
+     *         versión distinta de la actual, o si otra edición se confirma
+     *         antes que esta.
+     */
+    private Producto editar(Producto producto, Producto productoDetalles) {
+        Long versionEsperada = productoDetalles.getVersion();
+        if (versionEsperada != null && !versionEsperada.equals(producto.getVersion())) {
+            throw new OptimisticLockingFailureException("El producto con ID " + producto.getId()
+                    + " fue modificado por otro usuario (versión actual: " + producto.getVersion() + ")");
+        }
 
         producto.setNombre(productoDetalles.getNombre());
         producto.setPrecio(productoDetalles.getPrecio());
-        producto.setStock(productoDetalles.getStock());
 
-        return productoRepository.save(producto);
+        // El UPDATE lleva "WHERE version = ?": si otra edición ganó, falla acá
+        Producto actualizado = productoRepository.save(producto);
+        versiones.registrar(actualizado);
+        // El stock leído puede ser viejo (la edición no lo escribe): se toma el actual
+        ProductoResumen actual = productoRepository.findResumenById(actualizado.getId())
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + actualizado.getId()));
+        actualizado.setStock(actual.getStock());
+        actualizado.setStockMinimo(actual.getStockMinimo());
+        indiceNombres.actualizar(actualizado.getId(), actualizado.getNombre());
+        alertasStock.actualizar(actualizado);
+        canalCambios.publicar(actualizado);
+        catalogoCache.invalidar(CatalogoCache.Coleccion.PRODUCTOS);
+        return actualizado;
+    }
+
+    /**
+     * Ajuste de stock con un único UPDATE condicional, igual que la venta:
+     * no lee el producto antes ni mantiene bloqueos entre pedidos.
+     */
+    @Override
+    @org.springframework.transaction.annotation.Transactional
+    public ProductoResumen ajustarStock(Long id, int delta) {
+        if (delta == 0) {
+            throw new IllegalArgumentException("El ajuste de stock no puede ser 0");
+        }
+        if (productoRepository.ajustarStock(id, delta) == 0) {
+            if (!productoRepository.existsById(id)) {
+                throw new RuntimeException("Producto no encontrado con ID: " + id);
+            }
+            throw new RuntimeException("El stock no puede quedar negativo");
+        }
+        ProductoResumen producto = productoRepository.findResumenById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+        long version = versiones.registrar(List.of(id));
+        alertasStock.actualizar(producto);
+        canalCambios.publicar(producto, version);
+        catalogoCache.invalidar(CatalogoCache.Coleccion.PRODUCTOS);
+        return producto;
+    }
+
+    @Override
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public Optional<ProductoListado> obtenerPorId(Long id) {
+        return productoRepository.findListadoById(id);
     }
 
     @Override
+    @org.springframework.transaction.annotation.Transactional
     public boolean eliminar(Long id) {
         if (productoRepository.existsById(id)) {
             productoRepository.deleteById(id);
+            long version = versiones.registrarEliminado(id);
+            indiceNombres.eliminar(id);
+            alertasStock.eliminar(id);
+            canalCambios.publicarEliminado(id, version);
+            catalogoCache.invalidar(CatalogoCache.Coleccion.PRODUCTOS);
             return true;
         }
         return false;
@@ -63,32 +218,38 @@ public class ProductoServiceImpl implements ProductoService {
 
     /**
      * Implementación de la lógica de venta.
-     * Busca el producto, valida que exista stock disponible (> 0)
-     * y decrementa la cantidad.
+     * Descuenta el stock con un único UPDATE condicional (stock >= cantidad)
+     * y registra la venta con los datos de una proyección, sin cargar la
+     * entidad completa.
      *
      * @param id ID del producto.
-     * @return El producto actualizado.
+     * @return Resumen del producto con el stock actualizado.
      * @throws RuntimeException si el producto no existe o no hay stock.
      */
     @Override
     @org.springframework.transaction.annotation.Transactional
-    public Producto venderProducto(Long id, int cantidad) {
+    public ProductoResumen venderProducto(Long id, int cantidad) {
         if (cantidad <= 0) {
             throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
         }
 
-        Producto producto = productoRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
-
-        if (producto.getStock() < cantidad) {
+        // 1. Descontar el stock; la fila queda bloqueada hasta el commit
+        if (productoRepository.descontarStock(id, cantidad) == 0) {
+            if (!productoRepository.existsById(id)) {
+                ventasNoEncontrado.increment();
+                throw new RuntimeException("Producto no encontrado con ID: " + id);
+            }
+            ventasStockInsuficiente.increment();
             throw new RuntimeException("Stock insuficiente para realizar la venta");
         }
 
-        // 1. Capturar datos para la venta
+        // 2. Capturar datos para la venta (ya con el stock descontado)
+        ProductoResumen producto = productoRepository.findResumenById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
         double precioUnitario = producto.getPrecio().doubleValue();
         double montoTotal = precioUnitario * cantidad;
 
-        // 2. Crear y guardar el registro de venta
+        // 3. Crear y guardar el registro de venta
         Venta nuevaVenta = new Venta();
         nuevaVenta.setNombreProducto(producto.getNombre());
         nuevaVenta.setProductoId(producto.getId());
@@ -99,15 +260,64 @@ public class ProductoServiceImpl implements ProductoService {
         nuevaVenta.setCostoUnitario(producto.getPrecioCosto() != null ? producto.getPrecioCosto() : 0.0);
 
         ventaRepository.save(nuevaVenta);
-
-        // 3. Actualizar el stock del producto
-        producto.setStock(producto.getStock() - cantidad);
-        return productoRepository.save(producto);
+        ventaDiariaService.registrar(List.of(nuevaVenta));
+        // 4. Versionar el cambio de stock (último paso: la versión se confirma enseguida)
+        long version = versiones.registrar(List.of(id));
+        alertasStock.actualizar(producto);
+        canalCambios.publicar(producto, version);
+        catalogoCache.invalidar(CatalogoCache.Coleccion.PRODUCTOS);
+        ventasOk.increment();
+        return producto;
     }
 
+    /**
+     * Busca en el índice de nombres en memoria y trae los productos
+     * encontrados con una sola consulta, respetando el orden de relevancia.
+     * Si el índice todavía no se cargó, consulta la base directamente.
+     */
     @Override
-    public List<Producto> buscarPorNombre(String nombre) {
-        return productoRepository.findByNombreContainingIgnoreCase(nombre);
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public List<ProductoListado> buscarPorNombre(String nombre) {
+        if (!indiceNombres.estaListo()) {
+            return productoRepository.findByNombreContainingIgnoreCase(nombre).stream()
+                    .map(ProductoListado::de)
+                    .toList();
+        }
+        List<Long> ids = indiceNombres.buscar(nombre);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> posiciones = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            posiciones.put(ids.get(i), i);
+        }
+        List<ProductoListado> productos = new ArrayList<>(productoRepository.findListadoByIdIn(ids));
+        productos.sort(Comparator.comparing(p -> posiciones.get(p.getId())));
+        return productos;
     }
 
+    /**
+     * Lee primero la versión actual y después las filas: un cambio que se
+     * confirme entre las dos lecturas puede venir ahora y también en la
+     * próxima consulta, pero nunca se pierde.
+     */
+    @Override
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public CambiosProductos obtenerCambios(long desde) {
+        if (desde < 0) {
+            throw new IllegalArgumentException("La versión debe ser mayor o igual a 0");
+        }
+        // De la primaria: el cliente pide desde una versión que ya recibió
+        // por el canal de cambios y una réplica puede no tenerla todavía
+        return ReplicaRoutingDataSource.leerEnPrimaria(() -> {
+            long actual = versiones.actual();
+            if (desde == 0 || desde < versiones.base() || desde > versiones.ultima()) {
+                // Sin copia, copia anterior a la última recarga o de otra base: todo el catálogo
+                return new CambiosProductos(actual, true, productoRepository.findAllListado(), List.of());
+            }
+            // La marca de otra instancia puede ir adelantada a la de esta
+            return new CambiosProductos(Math.max(actual, desde), false,
+                    productoRepository.findListadoCambiadosDesde(desde), versiones.eliminadosDesde(desde));
+        });
+    }
 }
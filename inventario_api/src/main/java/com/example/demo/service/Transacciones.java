@@ -0,0 +1,33 @@
+package com.example.demo.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utilidades para coordinar estado en memoria (cachés, índices, streams)
+ * con las transacciones de la base.
+ */
+public final class Transacciones {
+
+    private Transacciones() {
+    }
+
+    /**
+     * Ejecuta la acción después del commit de la transacción activa, o
+     * enseguida si no hay ninguna. Si la transacción se revierte, no se
+     * ejecuta: lo que se guarda en memoria o se publica nunca se adelanta a
+     * lo que otros pueden leer de la base.
+     */
+    public static void despuesDelCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
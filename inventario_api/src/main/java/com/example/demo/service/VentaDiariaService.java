@@ -0,0 +1,143 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ResultadoReconstruccion;
+import com.example.demo.model.Venta;
+import com.example.demo.repository.VentaDiariaJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Mantiene el rollup venta_diaria.
+ * <p>
+ * {@link #registrar} y {@link #revertir} se llaman dentro de la transacción
+ * de la venta o de su eliminación, así el rollup nunca queda desfasado del
+ * historial. {@link #reconstruir()} lo recalcula completo desde la tabla
+ * venta, para cargarlo por primera vez o corregirlo tras cargas masivas.
+ */
+@Service
+public class VentaDiariaService {
+
+    private static final Logger log = LoggerFactory.getLogger(VentaDiariaService.class);
+
+    private final VentaDiariaJdbcRepository ventaDiariaJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int diasPorBloque;
+    private final int hilos;
+
+    public VentaDiariaService(VentaDiariaJdbcRepository ventaDiariaJdbcRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.venta-diaria.dias-por-bloque:31}") int diasPorBloque,
+            @Value("${app.venta-diaria.hilos:4}") int hilos) {
+        this.ventaDiariaJdbcRepository = ventaDiariaJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.diasPorBloque = diasPorBloque;
+        this.hilos = hilos;
+    }
+
+    /**
+     * Suma ventas recién registradas al rollup.
+     */
+    public void registrar(List<Venta> ventas) {
+        if (!ventas.isEmpty()) {
+            ventaDiariaJdbcRepository.acumular(ventas);
+        }
+    }
+
+    /**
+     * Resta del rollup una venta que se va a eliminar.
+     */
+    public void revertir(Venta venta) {
+        ventaDiariaJdbcRepository.descontar(venta);
+    }
+
+    /**
+     * Resta del rollup un conjunto de ventas que se van a eliminar, con un
+     * UPDATE por día y producto.
+     */
+    public void revertir(List<Venta> ventas) {
+        if (!ventas.isEmpty()) {
+            ventaDiariaJdbcRepository.descontarLote(ventas);
+        }
+    }
+
+    /**
+     * Pasa ventas históricas de la fila "sin producto" (producto_id = 0) a la
+     * de su producto, después de asignarles el productoId.
+     */
+    public void asignarProducto(List<Venta> ventas) {
+        for (Venta venta : ventas) {
+            ventaDiariaJdbcRepository.descontar(venta, 0L);
+        }
+        registrar(ventas);
+    }
+
+    /**
+     * Recalcula el rollup desde el historial completo.
+     * <p>
+     * El rango de fechas con ventas se parte en bloques de
+     * {@code app.venta-diaria.dias-por-bloque} días que se procesan en
+     * paralelo ({@code app.venta-diaria.hilos}), cada uno en su propia
+     * transacción: borra las filas del bloque y las vuelve a generar con un
+     * INSERT ... SELECT agrupado. Conviene ejecutarlo con poco tráfico de
+     * ventas, ya que una venta que entra en un bloque mientras se recalcula
+     * puede bloquearse hasta que el bloque termine.
+     *
+     * @return Rango procesado, bloques y filas generadas.
+     */
+    public ResultadoReconstruccion reconstruir() {
+        long comienzo = System.nanoTime();
+        LocalDate[] rango = ventaDiariaJdbcRepository.rangoDeVentas();
+        if (rango == null) {
+            transactionTemplate.executeWithoutResult(estado -> ventaDiariaJdbcRepository.borrarTodo());
+            return new ResultadoReconstruccion(null, null, 0, 0, milisegundosDesde(comienzo));
+        }
+        LocalDate desde = rango[0];
+        LocalDate finExclusivo = rango[1].plusDays(1);
+
+        List<Future<Integer>> bloques = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(hilos)) {
+            for (LocalDate inicio = desde; inicio.isBefore(finExclusivo); inicio = inicio.plusDays(diasPorBloque)) {
+                LocalDate inicioBloque = inicio;
+                LocalDate finBloque = inicio.plusDays(diasPorBloque).isBefore(finExclusivo)
+                        ? inicio.plusDays(diasPorBloque)
+                        : finExclusivo;
+                bloques.add(executor.submit(() -> transactionTemplate
+                        .execute(estado -> ventaDiariaJdbcRepository.recalcular(inicioBloque, finBloque))));
+            }
+
+            long filas = 0;
+            for (Future<Integer> bloque : bloques) {
+                filas += bloque.get();
+            }
+            transactionTemplate.executeWithoutResult(
+                    estado -> ventaDiariaJdbcRepository.borrarFueraDe(desde, finExclusivo));
+
+            ResultadoReconstruccion resultado = new ResultadoReconstruccion(desde, rango[1], bloques.size(), filas,
+                    milisegundosDesde(comienzo));
+            log.info("Rollup venta_diaria reconstruido: {} filas en {} bloques ({} ms)", filas, bloques.size(),
+                    resultado.getMilisegundos());
+            return resultado;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconstrucción de venta_diaria interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falló la reconstrucción de venta_diaria", e.getCause());
+        }
+    }
+
+    private static long milisegundosDesde(long comienzo) {
+        return (System.nanoTime() - comienzo) / 1_000_000;
+    }
+}
@@ -1,10 +1,74 @@
 package com.example.demo.service;
 
-import com.example.demo.model.Venta;
+import com.example.demo.dto.LineaCarrito;
+import com.example.demo.dto.MetricasVentas;
+import com.example.demo.dto.ResultadoAnulacion;
+import com.example.demo.dto.ResultadoCheckout;
+import com.example.demo.dto.ResultadoReconstruccion;
+import com.example.demo.dto.VentaListado;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface VentaService {
-    List<Venta> obtenerTodas();
+    List<VentaListado> obtenerTodas();
 
     void eliminarVenta(Long id);
+
+    /**
+     * Anula muchas ventas en una sola transacción: repone el stock con un
+     * UPDATE por producto, las descuenta del resumen diario y las borra por
+     * bloques.
+     *
+     * @param ids   Ventas a anular, o null para anular por rango.
+     * @param desde Primer día incluido del rango.
+     * @param hasta Último día incluido del rango.
+     * @return Ventas anuladas, totales y stock final de los productos repuestos.
+     * @throws IllegalArgumentException si no se indica exactamente uno de los dos criterios.
+     * @throws RuntimeException         si alguna de las ventas pedidas no existe; no se anula ninguna.
+     */
+    ResultadoAnulacion anularVentas(List<Long> ids, LocalDate desde, LocalDate hasta);
+
+    /**
+     * Vende todas las líneas de un carrito en una sola transacción: si algún
+     * producto no existe o no tiene stock, no se vende ninguno.
+     *
+     * @param lineas Productos y cantidades; un mismo producto puede repetirse.
+     * @return Stock final de cada producto y totales de la venta.
+     * @throws IllegalArgumentException si el carrito está vacío o alguna cantidad no es positiva.
+     * @throws RuntimeException         si un producto no existe o no tiene stock suficiente.
+     */
+    ResultadoCheckout checkout(List<LineaCarrito> lineas);
+
+    /**
+     * Calcula en la base de datos el total vendido, el costo, la utilidad y
+     * las unidades del rango de fechas indicado.
+     *
+     * @param desde      Primer día incluido, o null para no acotar.
+     * @param hasta      Último día incluido, o null para no acotar.
+     * @param agrupacion "dia", "mes" o "producto" para el detalle.
+     * @return Totales del rango y detalle agrupado.
+     * @throws IllegalArgumentException si la agrupación o el rango no son válidos.
+     */
+    MetricasVentas obtenerMetricas(LocalDate desde, LocalDate hasta, String agrupacion);
+
+    /**
+     * Escribe las ventas del rango en la salida, fila por fila, sin cargar el
+     * historial completo en memoria.
+     *
+     * @param desde   Primer día incluido, o null para no acotar.
+     * @param hasta   Último día incluido, o null para no acotar.
+     * @param formato "csv" o "ndjson".
+     * @param salida  Stream de la respuesta; no se cierra.
+     */
+    void exportar(LocalDate desde, LocalDate hasta, String formato, OutputStream salida) throws IOException;
+
+    /**
+     * Recalcula el resumen diario (venta_diaria) desde el historial completo.
+     *
+     * @return Rango procesado, bloques y filas generadas.
+     */
+    ResultadoReconstruccion reconstruirResumenDiario();
 }
@@ -1,63 +1,475 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.LineaCarrito;
+import com.example.demo.dto.MetricasVentas;
+import com.example.demo.dto.ProductoResumen;
+import com.example.demo.dto.ResultadoAnulacion;
+import com.example.demo.dto.ResultadoCheckout;
+import com.example.demo.dto.ResultadoReconstruccion;
+import com.example.demo.dto.VentaListado;
+import com.example.demo.dto.ResumenVentas;
 import com.example.demo.model.Producto;
 import com.example.demo.model.Venta;
 import com.example.demo.repository.ProductoRepository;
+import com.example.demo.repository.VentaDiariaRepository;
+import com.example.demo.repository.VentaJdbcRepository;
 import com.example.demo.repository.VentaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "servicio.metodo", percentiles = { 0.5, 0.95, 0.99 }, histogram = true)
 public class VentaServiceImpl implements VentaService {
 
+    // Cotas usadas cuando el rango viene abierto; caben en un DATETIME de MySQL
+    // y mantienen la consulta como un range scan sobre idx_venta_fecha.
+    private static final LocalDateTime FECHA_MINIMA = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FECHA_MAXIMA = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private static final String CABECERA_CSV = "id,fechaVenta,productoId,nombreProducto,cantidadVendida,"
+            + "precioUnitario,montoTotal,costoUnitario";
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final int FLUSH_CADA = 1000;
+    private static final String VENTAS_POR_RANGO = "SELECT v FROM Venta v "
+            + "WHERE v.fechaVenta >= :inicio AND v.fechaVenta < :fin ORDER BY v.fechaVenta, v.id";
+
     private final VentaRepository ventaRepository;
     private final ProductoRepository productoRepository;
+    private final VentaJdbcRepository ventaJdbcRepository;
+    private final CatalogoCache catalogoCache;
+    private final VentaDiariaService ventaDiariaService;
+    private final VentaDiariaRepository ventaDiariaRepository;
+    private final AlertasStock alertasStock;
+    private final CanalCambiosProducto canalCambios;
+    private final VersionesProducto versionesProducto;
+    private final ObjectMapper objectMapper;
+    private final int maximoAnulacion;
+    private final int filasPorLecturaExportacion;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
-    public VentaServiceImpl(VentaRepository ventaRepository, ProductoRepository productoRepository) {
+    public VentaServiceImpl(VentaRepository ventaRepository, ProductoRepository productoRepository,
+            VentaJdbcRepository ventaJdbcRepository, CatalogoCache catalogoCache,
+            VentaDiariaService ventaDiariaService, VentaDiariaRepository ventaDiariaRepository,
+            AlertasStock alertasStock, CanalCambiosProducto canalCambios, VersionesProducto versionesProducto,
+            ObjectMapper objectMapper, @Value("${app.ventas.anulacion.maximo:10000}") int maximoAnulacion,
+            @Value("${app.ventas.exportacion.filas-por-lectura:" + Integer.MIN_VALUE + "}")
+            int filasPorLecturaExportacion) {
         this.ventaRepository = ventaRepository;
         this.productoRepository = productoRepository;
+        this.ventaJdbcRepository = ventaJdbcRepository;
+        this.catalogoCache = catalogoCache;
+        this.ventaDiariaService = ventaDiariaService;
+        this.ventaDiariaRepository = ventaDiariaRepository;
+        this.alertasStock = alertasStock;
+        this.canalCambios = canalCambios;
+        this.versionesProducto = versionesProducto;
+        this.objectMapper = objectMapper;
+        this.maximoAnulacion = maximoAnulacion;
+        this.filasPorLecturaExportacion = filasPorLecturaExportacion;
+    }
+
+    /**
+     * Proyección de sólo lectura: sin entidades administradas ni snapshots
+     * para el dirty checking.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<VentaListado> obtenerTodas() {
+        return ventaRepository.findAllListado();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public MetricasVentas obtenerMetricas(LocalDate desde, LocalDate hasta, String agrupacion) {
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha 'desde' no puede ser posterior a 'hasta'");
+        }
+        // Totales, días y meses salen del rollup venta_diaria (una fila por día
+        // y producto). El detalle por producto agrupa por nombre, que el rollup
+        // no conserva para las ventas históricas sin producto: va a venta.
+        LocalDate inicio = inicioDe(desde).toLocalDate();
+        LocalDate fin = finDe(hasta).toLocalDate();
+
+        List<ResumenVentas> detalle;
+        if ("producto".equals(agrupacion)) {
+            detalle = ventaRepository.resumirPorProducto(inicioDe(desde), finDe(hasta));
+        } else if ("dia".equals(agrupacion)) {
+            detalle = ventaDiariaRepository.resumirPorDia(inicio, fin);
+        } else if ("mes".equals(agrupacion)) {
+            detalle = ventaDiariaRepository.resumirPorMes(inicio, fin).stream()
+                    .map(fila -> new ResumenVentas(YearMonth.of(((Number) fila[0]).intValue(),
+                            ((Number) fila[1]).intValue()), (Double) fila[2], (Double) fila[3], (Long) fila[4],
+                            (Long) fila[5]))
+                    .toList();
+        } else {
+            throw new IllegalArgumentException("Agrupación no soportada: " + agrupacion);
+        }
+
+        ResumenVentas totales = ventaDiariaRepository.resumir(inicio, fin);
+        return new MetricasVentas(desde, hasta, agrupacion, totales, detalle);
     }
 
     @Override
-    public List<Venta> obtenerTodas() {
-        return ventaRepository.findAll();
+    @Transactional(readOnly = true)
+    public void exportar(LocalDate desde, LocalDate hasta, String formato, OutputStream salida) throws IOException {
+        boolean csv = "csv".equals(formato);
+        if (!csv && !"ndjson".equals(formato)) {
+            throw new IllegalArgumentException("Formato no soportado: " + formato);
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(CABECERA_CSV);
+            writer.write('\n');
+        }
+
+        try (Stream<Venta> ventas = streamPorRango(inicioDe(desde), finDe(hasta))) {
+            int[] escritas = { 0 };
+            ventas.forEach(venta -> {
+                try {
+                    writer.write(csv ? aCsv(venta) : objectMapper.writeValueAsString(venta));
+                    writer.write('\n');
+                    // Soltamos la entidad para que el contexto de persistencia no crezca
+                    entityManager.detach(venta);
+                    if (++escritas[0] % FLUSH_CADA == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Recorre las ventas del rango [inicio, fin) en orden cronológico sin
+     * materializarlas en una lista. Debe consumirse dentro de una transacción
+     * y cerrarse al terminar.
+     * <p>
+     * El fetch size se fija sólo en esta consulta: con el valor por defecto
+     * (Integer.MIN_VALUE) el driver de MySQL lee el resultado en streaming,
+     * sin {@code useCursorFetch} en la URL, que llevaría a prepared
+     * statements del servidor a toda la aplicación.
+     */
+    private Stream<Venta> streamPorRango(LocalDateTime inicio, LocalDateTime fin) {
+        return entityManager.createQuery(VENTAS_POR_RANGO, Venta.class)
+                .setParameter("inicio", inicio)
+                .setParameter("fin", fin)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, filasPorLecturaExportacion)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private static String aCsv(Venta venta) {
+        return venta.getId() + ","
+                + (venta.getFechaVenta() != null ? FORMATO_FECHA.format(venta.getFechaVenta()) : "") + ","
+                + (venta.getProductoId() != null ? venta.getProductoId() : "") + ","
+                + escaparCsv(venta.getNombreProducto()) + ","
+                + venta.getCantidadVendida() + ","
+                + venta.getPrecioUnitario() + ","
+                + venta.getMontoTotal() + ","
+                + (venta.getCostoUnitario() != null ? venta.getCostoUnitario() : "");
+    }
+
+    private static String escaparCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.contains(",") || valor.contains("\"") || valor.contains("\n") || valor.contains("\r")) {
+            return "\"" + valor.replace("\"", "\"\"") + "\"";
+        }
+        return valor;
+    }
+
+    private static LocalDateTime inicioDe(LocalDate desde) {
+        return desde != null ? desde.atStartOfDay() : FECHA_MINIMA;
+    }
+
+    private static LocalDateTime finDe(LocalDate hasta) {
+        return hasta != null ? hasta.plusDays(1).atStartOfDay() : FECHA_MAXIMA;
+    }
+
+    @Override
+    @Transactional
+    public ResultadoCheckout checkout(List<LineaCarrito> lineas) {
+        if (lineas == null || lineas.isEmpty()) {
+            throw new IllegalArgumentException("El carrito está vacío");
+        }
+
+        // 1. Unificar líneas repetidas y ordenar por ID: todas las transacciones
+        // bloquean las filas en el mismo orden, así dos carritos no se bloquean
+        // mutuamente (deadlock).
+        Map<Long, Integer> cantidades = new TreeMap<>();
+        for (LineaCarrito linea : lineas) {
+            if (linea.getProductoId() == null || linea.getCantidad() <= 0) {
+                throw new IllegalArgumentException("Cada línea debe tener producto y una cantidad mayor a 0");
+            }
+            try {
+                cantidades.merge(linea.getProductoId(), linea.getCantidad(), Math::addExact);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException(
+                        "La cantidad total del producto con ID " + linea.getProductoId() + " es demasiado grande");
+            }
+        }
+
+        // 2. Descontar stock; cualquier falla revierte toda la transacción
+        for (Map.Entry<Long, Integer> entrada : cantidades.entrySet()) {
+            Long id = entrada.getKey();
+            if (productoRepository.descontarStock(id, entrada.getValue()) == 0) {
+                if (!productoRepository.existsById(id)) {
+                    throw new RuntimeException("Producto no encontrado con ID: " + id);
+                }
+                throw new RuntimeException("Stock insuficiente para el producto con ID: " + id);
+            }
+        }
+
+        // 3. Armar las ventas con una sola consulta de proyección
+        Map<Long, ProductoResumen> productos = productoRepository.findResumenByIdIn(cantidades.keySet()).stream()
+                .collect(Collectors.toMap(ProductoResumen::getId, Function.identity()));
+        LocalDateTime fecha = LocalDateTime.now();
+        List<Venta> ventas = new ArrayList<>(cantidades.size());
+        List<ProductoResumen> resultado = new ArrayList<>(cantidades.size());
+        int unidades = 0;
+        double montoTotal = 0;
+        for (Map.Entry<Long, Integer> entrada : cantidades.entrySet()) {
+            ProductoResumen producto = productos.get(entrada.getKey());
+            int cantidad = entrada.getValue();
+            double precioUnitario = producto.getPrecio().doubleValue();
+
+            Venta venta = new Venta();
+            venta.setFechaVenta(fecha);
+            venta.setNombreProducto(producto.getNombre());
+            venta.setProductoId(producto.getId());
+            venta.setCantidadVendida(cantidad);
+            venta.setPrecioUnitario(precioUnitario);
+            venta.setMontoTotal(precioUnitario * cantidad);
+            venta.setCostoUnitario(producto.getPrecioCosto() != null ? producto.getPrecioCosto() : 0.0);
+            ventas.add(venta);
+            resultado.add(producto);
+
+            unidades += cantidad;
+            montoTotal += venta.getMontoTotal();
+        }
+
+        // 4. Insertar todas las ventas en un único batch JDBC
+        ventaJdbcRepository.insertarLote(ventas);
+        ventaDiariaService.registrar(ventas);
+        // 5. Una versión de cambio para todo el carrito (último paso: la versión se confirma enseguida)
+        long version = versionesProducto.registrar(cantidades.keySet());
+        for (ProductoResumen producto : resultado) {
+            alertasStock.actualizar(producto);
+            canalCambios.publicar(producto, version);
+        }
+        catalogoCache.invalidar(CatalogoCache.Coleccion.PRODUCTOS);
+        return new ResultadoCheckout(fecha, resultado, unidades, montoTotal);
     }
 
     @Override
     @Transactional
     public void eliminarVenta(Long id) {
         // 1. Obtener la venta
-        Venta venta = ventaRepository.findById(id)
+        Venta venta = ventaRepository.findByIdParaEliminar(id)
                 .orElseThrow(() -> new RuntimeException("Venta no encontrada con ID: " + id));
 
-        // 2. Intentar restaurar el stock del producto
+        // 2. Buscar el producto al que se le devuelve el stock
+        Optional<Producto> repuesto;
         if (venta.getProductoId() != null) {
             // Si tenemos el ID, buscamos directamente
-            productoRepository.findById(venta.getProductoId()).ifPresent(producto -> {
-                reponerStock(producto, venta.getCantidadVendida());
-            });
+            repuesto = productoRepository.findById(venta.getProductoId());
         } else {
-            // Si es un dato histórico sin ID, intentamos buscar por nombre (best effort)
-            // Cuidado: findByNombreContainingIgnoreCase devuelve una lista, tomamos el
-            // primero si hay match exacto o asumimos riesgo
-            List<Producto> productos = productoRepository.findByNombreContainingIgnoreCase(venta.getNombreProducto());
-            // Filtramos para ver si hay un match exacto de nombre para ser más seguros
-            productos.stream()
-                    .filter(p -> p.getNombre().equalsIgnoreCase(venta.getNombreProducto()))
-                    .findFirst()
-                    .ifPresent(producto -> {
-                        reponerStock(producto, venta.getCantidadVendida());
-                    });
-        }
-
-        // 3. Eliminar la venta
+            // Dato histórico sin ID (su producto no existía al asignarlos):
+            // mismo nombre normalizado, por índice
+            repuesto = productoRepository.findFirstByNombreNormalizadoOrderByIdAsc(
+                    Producto.normalizarNombre(venta.getNombreProducto()));
+        }
+
+        // 3. Restaurar el stock antes de tocar el rollup: la fila del producto
+        // se bloquea antes que venta_diaria, en el mismo orden que las ventas
+        repuesto.ifPresent(producto -> productoRepository.ajustarStock(producto.getId(), venta.getCantidadVendida()));
+
+        // 4. Eliminar la venta y descontarla del rollup diario
+        ventaDiariaService.revertir(venta);
         ventaRepository.deleteById(id);
+
+        // 5. Versión de cambio al final, para que se confirme enseguida
+        repuesto.ifPresent(this::registrarReposicion);
+        catalogoCache.invalidar(CatalogoCache.Coleccion.PRODUCTOS);
+    }
+
+    @Override
+    @Transactional
+    public ResultadoAnulacion anularVentas(List<Long> ids, LocalDate desde, LocalDate hasta) {
+        boolean porIds = ids != null && !ids.isEmpty();
+        if (porIds == (desde != null || hasta != null)) {
+            throw new IllegalArgumentException("Indicar los ids de las ventas o un rango de fechas, no ambos");
+        }
+
+        // 1. Leer y bloquear las ventas: un DELETE /ventas/{id} o la
+        // asignación de ventas históricas concurrentes esperan al commit
+        List<Venta> ventas;
+        if (porIds) {
+            if (ids.stream().anyMatch(Objects::isNull)) {
+                throw new IllegalArgumentException("Los ids de venta no pueden ser nulos");
+            }
+            Set<Long> pedidas = new TreeSet<>(ids);
+            validarMaximoAnulacion(pedidas.size());
+            ventas = ventaJdbcRepository.bloquearPorIds(pedidas);
+            if (ventas.size() < pedidas.size()) {
+                ventas.forEach(venta -> pedidas.remove(venta.getId()));
+                throw new RuntimeException("Venta no encontrada con ID: " + pedidas.iterator().next());
+            }
+        } else {
+            if (desde == null || hasta == null) {
+                throw new IllegalArgumentException("El rango de fechas necesita 'desde' y 'hasta'");
+            }
+            if (desde.isAfter(hasta)) {
+                throw new IllegalArgumentException("La fecha 'desde' no puede ser posterior a 'hasta'");
+            }
+            // Contar antes de bloquear: un rango enorme no llega a tomar los bloqueos
+            validarMaximoAnulacion(ventaJdbcRepository.contarPorRango(inicioDe(desde), finDe(hasta)));
+            ventas = ventaJdbcRepository.bloquearPorRango(inicioDe(desde), finDe(hasta));
+        }
+        if (ventas.isEmpty()) {
+            return new ResultadoAnulacion(0, 0, 0, List.of());
+        }
+
+        // 2. Unidades a reponer por producto, ordenadas por ID como en el
+        // checkout. Las históricas sin ID van al producto con el mismo nombre.
+        // El total de toda la anulación puede pasar de un int; el de un
+        // producto no, porque el stock no podría guardarlo.
+        Map<Long, Integer> unidadesPorProducto = new TreeMap<>();
+        Map<String, Long> productosPorNombre = productosPorNombre(ventas);
+        long unidades = 0;
+        double montoAnulado = 0;
+        for (Venta venta : ventas) {
+            Long productoId = venta.getProductoId() != null ? venta.getProductoId()
+                    : productosPorNombre.get(Producto.normalizarNombre(venta.getNombreProducto()));
+            if (productoId != null) {
+                try {
+                    unidadesPorProducto.merge(productoId, venta.getCantidadVendida(), Math::addExact);
+                } catch (ArithmeticException e) {
+                    throw new IllegalArgumentException(
+                            "Las unidades a reponer al producto con ID " + productoId + " son demasiadas");
+                }
+            }
+            unidades += venta.getCantidadVendida();
+            montoAnulado += venta.getMontoTotal();
+        }
+
+        // 3. Reponer el stock: un UPDATE por producto en orden de ID; los que
+        // ya no existen se omiten. Las filas de producto se bloquean antes que
+        // venta_diaria, en el mismo orden que las ventas.
+        List<Long> repuestos = new ArrayList<>(unidadesPorProducto.size());
+        for (Map.Entry<Long, Integer> entrada : unidadesPorProducto.entrySet()) {
+            if (productoRepository.ajustarStock(entrada.getKey(), entrada.getValue()) > 0) {
+                repuestos.add(entrada.getKey());
+            }
+        }
+
+        // 4. Descontarlas del rollup diario y borrarlas por bloques
+        ventaDiariaService.revertir(ventas);
+        ventaJdbcRepository.eliminar(ventas.stream().map(Venta::getId).toList());
+
+        // 5. Una versión de cambio para toda la anulación (último paso: la versión se confirma enseguida)
+        List<ProductoResumen> productos = List.of();
+        if (!repuestos.isEmpty()) {
+            productos = productoRepository.findResumenByIdIn(repuestos).stream()
+                    .sorted(Comparator.comparing(ProductoResumen::getId))
+                    .toList();
+            long version = versionesProducto.registrar(repuestos);
+            for (ProductoResumen producto : productos) {
+                alertasStock.actualizar(producto);
+                canalCambios.publicar(producto, version);
+            }
+        }
+        catalogoCache.invalidar(CatalogoCache.Coleccion.PRODUCTOS);
+        return new ResultadoAnulacion(ventas.size(), unidades, montoAnulado, productos);
+    }
+
+    /**
+     * Una anulación es una sola transacción que bloquea todas sus ventas: más
+     * de {@code app.ventas.anulacion.maximo} se rechazan y hay que partirlas.
+     */
+    private void validarMaximoAnulacion(long cantidad) {
+        if (cantidad > maximoAnulacion) {
+            throw new IllegalArgumentException("No se pueden anular más de " + maximoAnulacion
+                    + " ventas por pedido (se pidieron " + cantidad + "); dividir el rango");
+        }
+    }
+
+    /**
+     * Productos por nombre normalizado para las ventas históricas sin ID, en
+     * una sola consulta; ante nombres repetidos, el de menor ID (igual que
+     * {@link #eliminarVenta}).
+     */
+    private Map<String, Long> productosPorNombre(List<Venta> ventas) {
+        Set<String> nombres = new HashSet<>();
+        for (Venta venta : ventas) {
+            if (venta.getProductoId() == null) {
+                nombres.add(Producto.normalizarNombre(venta.getNombreProducto()));
+            }
+        }
+        Map<String, Long> productos = new HashMap<>();
+        if (!nombres.isEmpty()) {
+            for (ProductoResumen producto : productoRepository.findResumenByNombreNormalizadoIn(nombres)) {
+                productos.merge(Producto.normalizarNombre(producto.getNombre()), producto.getId(), Math::min);
+            }
+        }
+        return productos;
+    }
+
+    @Override
+    public ResultadoReconstruccion reconstruirResumenDiario() {
+        return ventaDiariaService.reconstruir();
     }
 
-    private void reponerStock(Producto producto, int cantidad) {
-        producto.setStock(producto.getStock() + cantidad);
-        productoRepository.save(producto);
+    /**
+     * Registra el cambio de stock de un producto al que se le devolvieron
+     * unidades (con el mismo UPDATE atómico que el ajuste manual, que no pisa
+     * ventas concurrentes ni incrementa la versión de bloqueo optimista). Va
+     * al final de la transacción, para que la versión se confirme enseguida.
+     */
+    private void registrarReposicion(Producto producto) {
+        ProductoResumen repuesto = productoRepository.findResumenById(producto.getId()).orElseThrow();
+        long version = versionesProducto.registrar(List.of(producto.getId()));
+        alertasStock.actualizar(repuesto);
+        canalCambios.publicar(repuesto, version);
     }
 }
@@ -0,0 +1,229 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Producto;
+import com.example.demo.model.ProductoEliminado;
+import com.example.demo.repository.ProductoEliminadoRepository;
+import com.example.demo.repository.ProductoRepository;
+import com.example.demo.repository.RegistroCambioJdbcRepository;
+import com.example.demo.repository.RegistroCambioJdbcRepository.Cambio;
+import com.example.demo.repository.SecuenciaCambiosJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.demo.repository.SecuenciaCambiosJdbcRepository.PRODUCTOS;
+
+/**
+ * Asigna versiones de cambio a los productos modificados y registra las
+ * bajas como marcas de borrado.
+ * <p>
+ * Cada transacción toma su versión insertando una fila en
+ * {@code registro_cambio}, sin bloquear nada hasta el commit: las escrituras
+ * concurrentes no se esperan entre sí. Por eso las versiones pueden
+ * confirmarse en otro orden, y {@link #actual()} no devuelve la última
+ * asignada sino la marca hasta la que ya no puede aparecer un cambio "viejo".
+ * <p>
+ * Los métodos {@code registrar*} van al final de cada transacción: la marca
+ * supone que entre tomar la versión y confirmarla pasa menos de
+ * {@code app.cambios.margen}.
+ */
+@Component
+public class VersionesProducto {
+
+    private static final int CAMBIOS_POR_CONSULTA = 1000;
+    private static final int BORRADOS_POR_LOTE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(VersionesProducto.class);
+
+    private final SecuenciaCambiosJdbcRepository secuencia;
+    private final RegistroCambioJdbcRepository registro;
+    private final ProductoRepository productoRepository;
+    private final ProductoEliminadoRepository productoEliminadoRepository;
+    private final Duration margen;
+    private final Duration limpieza;
+    private final AtomicLong marca = new AtomicLong();
+    private ScheduledExecutorService limpiador;
+
+    public VersionesProducto(SecuenciaCambiosJdbcRepository secuencia, RegistroCambioJdbcRepository registro,
+            ProductoRepository productoRepository, ProductoEliminadoRepository productoEliminadoRepository,
+            @Value("${app.cambios.margen:5s}") Duration margen,
+            @Value("${app.cambios.limpieza:1m}") Duration limpieza) {
+        this.secuencia = secuencia;
+        this.registro = registro;
+        this.productoRepository = productoRepository;
+        this.productoEliminadoRepository = productoEliminadoRepository;
+        this.margen = margen;
+        this.limpieza = limpieza;
+    }
+
+    /**
+     * Crea la fila de la secuencia apenas está el esquema, antes de los
+     * datos iniciales.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void inicializar() {
+        secuencia.inicializar(PRODUCTOS);
+        long guardada = secuencia.actual(PRODUCTOS);
+        if (guardada > 0 && registro.ultima() == 0) {
+            // Base con versiones de antes del registro: la numeración sigue desde la última
+            registro.registrar(guardada, LocalDateTime.now());
+        }
+        marca.accumulateAndGet(guardada, Math::max);
+    }
+
+    /**
+     * Asigna una versión nueva a una entidad ya guardada. Primero se envían
+     * sus cambios a la base (bloqueando la fila) y después se toma la
+     * versión.
+     *
+     * @return Versión asignada.
+     */
+    public long registrar(Producto producto) {
+        productoRepository.flush();
+        long version = registrar(List.of(producto.getId()));
+        // versionCambio no es actualizable desde la entidad: esto no genera otro UPDATE
+        producto.setVersionCambio(version);
+        return version;
+    }
+
+    /**
+     * Asigna una misma versión nueva a varios productos ya modificados con
+     * UPDATE (ventas, checkout).
+     *
+     * @return Versión asignada.
+     */
+    public long registrar(Collection<Long> ids) {
+        long version = registro.registrar(LocalDateTime.now());
+        productoRepository.marcarVersion(ids, version);
+        return version;
+    }
+
+    /**
+     * Registra la baja de un producto ya eliminado.
+     *
+     * @return Versión asignada.
+     */
+    public long registrarEliminado(Long id) {
+        productoRepository.flush();
+        long version = registro.registrar(LocalDateTime.now());
+        productoEliminadoRepository.save(new ProductoEliminado(id, version));
+        return version;
+    }
+
+    /**
+     * Después de recargar el catálogo por fuera del servicio (datos
+     * iniciales): versiona los productos sin versión, borra las marcas de
+     * borrado y mueve la base, así los clientes con una copia anterior
+     * reciben el catálogo completo.
+     */
+    @Transactional
+    public void reiniciar() {
+        productoEliminadoRepository.deleteAllInBatch();
+        long version = registro.registrar(LocalDateTime.now());
+        productoRepository.marcarVersionSinAsignar(version);
+        secuencia.fijarBase(PRODUCTOS, version);
+    }
+
+    /**
+     * Versión hasta la que todos los cambios están confirmados o
+     * descartados: un cliente que ya tiene los cambios hasta ella no se
+     * pierde ninguno pidiendo los posteriores.
+     * <p>
+     * Avanza sobre las versiones confirmadas mientras sean consecutivas. Un
+     * hueco es una transacción en curso o revertida; se da por descartado
+     * cuando hay una versión posterior tomada hace más de
+     * {@code app.cambios.margen}, porque la del hueco se tomó antes.
+     *
+     * @return Marca de versiones confirmadas.
+     */
+    public long actual() {
+        // La que guardó la limpieza (de esta u otra instancia) nunca retrocede
+        long nueva = marca.accumulateAndGet(secuencia.actual(PRODUCTOS), Math::max);
+        LocalDateTime limite = LocalDateTime.now().minus(margen);
+        long leida = nueva;
+        List<Cambio> cambios;
+        do {
+            cambios = registro.posterioresA(leida, CAMBIOS_POR_CONSULTA);
+            for (Cambio cambio : cambios) {
+                if (cambio.version() == nueva + 1 || !cambio.registrado().isAfter(limite)) {
+                    nueva = cambio.version();
+                }
+                leida = cambio.version();
+            }
+        } while (cambios.size() == CAMBIOS_POR_CONSULTA);
+        return marca.accumulateAndGet(nueva, Math::max);
+    }
+
+    /**
+     * @return Mayor versión confirmada, aunque todavía falte confirmar alguna
+     *         anterior.
+     */
+    public long ultima() {
+        return Math.max(registro.ultima(), marca.get());
+    }
+
+    /**
+     * @return Versión más antigua desde la que se pueden pedir cambios.
+     */
+    public long base() {
+        return secuencia.base(PRODUCTOS);
+    }
+
+    /**
+     * @return IDs de los productos eliminados después de la versión.
+     */
+    public List<Long> eliminadosDesde(long desde) {
+        return productoEliminadoRepository.findProductoIdByVersionCambioGreaterThan(desde);
+    }
+
+    /**
+     * Arranca la limpieza periódica del registro de cambios.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        limpiador = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("registro-cambios-limpieza").daemon().factory());
+        limpiador.scheduleWithFixedDelay(this::limpiar, limpieza.toMillis(), limpieza.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (limpiador != null) {
+            limpiador.shutdownNow();
+        }
+    }
+
+    /**
+     * Guarda la marca y borra del registro las versiones anteriores, que ya
+     * no hace falta revisar. La fila de la marca queda: el AUTO_INCREMENT
+     * sigue desde ella aunque se reinicie el servidor.
+     */
+    public void limpiar() {
+        try {
+            long hasta = actual();
+            secuencia.guardarMarca(PRODUCTOS, hasta);
+            int borradas;
+            do {
+                borradas = registro.eliminarAnterioresA(hasta, BORRADOS_POR_LOTE);
+            } while (borradas == BORRADOS_POR_LOTE && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException e) {
+            log.warn("No se pudo limpiar el registro de cambios", e);
+        }
+    }
+}
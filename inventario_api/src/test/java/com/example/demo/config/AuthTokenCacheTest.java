@@ -0,0 +1,104 @@
+package com.example.demo.config;
+
+import com.example.demo.service.UserDetailsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AuthTokenCacheTest {
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    private final JwtUtils jwtUtils = new JwtUtils();
+
+    private AuthTokenCache authTokenCache;
+
+    @BeforeEach
+    public void setUp() {
+        authTokenCache = new AuthTokenCache(jwtUtils, userDetailsService, Duration.ofMinutes(5), 100);
+    }
+
+    @Test
+    public void obtenerUsuario_TokenRepetido_DebeConsultarLaBaseUnaSolaVez() {
+        UserDetails admin = new User("admin", "hash", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        when(userDetailsService.loadUserByUsername("admin")).thenReturn(admin);
+        String token = jwtUtils.generateToken("admin");
+
+        assertEquals("admin", authTokenCache.obtenerUsuario(token).getUsername());
+        assertEquals("admin", authTokenCache.obtenerUsuario(token).getUsername());
+
+        verify(userDetailsService, times(1)).loadUserByUsername("admin");
+    }
+
+    @Test
+    public void obtenerUsuario_TokenInvalido_DebeRetornarNull() {
+        assertNull(authTokenCache.obtenerUsuario("no.es.un.jwt"));
+        // Un token firmado con otra clave tampoco es válido
+        assertNull(authTokenCache.obtenerUsuario(new JwtUtils().generateToken("admin")));
+
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    public void invalidarTodo_DebeRecargarElUsuarioEnElSiguienteRequest() {
+        UserDetails admin = new User("admin", "hash", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        UserDetails vendedor = new User("admin", "hash", List.of(new SimpleGrantedAuthority("ROLE_VENDEDOR")));
+        when(userDetailsService.loadUserByUsername("admin")).thenReturn(admin, vendedor);
+        String token = jwtUtils.generateToken("admin");
+
+        authTokenCache.obtenerUsuario(token);
+        authTokenCache.invalidarTodo();
+
+        assertEquals("[ROLE_VENDEDOR]", authTokenCache.obtenerUsuario(token).getAuthorities().toString());
+    }
+
+    @Test
+    public void alCambiarUsuario_EnTransaccion_DebeInvalidarRecienDespuesDelCommit() {
+        UserDetails admin = new User("admin", "hash", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        when(userDetailsService.loadUserByUsername("admin")).thenReturn(admin);
+        String token = jwtUtils.generateToken("admin");
+        UserChangeListener listener = new UserChangeListener();
+        ReflectionTestUtils.setField(listener, "authTokenCache",
+                new StaticListableBeanFactory(Map.of("authTokenCache", authTokenCache))
+                        .getBeanProvider(AuthTokenCache.class));
+
+        authTokenCache.obtenerUsuario(token);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            listener.alCambiarUsuario(new com.example.demo.model.User());
+            // Antes del commit el usuario sigue en la caché
+            authTokenCache.obtenerUsuario(token);
+            verify(userDetailsService, times(1)).loadUserByUsername("admin");
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        authTokenCache.obtenerUsuario(token);
+        verify(userDetailsService, times(2)).loadUserByUsername("admin");
+    }
+}
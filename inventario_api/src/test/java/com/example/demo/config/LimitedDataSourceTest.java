@@ -0,0 +1,66 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LimitedDataSourceTest {
+
+    @Mock
+    private DataSource pool;
+
+    private LimitedDataSource limitador;
+
+    @BeforeEach
+    public void setUp() {
+        limitador = new LimitedDataSource(pool, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    public void getConnection_SinPermisos_DebeFallarSinLlegarAlPool() throws SQLException {
+        when(pool.getConnection()).thenReturn(mock(Connection.class), mock(Connection.class));
+        limitador.getConnection();
+        limitador.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, limitador::getConnection);
+        verify(pool, times(2)).getConnection();
+        assertEquals(2, limitador.getEnUso());
+    }
+
+    @Test
+    public void close_DebeDevolverElPermisoUnaSolaVez() throws SQLException {
+        Connection conexion = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(conexion);
+
+        Connection entregada = limitador.getConnection();
+        entregada.close();
+        entregada.close();
+
+        verify(conexion, times(2)).close();
+        assertEquals(0, limitador.getEnUso());
+    }
+
+    @Test
+    public void getConnection_ErrorDelPool_DebeDevolverElPermiso() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLException("sin conexión"));
+
+        assertThrows(SQLException.class, limitador::getConnection);
+        assertEquals(0, limitador.getEnUso());
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CatalogoCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ruteo contra dos H2 embebidas, una como primaria y otra como réplica. La
+ * replicación se simula copiando el latido de una a la otra.
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private EmbeddedDatabase primaria;
+    private EmbeddedDatabase replica;
+    private boolean replicaCaida;
+    private ReplicaRoutingDataSource ruteo;
+    private JdbcTemplate jdbc;
+    private DataSourceTransactionManager transacciones;
+
+    @BeforeEach
+    public void setUp() {
+        primaria = base("primaria");
+        replica = base("replica");
+        new JdbcTemplate(replica).execute("CREATE TABLE replica_latido (id INT PRIMARY KEY, instante BIGINT)");
+
+        DelegatingDataSource conexionesReplica = new DelegatingDataSource(replica) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (replicaCaida) {
+                    throw new SQLException("réplica caída");
+                }
+                return super.getConnection();
+            }
+        };
+        ruteo = new ReplicaRoutingDataSource(primaria,
+                List.of(new ReplicaRoutingDataSource.Replica("replica-0", conexionesReplica)), Duration.ofSeconds(2));
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(ruteo);
+        jdbc = new JdbcTemplate(dataSource);
+        transacciones = new DataSourceTransactionManager(dataSource);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ruteo.close();
+        primaria.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    public void getConnection_DebeMandarSoloLasTransaccionesReadOnlyALaReplica() {
+        ruteo.controlar();
+        replicar(0);
+        ruteo.controlar();
+
+        assertEquals("replica", leer(true, null));
+        assertEquals("primaria", leer(false, null));
+        assertEquals("primaria", jdbc.queryForObject("SELECT nombre FROM origen", String.class));
+        // findById de un repositorio fuera de un servicio: puede ser parte de una escritura
+        assertEquals("primaria",
+                leer(true, "org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById"));
+        assertEquals(0, ruteo.getLecturasEnPrimaria());
+    }
+
+    @Test
+    public void getConnection_ReplicaAtrasada_DebeLeerDeLaPrimariaHastaQueSePongaAlDia() {
+        ruteo.controlar();
+        replicar(-60_000);
+        ruteo.controlar();
+
+        assertFalse(ruteo.getReplicas().get(0).isDisponible());
+        assertTrue(ruteo.getReplicas().get(0).getDemoraMillis() >= 60_000);
+        assertEquals("primaria", leer(true, null));
+        assertEquals(1, ruteo.getLecturasEnPrimaria());
+
+        replicar(0);
+        ruteo.controlar();
+        assertEquals("replica", leer(true, null));
+    }
+
+    @Test
+    public void getConnection_ReplicaSinConexion_DebeLeerDeLaPrimaria() {
+        ruteo.controlar();
+        replicar(0);
+        ruteo.controlar();
+        replicaCaida = true;
+
+        assertEquals("primaria", leer(true, null));
+        assertFalse(ruteo.getReplicas().get(0).isDisponible());
+
+        // El control siguiente tampoco la alcanza: sigue fuera
+        ruteo.controlar();
+        assertEquals("primaria", leer(true, null));
+        assertEquals(-1, ruteo.getReplicas().get(0).getDemoraMillis());
+    }
+
+    @Test
+    public void catalogoCache_EscrituraSeguidaDeLectura_DebeRecargarDeLaPrimaria() {
+        ruteo.controlar();
+        replicar(0);
+        ruteo.controlar();
+        CatalogoCache cache = new CatalogoCache(new ObjectMapper(), Duration.ofMinutes(5));
+        assertEquals("\"primaria\"", new String(cache.obtener(CatalogoCache.Coleccion.PRODUCTOS,
+                () -> leer(true, null)).getCuerpo(), StandardCharsets.UTF_8));
+
+        // La escritura todavía no llegó a la réplica, que sigue dentro de la demora máxima
+        new TransactionTemplate(transacciones).executeWithoutResult(estado -> {
+            jdbc.update("UPDATE origen SET nombre = 'modificada'");
+            cache.invalidar(CatalogoCache.Coleccion.PRODUCTOS);
+        });
+
+        assertEquals("\"modificada\"", new String(cache.obtener(CatalogoCache.Coleccion.PRODUCTOS,
+                () -> leer(true, null)).getCuerpo(), StandardCharsets.UTF_8));
+        // Fuera de la caché las lecturas siguen yendo a la réplica
+        assertEquals("replica", leer(true, null));
+    }
+
+    private String leer(boolean soloLectura, String nombre) {
+        TransactionTemplate transaccion = new TransactionTemplate(transacciones);
+        transaccion.setReadOnly(soloLectura);
+        transaccion.setName(nombre);
+        return transaccion.execute(estado -> jdbc.queryForObject("SELECT nombre FROM origen", String.class));
+    }
+
+    /**
+     * Copia a la réplica el latido de la primaria, corrido {@code desplazamiento} ms.
+     */
+    private void replicar(long desplazamiento) {
+        Long instante = new JdbcTemplate(primaria).queryForObject("SELECT instante FROM replica_latido", Long.class);
+        JdbcTemplate destino = new JdbcTemplate(replica);
+        destino.update("DELETE FROM replica_latido");
+        destino.update("INSERT INTO replica_latido (id, instante) VALUES (1, ?)", instante + desplazamiento);
+    }
+
+    private static EmbeddedDatabase base(String nombre) {
+        EmbeddedDatabase base = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate jdbc = new JdbcTemplate(base);
+        jdbc.execute("CREATE TABLE origen (nombre VARCHAR(20))");
+        jdbc.update("INSERT INTO origen (nombre) VALUES (?)", nombre);
+        return base;
+    }
+}
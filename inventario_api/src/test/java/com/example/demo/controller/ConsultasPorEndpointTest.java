@@ -0,0 +1,100 @@
+package com.example.demo.controller;
+
+import com.example.demo.config.QueryCountInspector;
+import com.example.demo.model.Categoria;
+import com.example.demo.model.Marca;
+import com.example.demo.model.Producto;
+import com.example.demo.repository.CategoriaRepository;
+import com.example.demo.repository.MarcaRepository;
+import com.example.demo.service.CatalogoCache;
+import com.example.demo.service.ProductoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * La cantidad de consultas SQL de cada listado no debe depender de cuántas
+ * filas, categorías o marcas haya (sin N+1).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(username = "admin", roles = "USER")
+public class ConsultasPorEndpointTest {
+
+    private static final List<String> LISTADOS = List.of(
+            "/productos",
+            "/productos?search=Extra",
+            "/productos?limite=200",
+            "/marcas",
+            "/categorias");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private MarcaRepository marcaRepository;
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Test
+    public void listados_DebenEjecutarLasMismasConsultasSinImportarLaCantidadDeFilas() throws Exception {
+        agregarProductos(2);
+        Map<String, Integer> conPocos = contarConsultas();
+
+        agregarProductos(30);
+        Map<String, Integer> conMuchos = contarConsultas();
+
+        assertEquals(conPocos, conMuchos);
+    }
+
+    private Map<String, Integer> contarConsultas() throws Exception {
+        Map<String, Integer> consultas = new LinkedHashMap<>();
+        for (String url : LISTADOS) {
+            // Sin caché, para medir la carga desde la base
+            catalogoCache.invalidar(CatalogoCache.Coleccion.values());
+            mockMvc.perform(get(url)).andExpect(status().isOk());
+            consultas.put(url, QueryCountInspector.obtener());
+        }
+        return consultas;
+    }
+
+    /**
+     * Cada producto con su propia categoría y su propia marca, para que un
+     * N+1 sobre cualquiera de las asociaciones cambie el conteo.
+     */
+    private void agregarProductos(int cantidad) {
+        long base = System.nanoTime();
+        for (int i = 0; i < cantidad; i++) {
+            Categoria categoria = categoriaRepository.save(new Categoria("Categoria " + base + "-" + i));
+            Marca marca = new Marca("Marca " + base + "-" + i);
+            marca.setCategorias(List.of(categoria));
+            marca = marcaRepository.save(marca);
+
+            Producto producto = new Producto("Extra " + base + "-" + i, new BigDecimal("10.00"), 5);
+            producto.setCategoria(categoria);
+            producto.setMarca(marca);
+            productoService.guardar(producto);
+        }
+    }
+}
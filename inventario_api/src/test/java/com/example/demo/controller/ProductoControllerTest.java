@@ -1,16 +1,32 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.AlertaStock;
+import com.example.demo.dto.CambiosProductos;
+import com.example.demo.dto.FiltroProductos;
+import com.example.demo.dto.PaginaProductos;
+import com.example.demo.dto.ProductoListado;
+import com.example.demo.dto.ProductoResumen;
 import com.example.demo.model.Producto;
+import com.example.demo.service.AlertasStock;
+import com.example.demo.service.CanalCambiosProducto;
+import com.example.demo.service.CatalogoCache;
+import com.example.demo.service.ClavesIdempotencia;
+import com.example.demo.service.ImportacionProductos;
 import com.example.demo.service.ProductoService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -26,6 +42,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ProductoController.class)
+@Import(CatalogoCache.class)
 public class ProductoControllerTest {
 
         @Autowired
@@ -35,22 +52,80 @@ public class ProductoControllerTest {
         private ProductoService productoService;
 
         @MockBean
-        private com.example.demo.config.JwtUtils jwtUtils;
+        private com.example.demo.config.AuthTokenCache authTokenCache;
 
         @MockBean
-        private com.example.demo.service.UserDetailsServiceImpl userDetailsService;
+        private AlertasStock alertasStock;
+
+        @MockBean
+        private CanalCambiosProducto canalCambios;
+
+        @MockBean
+        private ImportacionProductos importacionProductos;
+
+        @MockBean
+        private ClavesIdempotencia clavesIdempotencia;
 
         @Autowired
         private ObjectMapper objectMapper;
 
+        @Autowired
+        private CatalogoCache catalogoCache;
+
+        @BeforeEach
+        public void limpiarCache() {
+                // El contexto se comparte entre tests; cada uno parte sin listado cacheado
+                catalogoCache.invalidar(CatalogoCache.Coleccion.PRODUCTOS);
+        }
+
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void obtenerAlertas_DebeRetornarLasAlertasDelIndice() throws Exception {
+                Mockito.when(alertasStock.obtenerAlertas()).thenReturn(List.of(
+                                new AlertaStock(7L, "Filtro de Aceite", 0, 5),
+                                new AlertaStock(3L, "Bujía", 4, 5)));
+
+                mockMvc.perform(get("/productos/alertas"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$", hasSize(2)))
+                                .andExpect(jsonPath("$[0].productoId", is(7)))
+                                .andExpect(jsonPath("$[0].faltante", is(6)))
+                                .andExpect(jsonPath("$[1].nombre", is("Bujía")));
+        }
+
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void obtenerCambios_DebeRetornarLosCambiosDesdeLaVersion() throws Exception {
+                ProductoListado cambiado = new ProductoListado(4L, "Mouse", new BigDecimal("25.00"), 49, null, 5,
+                                null, null, null, null, 3L, 12L);
+                Mockito.when(productoService.obtenerCambios(10L))
+                                .thenReturn(new CambiosProductos(13L, false, List.of(cambiado), List.of(7L)));
+
+                mockMvc.perform(get("/productos/cambios").param("desde", "10"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.version", is(13)))
+                                .andExpect(jsonPath("$.completo", is(false)))
+                                .andExpect(jsonPath("$.productos[0].versionCambio", is(12)))
+                                .andExpect(jsonPath("$.eliminados[0]", is(7)));
+        }
+
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void suscribirCambios_DebeAbrirUnStreamSse() throws Exception {
+                Mockito.when(canalCambios.suscribir()).thenReturn(new SseEmitter());
+
+                mockMvc.perform(get("/productos/cambios/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                                .andExpect(request().asyncStarted());
+        }
+
         @Test
         @WithMockUser(username = "admin", roles = "USER")
         public void obtenerTodos_DebeRetornarListaDeProductosYStatus200() throws Exception {
-                Producto p1 = new Producto("Laptop", new BigDecimal("1500.00"), 10);
-                p1.setId(1L);
-                Producto p2 = new Producto("Mouse", new BigDecimal("25.00"), 50);
-                p2.setId(2L);
-                List<Producto> productos = Arrays.asList(p1, p2);
+                ProductoListado p1 = new ProductoListado(1L, "Laptop", new BigDecimal("1500.00"), 10, 1000.0, 5,
+                                3L, "Laptops", 4L, "Dell");
+                ProductoListado p2 = new ProductoListado(2L, "Mouse", new BigDecimal("25.00"), 50, null, 5,
+                                null, null, null, null);
+                List<ProductoListado> productos = Arrays.asList(p1, p2);
 
                 Mockito.when(productoService.obtenerTodos()).thenReturn(productos);
 
@@ -59,7 +134,69 @@ public class ProductoControllerTest {
                                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                                 .andExpect(jsonPath("$", hasSize(2)))
                                 .andExpect(jsonPath("$[0].nombre", is("Laptop")))
-                                .andExpect(jsonPath("$[1].nombre", is("Mouse")));
+                                .andExpect(jsonPath("$[0].categoria.nombre", is("Laptops")))
+                                .andExpect(jsonPath("$[0].marca.id", is(4)))
+                                .andExpect(jsonPath("$[0].margenGanancia", is(50.0)))
+                                .andExpect(jsonPath("$[1].nombre", is("Mouse")))
+                                .andExpect(jsonPath("$[1].categoria").value(org.hamcrest.Matchers.nullValue()));
+        }
+
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void obtenerTodos_ConEtagVigente_DebeRetornar304SinConsultarDeNuevo() throws Exception {
+                ProductoListado p1 = new ProductoListado(1L, "Laptop", new BigDecimal("1500.00"), 10, null, 5,
+                                null, null, null, null);
+                Mockito.when(productoService.obtenerTodos()).thenReturn(List.of(p1));
+
+                String etag = mockMvc.perform(get("/productos"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().exists(HttpHeaders.ETAG))
+                                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+                mockMvc.perform(get("/productos").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+
+                Mockito.verify(productoService, Mockito.times(1)).obtenerTodos();
+        }
+
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void obtenerPagina_ConLimite_DebeRetornarPaginaConCursor() throws Exception {
+                Producto p1 = new Producto("Laptop", new BigDecimal("1500.00"), 2);
+                p1.setId(1L);
+                PaginaProductos pagina = new PaginaProductos(List.of(p1), "c2lndWllbnRl", true);
+
+                Mockito.when(productoService.obtenerPagina(any(FiltroProductos.class), eq(null), eq(1)))
+                                .thenReturn(pagina);
+
+                mockMvc.perform(get("/productos")
+                                .param("limite", "1")
+                                .param("stockBajo", "true")
+                                .param("orden", "precio")
+                                .param("direccion", "desc"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.contenido", hasSize(1)))
+                                .andExpect(jsonPath("$.contenido[0].nombre", is("Laptop")))
+                                .andExpect(jsonPath("$.siguienteCursor", is("c2lndWllbnRl")))
+                                .andExpect(jsonPath("$.hayMas", is(true)));
+
+                Mockito.verify(productoService).obtenerPagina(
+                                org.mockito.ArgumentMatchers.argThat(f -> f.isStockBajo()
+                                                && f.getOrden().equals("precio") && f.isDescendente()),
+                                eq(null), eq(1));
+        }
+
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void obtenerPagina_CursorInvalido_DebeRetornarStatus400() throws Exception {
+                Mockito.when(productoService.obtenerPagina(any(FiltroProductos.class), eq("xx"), eq(10)))
+                                .thenThrow(new IllegalArgumentException("Cursor inválido"));
+
+                mockMvc.perform(get("/productos")
+                                .param("limite", "10")
+                                .param("cursor", "xx"))
+                                .andExpect(status().isBadRequest());
         }
 
         @Test
@@ -102,6 +239,89 @@ public class ProductoControllerTest {
                                 .andExpect(jsonPath("$.precio", is(350.00)));
         }
 
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void obtenerPorId_VentaPosterior_NoDebeRetornar304ConStockViejo() throws Exception {
+                Mockito.when(productoService.obtenerPorId(1L)).thenReturn(Optional.of(new ProductoListado(1L, "Mouse",
+                                new BigDecimal("25.00"), 10, null, 5, null, null, null, null, 2L, 7L)));
+                String etag = mockMvc.perform(get("/productos/{id}", 1L))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string(HttpHeaders.ETAG, "\"2-7\""))
+                                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+                mockMvc.perform(get("/productos/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified());
+
+                // Una venta no cambia la versión de edición, pero sí la de cambio
+                Mockito.when(productoService.obtenerPorId(1L)).thenReturn(Optional.of(new ProductoListado(1L, "Mouse",
+                                new BigDecimal("25.00"), 9, null, 5, null, null, null, null, 2L, 8L)));
+                mockMvc.perform(get("/productos/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.stock", is(9)));
+        }
+
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void actualizar_IfMatchConEtagDelGet_DebeUsarLaVersionDeEdicion() throws Exception {
+                Producto productoDetalles = new Producto("Monitor HD", new BigDecimal("350.00"), 10);
+                Producto productoActualizado = new Producto("Monitor HD", new BigDecimal("350.00"), 10);
+                productoActualizado.setId(1L);
+                productoActualizado.setVersion(4L);
+                productoActualizado.setVersionCambio(9L);
+                Mockito.when(productoService.actualizarProducto(eq(1L),
+                                org.mockito.ArgumentMatchers.argThat(p -> Long.valueOf(3L).equals(p.getVersion()))))
+                                .thenReturn(productoActualizado);
+
+                mockMvc.perform(put("/productos/{id}", 1L)
+                                .with(csrf())
+                                .header(HttpHeaders.IF_MATCH, "\"3-8\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(productoDetalles)))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string(HttpHeaders.ETAG, "\"4-9\""));
+        }
+
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void actualizar_IfMatchDesactualizado_DebeRetornarStatus412() throws Exception {
+                Producto productoDetalles = new Producto("Monitor HD", new BigDecimal("350.00"), 10);
+                Mockito.when(productoService.actualizarProducto(eq(1L),
+                                org.mockito.ArgumentMatchers.argThat(p -> Long.valueOf(3L).equals(p.getVersion()))))
+                                .thenThrow(new OptimisticLockingFailureException("El producto con ID 1 fue modificado"));
+
+                mockMvc.perform(put("/productos/{id}", 1L)
+                                .with(csrf())
+                                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(productoDetalles)))
+                                .andExpect(status().isPreconditionFailed());
+        }
+
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void actualizar_VersionDelCuerpoDesactualizada_DebeRetornarStatus409() throws Exception {
+                Producto productoDetalles = new Producto("Monitor HD", new BigDecimal("350.00"), 10);
+                productoDetalles.setVersion(3L);
+                Mockito.when(productoService.actualizarProducto(eq(1L), any(Producto.class)))
+                                .thenThrow(new OptimisticLockingFailureException("El producto con ID 1 fue modificado"));
+
+                mockMvc.perform(put("/productos/{id}", 1L)
+                                .with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(productoDetalles)))
+                                .andExpect(status().isConflict());
+        }
+
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void ajustarStock_DebeRetornarElStockNuevo() throws Exception {
+                Mockito.when(productoService.ajustarStock(1L, 5))
+                                .thenReturn(new ProductoResumen(1L, "Mouse", new BigDecimal("25.00"), null, 12));
+
+                mockMvc.perform(patch("/productos/{id}/stock", 1L).param("delta", "5").with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.stock", is(12)));
+        }
+
         @Test
         @WithMockUser(username = "admin", roles = "USER")
         public void actualizar_NoExisteId_DebeRetornarStatus404() throws Exception {
@@ -118,6 +338,23 @@ public class ProductoControllerTest {
                                 .andExpect(status().isNotFound());
         }
 
+        @Test
+        @WithMockUser(username = "admin", roles = "USER")
+        public void venderProducto_ReintentoConIdempotencyKey_DebeRepetirLaRespuestaOriginal() throws Exception {
+                String original = "{\"id\":1,\"nombre\":\"Mouse\",\"stock\":9}";
+                Mockito.when(clavesIdempotencia.ejecutar(eq("admin"), eq("pos-7-0001"),
+                                eq("PUT /productos/1/vender"), eq(1), any()))
+                                .thenReturn(new ClavesIdempotencia.Respuesta(original, true));
+
+                mockMvc.perform(put("/productos/{id}/vender", 1L)
+                                .with(csrf())
+                                .header("Idempotency-Key", "pos-7-0001"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Idempotent-Replayed", "true"))
+                                .andExpect(content().json(original));
+                Mockito.verify(productoService, Mockito.never()).venderProducto(any(), Mockito.anyInt());
+        }
+
         @Test
         @WithMockUser(username = "admin", roles = "USER")
         public void eliminar_ExisteId_DebeRetornarStatus204() throws Exception {
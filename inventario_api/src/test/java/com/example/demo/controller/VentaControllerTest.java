@@ -1,7 +1,14 @@
 package com.example.demo.controller;
 
-import com.example.demo.model.Venta;
-import com.example.demo.repository.VentaRepository;
+import com.example.demo.dto.MetricasVentas;
+import com.example.demo.dto.ProductoResumen;
+import com.example.demo.dto.ResultadoAnulacion;
+import com.example.demo.dto.ResultadoCheckout;
+import com.example.demo.dto.ResumenVentas;
+import com.example.demo.dto.VentaListado;
+import com.example.demo.service.ClaveIdempotenciaReutilizadaException;
+import com.example.demo.service.ClavesIdempotencia;
+import com.example.demo.service.VentaService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -9,14 +16,30 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -27,32 +50,165 @@ public class VentaControllerTest {
     private MockMvc mockMvc;
 
     @MockBean
-    private VentaRepository ventaRepository;
+    private VentaService ventaService;
 
     @MockBean
-    private com.example.demo.config.JwtUtils jwtUtils;
+    private com.example.demo.config.AuthTokenCache authTokenCache;
 
     @MockBean
-    private com.example.demo.service.UserDetailsServiceImpl userDetailsService;
+    private ClavesIdempotencia clavesIdempotencia;
 
     @Test
     @WithMockUser(username = "admin", roles = "USER")
     public void obtenerTodasLasVentas_DebeRetornarListaConMontoTotal() throws Exception {
-        Venta venta = new Venta();
-        venta.setId(1L);
-        venta.setNombreProducto("Producto Test");
-        venta.setCantidadVendida(2);
-        venta.setPrecioUnitario(10.0);
-        venta.setMontoTotal(20.0);
-        venta.setFechaVenta(LocalDateTime.now());
+        VentaListado venta = new VentaListado(1L, LocalDateTime.now(), "Producto Test", 7L, 2, 10.0, 20.0, 6.0);
 
-        List<Venta> ventas = Arrays.asList(venta);
+        List<VentaListado> ventas = Arrays.asList(venta);
 
-        given(ventaRepository.findAll()).willReturn(ventas);
+        given(ventaService.obtenerTodas()).willReturn(ventas);
 
         mockMvc.perform(get("/ventas")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].montoTotal", is(20.0)));
     }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "USER")
+    public void obtenerMetricas_DebeRetornarTotalesYUtilidad() throws Exception {
+        LocalDate desde = LocalDate.of(2024, 1, 1);
+        LocalDate hasta = LocalDate.of(2024, 1, 31);
+        ResumenVentas totales = new ResumenVentas(null, 300.0, 180.0, 5L, 2L);
+        ResumenVentas dia = new ResumenVentas(LocalDate.of(2024, 1, 10), 300.0, 180.0, 5L, 2L);
+
+        given(ventaService.obtenerMetricas(desde, hasta, "dia"))
+                .willReturn(new MetricasVentas(desde, hasta, "dia", totales, List.of(dia)));
+
+        mockMvc.perform(get("/ventas/metricas")
+                .param("desde", "2024-01-01")
+                .param("hasta", "2024-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totales.totalVendido", is(300.0)))
+                .andExpect(jsonPath("$.totales.utilidadReal", is(120.0)))
+                .andExpect(jsonPath("$.totales.unidadesVendidas", is(5)))
+                .andExpect(jsonPath("$.detalle[0].grupo", is("2024-01-10")));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "USER")
+    public void obtenerMetricas_AgrupacionInvalida_DebeRetornarStatus400() throws Exception {
+        given(ventaService.obtenerMetricas(any(), any(), any()))
+                .willThrow(new IllegalArgumentException("Agrupación no soportada: semana"));
+
+        mockMvc.perform(get("/ventas/metricas").param("agrupar", "semana"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "USER")
+    public void exportar_Csv_DebeEscribirEnStreaming() throws Exception {
+        willAnswer(invocation -> {
+            java.io.OutputStream salida = invocation.getArgument(3);
+            salida.write("id,fechaVenta\n1,2024-01-10T10:00\n".getBytes());
+            return null;
+        }).given(ventaService).exportar(eq(LocalDate.of(2024, 1, 1)), eq(null), eq("csv"), any());
+
+        MvcResult resultado = mockMvc.perform(get("/ventas/exportar")
+                .param("formato", "csv")
+                .param("desde", "2024-01-01"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Límite propio de la exportación, no el global de spring.mvc.async.request-timeout
+        assertEquals(Duration.ofHours(1).toMillis(), resultado.getRequest().getAsyncContext().getTimeout());
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"ventas.csv\""))
+                .andExpect(content().string("id,fechaVenta\n1,2024-01-10T10:00\n"));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "USER")
+    public void exportar_FormatoInvalido_DebeRetornarStatus400() throws Exception {
+        mockMvc.perform(get("/ventas/exportar").param("formato", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "USER")
+    public void checkout_DebeRetornarTotalesDelCarrito() throws Exception {
+        ResultadoCheckout resultado = new ResultadoCheckout(LocalDateTime.now(),
+                List.of(new ProductoResumen(1L, "Mouse", new BigDecimal("10.00"), 6.0, 8),
+                        new ProductoResumen(2L, "Cable", new BigDecimal("5.00"), 3.0, 19)),
+                3, 25.0);
+        given(ventaService.checkout(anyList())).willReturn(resultado);
+
+        mockMvc.perform(post("/ventas/checkout")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"productoId\":1,\"cantidad\":2},{\"productoId\":2,\"cantidad\":1}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.unidadesVendidas", is(3)))
+                .andExpect(jsonPath("$.montoTotal", is(25.0)))
+                .andExpect(jsonPath("$.productos[0].stock", is(8)));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "USER")
+    public void checkout_StockInsuficiente_DebeRetornarStatus400() throws Exception {
+        given(ventaService.checkout(anyList()))
+                .willThrow(new RuntimeException("Stock insuficiente para el producto con ID: 1"));
+
+        mockMvc.perform(post("/ventas/checkout")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"productoId\":1,\"cantidad\":50}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "USER")
+    public void checkout_IdempotencyKeyDeOtroCarrito_DebeRetornarStatus422() throws Exception {
+        given(clavesIdempotencia.ejecutar(eq("admin"), eq("pos-7-0002"), eq("POST /ventas/checkout"),
+                anyList(), any()))
+                .willThrow(new ClaveIdempotenciaReutilizadaException(
+                        "La Idempotency-Key pos-7-0002 ya se usó con otro pedido"));
+
+        mockMvc.perform(post("/ventas/checkout")
+                .with(csrf())
+                .header("Idempotency-Key", "pos-7-0002")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"productoId\":1,\"cantidad\":3}]"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "USER")
+    public void anular_PorIds_DebeRetornarTotalesYStock() throws Exception {
+        ResultadoAnulacion resultado = new ResultadoAnulacion(3, 7, 70.0,
+                List.of(new ProductoResumen(1L, "Mouse", new BigDecimal("10.00"), 6.0, 15)));
+        given(ventaService.anularVentas(eq(List.of(10L, 11L, 12L)), isNull(), isNull())).willReturn(resultado);
+
+        mockMvc.perform(post("/ventas/anular")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[10,11,12]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ventasAnuladas", is(3)))
+                .andExpect(jsonPath("$.unidadesRepuestas", is(7)))
+                .andExpect(jsonPath("$.productos[0].stock", is(15)));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "USER")
+    public void anular_VentaInexistente_DebeRetornarStatus404() throws Exception {
+        given(ventaService.anularVentas(anyList(), isNull(), isNull()))
+                .willThrow(new RuntimeException("Venta no encontrada con ID: 99"));
+
+        mockMvc.perform(post("/ventas/anular")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[99]}"))
+                .andExpect(status().isNotFound());
+    }
 }
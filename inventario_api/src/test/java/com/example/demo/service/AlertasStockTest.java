@@ -0,0 +1,85 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AlertaStock;
+import com.example.demo.dto.ProductoResumen;
+import com.example.demo.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AlertasStockTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    private AlertasStock alertas;
+
+    @BeforeEach
+    public void setUp() {
+        when(productoRepository.findResumenBajoMinimo()).thenReturn(List.of(
+                resumen(1L, "Bujía", 4, 5),
+                resumen(2L, "Filtro de Aceite", 0, 5),
+                resumen(3L, "Correa", 2, 10)));
+        alertas = new AlertasStock(productoRepository, 16, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        alertas.cargar();
+    }
+
+    @Test
+    public void obtenerAlertas_DebeOrdenarPorCriticidad() {
+        // Correa está 8 por debajo, Filtro 5 y Bujía 1
+        assertEquals(List.of(3L, 2L, 1L), ids(alertas.obtenerAlertas()));
+    }
+
+    @Test
+    public void actualizar_DebeEntrarYSalirAlCruzarElMinimo() {
+        alertas.actualizar(4L, "Aceite", 5, 5);
+        alertas.actualizar(1L, "Bujía", 6, 5);
+        assertEquals(List.of(3L, 2L, 4L), ids(alertas.obtenerAlertas()));
+
+        // Sigue bajo el mínimo pero cambia su posición
+        alertas.actualizar(3L, "Correa", 9, 10);
+        assertEquals(List.of(2L, 3L, 4L), ids(alertas.obtenerAlertas()));
+
+        alertas.eliminar(2L);
+        alertas.actualizar(3L, "Correa", 50, 10);
+        assertEquals(List.of(4L), ids(alertas.obtenerAlertas()));
+    }
+
+    @Test
+    public void actualizar_SinStockMinimoNoGeneraAlerta() {
+        alertas.actualizar(5L, "Sin mínimo", 0, null);
+        assertTrue(alertas.obtenerAlertas().stream().noneMatch(a -> a.getProductoId().equals(5L)));
+    }
+
+    @Test
+    public void cargar_DebeTraerLosCambiosDeOtrasInstancias() {
+        // Otra instancia repuso la Bujía y vendió el último Aceite
+        when(productoRepository.findResumenBajoMinimo()).thenReturn(List.of(
+                resumen(2L, "Filtro de Aceite", 0, 5),
+                resumen(3L, "Correa", 2, 10),
+                resumen(4L, "Aceite", 0, 3)));
+
+        alertas.cargar();
+
+        assertEquals(List.of(3L, 2L, 4L), ids(alertas.obtenerAlertas()));
+    }
+
+    private static List<Long> ids(List<AlertaStock> lista) {
+        return lista.stream().map(AlertaStock::getProductoId).toList();
+    }
+
+    private static ProductoResumen resumen(Long id, String nombre, int stock, int stockMinimo) {
+        return new ProductoResumen(id, nombre, BigDecimal.ONE, 0.0, stock, stockMinimo);
+    }
+}
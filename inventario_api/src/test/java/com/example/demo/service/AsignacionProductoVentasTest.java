@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Producto;
+import com.example.demo.model.Venta;
+import com.example.demo.model.VentaDiaria;
+import com.example.demo.repository.VentaDiariaRepository;
+import com.example.demo.repository.VentaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Ventas históricas sin productoId: la tarea las vincula por nombre
+ * normalizado y mueve su importe en el rollup; al eliminar una que quedó sin
+ * vincular, el stock vuelve al producto con el mismo nombre.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class AsignacionProductoVentasTest {
+
+    @Autowired
+    private AsignacionProductoVentas asignacion;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private VentaDiariaService ventaDiariaService;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private VentaDiariaRepository ventaDiariaRepository;
+
+    @Test
+    public void ejecutar_DebeVincularPorNombreNormalizadoYMoverElRollup() {
+        Long id = productoService.guardar(new Producto("Teclado Histórico", new BigDecimal("50.00"), 10)).getId();
+        Venta vinculable = historica("  teclado  HISTORICO ", 3);
+        Venta huerfana = historica("Producto dado de baja", 1);
+        long sinProductoAntes = unidadesHoy(0L);
+
+        asignacion.ejecutar();
+
+        assertEquals(id, ventaRepository.findById(vinculable.getId()).orElseThrow().getProductoId());
+        assertNull(ventaRepository.findById(huerfana.getId()).orElseThrow().getProductoId());
+        assertEquals(3, unidadesHoy(id));
+        assertEquals(sinProductoAntes - 3, unidadesHoy(0L));
+
+        // Ya procesadas: la siguiente corrida no vuelve sobre ellas
+        assertEquals(0, asignacion.ejecutar());
+    }
+
+    @Test
+    public void eliminarVenta_SinProductoId_DebeReponerAlProductoConElMismoNombre() {
+        Venta venta = historica("MOUSE   Óptico", 2);
+        asignacion.ejecutar();
+        // El producto aparece después de la asignación: la venta quedó sin vincular
+        Long id = productoService.guardar(new Producto("Mouse óptico", new BigDecimal("20.00"), 5)).getId();
+
+        ventaService.eliminarVenta(venta.getId());
+
+        assertEquals(7, productoService.obtenerPorId(id).orElseThrow().getStock());
+    }
+
+    private Venta historica(String nombre, int cantidad) {
+        Venta venta = ventaRepository.save(new Venta(nombre, cantidad, 10.0, 10.0 * cantidad));
+        ventaDiariaService.registrar(List.of(venta));
+        return venta;
+    }
+
+    private long unidadesHoy(Long productoId) {
+        LocalDate hoy = LocalDate.now();
+        return ventaDiariaRepository.findAll().stream()
+                .filter(fila -> fila.getFecha().equals(hoy) && productoId.equals(fila.getProductoId()))
+                .mapToLong(VentaDiaria::getUnidades)
+                .sum();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CambiosProductos;
+import com.example.demo.dto.LineaCarrito;
+import com.example.demo.dto.ProductoListado;
+import com.example.demo.model.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * GET /productos/cambios devuelve sólo lo modificado después de la versión
+ * pedida, incluidas las bajas.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class CambiosProductosTest {
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private VersionesProducto versiones;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void obtenerCambios_DebeDevolverSoloLoModificadoDesdeLaVersion() {
+        Long vendido = productoService.guardar(new Producto("Delta vendido", new BigDecimal("10.00"), 50)).getId();
+        Long enCarrito = productoService.guardar(new Producto("Delta carrito", new BigDecimal("20.00"), 50)).getId();
+        Long borrado = productoService.guardar(new Producto("Delta borrado", new BigDecimal("30.00"), 50)).getId();
+        long desde = productoService.obtenerCambios(0).getVersion();
+
+        productoService.venderProducto(vendido, 2);
+        ventaService.checkout(List.of(new LineaCarrito(enCarrito, 1)));
+        productoService.eliminar(borrado);
+
+        CambiosProductos cambios = productoService.obtenerCambios(desde);
+        assertFalse(cambios.isCompleto());
+        assertEquals(List.of(vendido, enCarrito), cambios.getProductos().stream().map(ProductoListado::getId).toList());
+        assertEquals(48, cambios.getProductos().get(0).getStock());
+        assertEquals(List.of(borrado), cambios.getEliminados());
+        assertTrue(cambios.getVersion() > desde);
+        assertEquals(cambios.getVersion(), cambios.getProductos().get(1).getVersionCambio() + 1);
+
+        // Al día: nada nuevo
+        CambiosProductos sinCambios = productoService.obtenerCambios(cambios.getVersion());
+        assertTrue(sinCambios.getProductos().isEmpty());
+        assertTrue(sinCambios.getEliminados().isEmpty());
+    }
+
+    @Test
+    public void registrar_TransaccionesConcurrentes_NoDebenEsperarseYLaMarcaNoDebeSaltearLaPendiente()
+            throws Exception {
+        Long primero = productoService.guardar(new Producto("Marca primero", new BigDecimal("10.00"), 50)).getId();
+        Long segundo = productoService.guardar(new Producto("Marca segundo", new BigDecimal("10.00"), 50)).getId();
+        long antes = versiones.actual();
+        CountDownLatch registrada = new CountDownLatch(1);
+        CountDownLatch confirmar = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            // La primera toma su versión y queda abierta
+            Future<?> pendiente = executor.submit(() -> transactionTemplate.executeWithoutResult(estado -> {
+                productoService.venderProducto(primero, 1);
+                registrada.countDown();
+                try {
+                    confirmar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(registrada.await(10, TimeUnit.SECONDS));
+
+            // La segunda toma una versión posterior y confirma sin esperar a la primera
+            productoService.venderProducto(segundo, 1);
+            long versionSegundo = versionCambio(segundo);
+            assertTrue(versiones.actual() < versionSegundo);
+            assertEquals(antes, productoService.obtenerCambios(antes).getVersion());
+
+            confirmar.countDown();
+            pendiente.get(10, TimeUnit.SECONDS);
+            assertEquals(versionSegundo, versiones.actual());
+            assertEquals(List.of(primero, segundo), productoService.obtenerCambios(antes).getProductos().stream()
+                    .map(ProductoListado::getId).toList());
+
+            // La limpieza guarda la marca y borra el registro anterior sin moverla
+            versiones.limpiar();
+            assertEquals(versionSegundo, versiones.actual());
+        }
+    }
+
+    @Test
+    public void obtenerCambios_VersionDesconocida_DebeDevolverElCatalogoCompleto() {
+        productoService.guardar(new Producto("Delta completo", new BigDecimal("5.00"), 1));
+        CambiosProductos todo = productoService.obtenerCambios(0);
+        assertTrue(todo.isCompleto());
+        assertFalse(todo.getProductos().isEmpty());
+
+        assertTrue(productoService.obtenerCambios(todo.getVersion() + 1000).isCompleto());
+    }
+
+    private long versionCambio(Long id) {
+        return productoService.obtenerTodos().stream().filter(p -> p.getId().equals(id)).findFirst()
+                .orElseThrow().getVersionCambio();
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.LineaCarrito;
+import com.example.demo.model.Producto;
+import com.example.demo.repository.VentaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reintentos con Idempotency-Key: la venta se hace una sola vez y los
+ * reintentos reciben la respuesta original, también si llegan a la vez.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ClavesIdempotenciaTest {
+
+    @Autowired
+    private ClavesIdempotencia claves;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void ejecutar_Reintento_DebeVenderUnaSolaVezYRepetirLaRespuesta() {
+        Long id = productoService.guardar(new Producto("Mouse Idempotente", new BigDecimal("20.00"), 10)).getId();
+        long ventasAntes = ventaRepository.count();
+
+        ClavesIdempotencia.Respuesta primera = claves.ejecutar("cajero", "vender-1",
+                "PUT /productos/" + id + "/vender", 2, () -> productoService.venderProducto(id, 2));
+        ClavesIdempotencia.Respuesta reintento = claves.ejecutar("cajero", "vender-1",
+                "PUT /productos/" + id + "/vender", 2, () -> productoService.venderProducto(id, 2));
+
+        assertFalse(primera.repetida());
+        assertTrue(reintento.repetida());
+        assertEquals(primera.cuerpo(), reintento.cuerpo());
+        assertEquals(8, stock(id));
+        assertEquals(ventasAntes + 1, ventaRepository.count());
+
+        // La misma clave con otra cantidad es otro pedido
+        assertThrows(ClaveIdempotenciaReutilizadaException.class, () -> claves.ejecutar("cajero", "vender-1",
+                "PUT /productos/" + id + "/vender", 3, () -> productoService.venderProducto(id, 3)));
+        assertEquals(8, stock(id));
+    }
+
+    @Test
+    public void ejecutar_MismaClaveDeOtroUsuario_NoDebeRepetirLaRespuestaAjena() {
+        Long id = productoService.guardar(new Producto("Lápiz Idempotente", new BigDecimal("1.00"), 10)).getId();
+
+        ClavesIdempotencia.Respuesta deUno = claves.ejecutar("cajero-1", "compartida-1",
+                "PUT /productos/" + id + "/vender", 1, () -> productoService.venderProducto(id, 1));
+        ClavesIdempotencia.Respuesta deOtro = claves.ejecutar("cajero-2", "compartida-1",
+                "PUT /productos/" + id + "/vender", 1, () -> productoService.venderProducto(id, 1));
+
+        assertFalse(deUno.repetida());
+        assertFalse(deOtro.repetida());
+        assertEquals(8, stock(id));
+    }
+
+    @Test
+    public void ejecutar_PedidoFallido_NoDebeGuardarLaClave() {
+        Long id = productoService.guardar(new Producto("Cable Idempotente", new BigDecimal("5.00"), 1)).getId();
+        List<LineaCarrito> carrito = List.of(new LineaCarrito(id, 3));
+
+        assertThrows(RuntimeException.class, () -> claves.ejecutar("cajero", "checkout-1",
+                "POST /ventas/checkout", carrito, () -> ventaService.checkout(carrito)));
+        productoService.ajustarStock(id, 5);
+
+        // Sin stock no se vendió nada: el reintento se procesa
+        ClavesIdempotencia.Respuesta reintento = claves.ejecutar("cajero", "checkout-1",
+                "POST /ventas/checkout", carrito, () -> ventaService.checkout(carrito));
+        assertFalse(reintento.repetida());
+        assertEquals(3, stock(id));
+    }
+
+    @Test
+    public void ejecutar_ReintentosSimultaneos_DebeVenderUnaSolaVez() throws Exception {
+        Long id = productoService.guardar(new Producto("Teclado Idempotente", new BigDecimal("30.00"), 20)).getId();
+        int pedidos = 4;
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<ClavesIdempotencia.Respuesta>> respuestas = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(pedidos)) {
+            Callable<ClavesIdempotencia.Respuesta> pedido = () -> {
+                largada.await();
+                return claves.ejecutar("cajero", "simultaneo-1", "PUT /productos/" + id + "/vender", 1,
+                        () -> productoService.venderProducto(id, 1));
+            };
+            for (int i = 0; i < pedidos; i++) {
+                respuestas.add(executor.submit(pedido));
+            }
+            largada.countDown();
+        }
+
+        long nuevas = 0;
+        String cuerpo = respuestas.get(0).get().cuerpo();
+        for (Future<ClavesIdempotencia.Respuesta> respuesta : respuestas) {
+            nuevas += respuesta.get().repetida() ? 0 : 1;
+            assertEquals(cuerpo, respuesta.get().cuerpo());
+        }
+        assertEquals(1, nuevas);
+        assertEquals(19, stock(id));
+    }
+
+    @Test
+    public void ejecutar_ReintentosSimultaneosConElUltimoStock_DebenRepetirLaVenta() throws Exception {
+        // Con stock == cantidad, un reintento que llegara al stock fallaría con "Stock insuficiente"
+        Long id = productoService.guardar(new Producto("Monitor Idempotente", new BigDecimal("90.00"), 2)).getId();
+        List<LineaCarrito> carrito = List.of(new LineaCarrito(id, 2));
+        int pedidos = 4;
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<ClavesIdempotencia.Respuesta>> respuestas = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(pedidos)) {
+            Callable<ClavesIdempotencia.Respuesta> pedido = () -> {
+                largada.await();
+                return claves.ejecutar("cajero", "ultimo-stock-1", "POST /ventas/checkout", carrito,
+                        () -> ventaService.checkout(carrito));
+            };
+            for (int i = 0; i < pedidos; i++) {
+                respuestas.add(executor.submit(pedido));
+            }
+            largada.countDown();
+        }
+
+        long nuevas = 0;
+        String cuerpo = respuestas.get(0).get().cuerpo();
+        for (Future<ClavesIdempotencia.Respuesta> respuesta : respuestas) {
+            nuevas += respuesta.get().repetida() ? 0 : 1;
+            assertEquals(cuerpo, respuesta.get().cuerpo());
+        }
+        assertEquals(1, nuevas);
+        assertEquals(0, stock(id));
+    }
+
+    @Test
+    public void ejecutar_ClaveLeidaDeLaTabla_DebeVencerEnLaCacheCuandoVenceLaFila() throws Exception {
+        Long id = productoService.guardar(new Producto("Pila Idempotente", new BigDecimal("3.00"), 10)).getId();
+        String operacion = "PUT /productos/" + id + "/vender";
+        claves.ejecutar("cajero", "original-1", operacion, 1, () -> productoService.venderProducto(id, 1));
+        // Misma huella y respuesta, pero con la fila a punto de vencer
+        jdbcTemplate.update("INSERT INTO clave_idempotencia (usuario, clave, huella, respuesta, creada, vence) "
+                + "SELECT usuario, 'por-vencer-1', huella, respuesta, NOW(), DATEADD('SECOND', 1, NOW()) "
+                + "FROM clave_idempotencia WHERE usuario = 'cajero' AND clave = 'original-1'");
+
+        assertTrue(claves.ejecutar("cajero", "por-vencer-1", operacion, 1,
+                () -> productoService.venderProducto(id, 1)).repetida());
+        assertEquals(9, stock(id));
+
+        Thread.sleep(1500);
+        assertFalse(claves.ejecutar("cajero", "por-vencer-1", operacion, 1,
+                () -> productoService.venderProducto(id, 1)).repetida());
+        assertEquals(8, stock(id));
+    }
+
+    @Test
+    public void eliminarVencidas_DebeBorrarSoloLasVencidas() {
+        jdbcTemplate.update("INSERT INTO clave_idempotencia (usuario, clave, huella, respuesta, creada, vence) "
+                + "VALUES ('cajero', 'vencida-1', 'x', '{}', DATEADD('DAY', -2, NOW()), DATEADD('DAY', -1, NOW()))");
+        jdbcTemplate.update("INSERT INTO clave_idempotencia (usuario, clave, huella, respuesta, creada, vence) "
+                + "VALUES ('cajero', 'vigente-1', 'x', '{}', NOW(), DATEADD('DAY', 1, NOW()))");
+
+        assertTrue(claves.eliminarVencidas() >= 1);
+
+        assertEquals(List.of("vigente-1"), jdbcTemplate.queryForList(
+                "SELECT clave FROM clave_idempotencia WHERE clave IN ('vencida-1', 'vigente-1')", String.class));
+    }
+
+    private int stock(Long id) {
+        return productoService.obtenerPorId(id).orElseThrow().getStock();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Producto;
+import com.example.demo.repository.ProductoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Las ediciones usan bloqueo optimista y nunca pisan el stock que cambian
+ * las ventas.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class EdicionProductoTest {
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void edicion_ConVersionVieja_DebeFallarSinPisarNada() {
+        Producto creado = productoService.guardar(new Producto("Edición", new BigDecimal("10.00"), 20));
+        Long id = creado.getId();
+        Long versionFormulario = creado.getVersion();
+
+        Producto primera = new Producto("Edición A", new BigDecimal("11.00"), 20);
+        primera.setVersion(versionFormulario);
+        Producto editado = productoService.actualizarProducto(id, primera);
+        assertEquals(versionFormulario + 1, editado.getVersion());
+
+        // Un segundo formulario abierto con la misma versión ya no puede guardar
+        Producto segunda = new Producto("Edición B", new BigDecimal("99.00"), 20);
+        segunda.setVersion(versionFormulario);
+        assertThrows(OptimisticLockingFailureException.class, () -> productoService.actualizarProducto(id, segunda));
+        assertEquals("Edición A", productoService.obtenerPorId(id).orElseThrow().getNombre());
+    }
+
+    @Test
+    public void ventasYAjustes_NoInvalidanLaEdicionNiSonPisadosPorElla() {
+        Producto creado = productoService.guardar(new Producto("Stock", new BigDecimal("10.00"), 20));
+        Long id = creado.getId();
+        Long versionFormulario = creado.getVersion();
+
+        productoService.venderProducto(id, 3);
+        productoService.ajustarStock(id, 10);
+        assertEquals(versionFormulario, productoService.obtenerPorId(id).orElseThrow().getVersion());
+
+        // El formulario todavía muestra stock 20: la edición no lo aplica
+        Producto detalles = new Producto("Stock editado", new BigDecimal("12.00"), 20);
+        detalles.setVersion(versionFormulario);
+        productoService.actualizarProducto(id, detalles);
+        assertEquals(27, productoService.obtenerPorId(id).orElseThrow().getStock());
+
+        assertThrows(RuntimeException.class, () -> productoService.ajustarStock(id, -28));
+        assertEquals(27, productoService.obtenerPorId(id).orElseThrow().getStock());
+    }
+
+    @Test
+    public void ventaEntreLecturaYGuardadoDeLaEdicion_NoDebePerderse() throws Exception {
+        Long id = productoService.guardar(new Producto("Edición lenta", new BigDecimal("10.00"), 20)).getId();
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            transactionTemplate.executeWithoutResult(estado -> {
+                // La edición ya leyó el producto con stock 20 cuando se confirma la venta
+                assertEquals(20, productoRepository.findById(id).orElseThrow().getStock());
+                try {
+                    executor.submit(() -> productoService.venderProducto(id, 3)).get(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                Producto editado = productoService.actualizarProducto(id,
+                        new Producto("Edición lenta B", new BigDecimal("12.00"), 20));
+                assertEquals(17, editado.getStock());
+            });
+        }
+
+        Producto guardado = productoRepository.findById(id).orElseThrow();
+        assertEquals("Edición lenta B", guardado.getNombre());
+        assertEquals(17, guardado.getStock());
+    }
+}
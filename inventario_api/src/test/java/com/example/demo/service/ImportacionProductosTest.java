@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CambiosProductos;
+import com.example.demo.dto.ProductoListado;
+import com.example.demo.dto.ResultadoImportacion;
+import com.example.demo.model.Categoria;
+import com.example.demo.model.Marca;
+import com.example.demo.model.Producto;
+import com.example.demo.repository.CategoriaRepository;
+import com.example.demo.repository.MarcaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Importación masiva contra H2: altas, modificaciones por id y por nombre,
+ * errores por línea y versionado de los cambios.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ImportacionProductosTest {
+
+    @Autowired
+    private ImportacionProductos importacion;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private VersionesProducto versiones;
+
+    @Autowired
+    private IndiceNombresProducto indiceNombres;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private MarcaRepository marcaRepository;
+
+    @Test
+    public void importarCsv_DebeCrearModificarYReportarErroresPorLinea() throws IOException {
+        // El perfil de test no carga datos de demostración
+        categoriaRepository.save(new Categoria("Periféricos"));
+        marcaRepository.save(new Marca("Logitech"));
+        Producto existente = productoService.guardar(new Producto("Importado existente", new BigDecimal("10.00"), 7));
+        long versionAntes = versiones.actual();
+
+        ResultadoImportacion resultado = importar(ImportacionProductos.Formato.CSV, "\uFEFF"
+                + "nombre;precio;stock;precio_costo;Categoría;marca\n"
+                + "Importado nuevo;1500.50;12;900;perifericos;LOGITECH\n"
+                + "Importado existente;11.00;999;;;\n"
+                + "\n"
+                + "Importado con error;abc;1;;;\n"
+                + "Importado sin categoría;5;1;;Inexistente;\n"
+                + "\"Importado; con separador\";3.5;2;;;\n"
+                + "Importado nuevo;1600;12;;;\n");
+
+        assertEquals(6, resultado.getFilas());
+        assertEquals(2, resultado.getCreados());
+        // La segunda fila de "Importado nuevo" modifica lo que creó la primera
+        assertEquals(2, resultado.getActualizados());
+        assertEquals(2, resultado.getConError());
+        assertEquals(5, resultado.getErrores().get(0).getLinea());
+        assertEquals("Valor inválido para precio: abc", resultado.getErrores().get(0).getMensaje());
+        assertEquals("Categoría no encontrada: Inexistente", resultado.getErrores().get(1).getMensaje());
+
+        ProductoListado modificado = productoService.obtenerPorId(existente.getId()).orElseThrow();
+        assertEquals(0, new BigDecimal("11.00").compareTo(modificado.getPrecio()));
+        // El stock de un producto existente no se toma del archivo
+        assertEquals(7, modificado.getStock());
+        assertEquals(existente.getVersion() + 1, modificado.getVersion());
+
+        List<Long> nuevos = indiceNombres.buscar("importado nuevo");
+        assertEquals(1, nuevos.size());
+        ProductoListado nuevo = productoService.obtenerPorId(nuevos.get(0)).orElseThrow();
+        assertEquals(0, new BigDecimal("1600.00").compareTo(nuevo.getPrecio()));
+        assertEquals(12, nuevo.getStock());
+        assertEquals(1, indiceNombres.buscar("con separador").size());
+
+        CambiosProductos cambios = productoService.obtenerCambios(versionAntes);
+        List<Long> cambiados = cambios.getProductos().stream().map(ProductoListado::getId).toList();
+        assertTrue(cambiados.containsAll(List.of(existente.getId(), nuevo.getId())));
+    }
+
+    @Test
+    public void importarNdjson_ConIdInexistente_DebeReportarLaLinea() throws IOException {
+        Producto existente = productoService.guardar(new Producto("NDJSON existente", new BigDecimal("10.00"), 3));
+
+        ResultadoImportacion resultado = importar(ImportacionProductos.Formato.NDJSON,
+                "{\"id\": " + existente.getId() + ", \"nombre\": \"NDJSON renombrado\", \"precio\": 20}\n"
+                        + "{\"id\": 987654321, \"nombre\": \"No existe\", \"precio\": 1}\n"
+                        + "{\"nombre\": \"NDJSON nuevo\", \"precio\": 2, \"stockMinimo\": 1}\n"
+                        + "[1, 2]\n"
+                        + "{\"nombre\": \"Sin precio\"}\n");
+
+        assertEquals(5, resultado.getFilas());
+        assertEquals(1, resultado.getCreados());
+        assertEquals(1, resultado.getActualizados());
+        assertEquals(3, resultado.getConError());
+        assertEquals(2, resultado.getErrores().get(0).getLinea());
+        assertEquals("Producto no encontrado con ID: 987654321", resultado.getErrores().get(0).getMensaje());
+        assertEquals("NDJSON renombrado", productoService.obtenerPorId(existente.getId()).orElseThrow().getNombre());
+    }
+
+    @Test
+    public void importarCsv_SinColumnasObligatorias_DebeFallarSinImportar() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importar(ImportacionProductos.Formato.CSV, "nombre,stock\nSin precio,1\n"));
+        assertThrows(IllegalArgumentException.class,
+                () -> importar(ImportacionProductos.Formato.CSV, "nombre,precio,preico\nTypo,1,1\n"));
+    }
+
+    private ResultadoImportacion importar(ImportacionProductos.Formato formato, String contenido)
+            throws IOException {
+        return importacion.importar(new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8)), formato);
+    }
+}
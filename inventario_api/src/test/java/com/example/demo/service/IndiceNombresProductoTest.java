@@ -0,0 +1,107 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductoResumen;
+import com.example.demo.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class IndiceNombresProductoTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    private IndiceNombresProducto indice;
+
+    @BeforeEach
+    public void setUp() {
+        when(productoRepository.findAllResumen()).thenReturn(List.of(
+                resumen(1L, "Filtro de Aceite Genérico"),
+                resumen(2L, "Kit Mecánico Básico"),
+                resumen(3L, "Aceite"),
+                resumen(4L, "Aceite Sintético 5W-30")));
+        indice = new IndiceNombresProducto(productoRepository, Duration.ofMinutes(5));
+        indice.cargar();
+    }
+
+    @Test
+    public void buscar_DebeIgnorarMayusculasYAcentos() {
+        assertEquals(List.of(2L), indice.buscar("MECANICO"));
+        assertEquals(List.of(1L), indice.buscar("genérico"));
+        assertEquals(List.of(4L), indice.buscar("sintetico 5w"));
+    }
+
+    @Test
+    public void buscar_DebeOrdenarPorRelevancia() {
+        // Idéntico, después prefijo del nombre, después inicio de palabra
+        assertEquals(List.of(3L, 4L, 1L), indice.buscar("aceite"));
+    }
+
+    @Test
+    public void buscar_DebeSerPorSubcadenaNoPorTrigramasSueltos() {
+        // "ace" y "ite" están en los nombres, pero no "aceitx"
+        assertTrue(indice.buscar("aceitx").isEmpty());
+        // Textos de menos de tres caracteres también buscan por subcadena
+        assertEquals(List.of(2L), indice.buscar("ki"));
+    }
+
+    @Test
+    public void actualizarYEliminar_DebenReflejarseEnLaBusqueda() {
+        indice.actualizar(2L, "Kit Eléctrico");
+        assertTrue(indice.buscar("mecanico").isEmpty());
+        assertEquals(List.of(2L), indice.buscar("electrico"));
+
+        indice.eliminar(3L);
+        assertEquals(List.of(4L, 1L), indice.buscar("aceite"));
+    }
+
+    @Test
+    public void actualizar_EnTransaccion_DebeAplicarseDespuesDelCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            indice.actualizar(5L, "Bujía Iridium");
+            indice.eliminar(3L);
+            // Si la transacción se revierte, las búsquedas no deben haberlo visto
+            assertTrue(indice.buscar("bujia").isEmpty());
+            assertEquals(List.of(3L, 4L, 1L), indice.buscar("aceite"));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(List.of(5L), indice.buscar("bujia"));
+        assertEquals(List.of(4L, 1L), indice.buscar("aceite"));
+    }
+
+    @Test
+    public void cargar_DebeTraerLosCambiosDeOtrasInstancias() {
+        // Otra instancia renombró el 2 y dio de baja el 3
+        when(productoRepository.findAllResumen()).thenReturn(List.of(
+                resumen(1L, "Filtro de Aceite Genérico"),
+                resumen(2L, "Kit Eléctrico"),
+                resumen(4L, "Aceite Sintético 5W-30")));
+
+        indice.cargar();
+
+        assertEquals(List.of(2L), indice.buscar("electrico"));
+        assertEquals(List.of(4L, 1L), indice.buscar("aceite"));
+    }
+
+    private static ProductoResumen resumen(Long id, String nombre) {
+        return new ProductoResumen(id, nombre, BigDecimal.ONE, 0.0, 1);
+    }
+}
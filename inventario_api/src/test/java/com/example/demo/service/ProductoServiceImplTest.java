@@ -1,23 +1,32 @@
 package com.example.demo.service;
 
-import com.example.demo.model.Producto;
+import com.example.demo.dto.FiltroProductos;
+import com.example.demo.dto.ProductoResumen;
 import com.example.demo.model.Venta;
 import com.example.demo.repository.ProductoRepository;
 import com.example.demo.repository.VentaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.ScrollPosition;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.times;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @ExtendWith(MockitoExtension.class)
 public class ProductoServiceImplTest {
@@ -28,6 +37,27 @@ public class ProductoServiceImplTest {
     @Mock
     private VentaRepository ventaRepository;
 
+    @Mock
+    private CatalogoCache catalogoCache;
+
+    @Mock
+    private IndiceNombresProducto indiceNombres;
+
+    @Mock
+    private VentaDiariaService ventaDiariaService;
+
+    @Mock
+    private AlertasStock alertasStock;
+
+    @Mock
+    private CanalCambiosProducto canalCambios;
+
+    @Mock
+    private VersionesProducto versiones;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private ProductoServiceImpl productoService;
 
@@ -39,19 +69,22 @@ public class ProductoServiceImplTest {
         BigDecimal precio = new BigDecimal("100.00");
         int stockInicial = 10;
 
-        Producto producto = new Producto("Test Product", precio, stockInicial);
-        producto.setId(productoId);
+        ProductoResumen producto = new ProductoResumen(productoId, "Test Product", precio, null,
+                stockInicial - cantidadVenta);
 
-        when(productoRepository.findById(productoId)).thenReturn(Optional.of(producto));
-        when(productoRepository.save(any(Producto.class))).thenReturn(producto);
+        when(productoRepository.descontarStock(productoId, cantidadVenta)).thenReturn(1);
+        when(productoRepository.findResumenById(productoId)).thenReturn(Optional.of(producto));
         when(ventaRepository.save(any(Venta.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(versiones.registrar(java.util.List.of(productoId))).thenReturn(7L);
 
         // Act
-        productoService.venderProducto(productoId, cantidadVenta);
+        ProductoResumen resultado = productoService.venderProducto(productoId, cantidadVenta);
 
         // Assert
-        // Verificar que el stock bajó
-        assertEquals(stockInicial - cantidadVenta, producto.getStock());
+        // Verificar que el stock bajó con el UPDATE atómico
+        verify(productoRepository).descontarStock(productoId, cantidadVenta);
+        assertEquals(stockInicial - cantidadVenta, resultado.getStock());
+        assertEquals(1.0, meterRegistry.counter("ventas.resultado", "resultado", "ok").count());
 
         // Verificar que se guardó la venta con los valores correctos
         verify(ventaRepository, times(1))
@@ -59,6 +92,12 @@ public class ProductoServiceImplTest {
                         venta.getCantidadVendida() == cantidadVenta &&
                         venta.getPrecioUnitario() == 100.00 &&
                         venta.getMontoTotal() == 200.00));
+        // Y que se acumuló en el resumen diario dentro de la misma transacción
+        verify(ventaDiariaService).registrar(org.mockito.ArgumentMatchers.argThat(ventas -> ventas.size() == 1));
+        // Y que el índice de alertas recibió el stock resultante
+        verify(alertasStock).actualizar(producto);
+        // Y que el cambio de stock se publicó con la versión asignada
+        verify(canalCambios).publicar(producto, 7L);
     }
 
     @Test
@@ -66,12 +105,10 @@ public class ProductoServiceImplTest {
         // Arrange
         Long productoId = 1L;
         int cantidadVenta = 10;
-        int stockInicial = 5; // Stock menor que la venta
-
-        Producto producto = new Producto("Escasez", new BigDecimal("50.00"), stockInicial);
-        producto.setId(productoId);
 
-        when(productoRepository.findById(productoId)).thenReturn(Optional.of(producto));
+        // Stock menor que la venta: el UPDATE condicional no afecta filas
+        when(productoRepository.descontarStock(productoId, cantidadVenta)).thenReturn(0);
+        when(productoRepository.existsById(productoId)).thenReturn(true);
 
         // Act & Assert
         org.junit.jupiter.api.Assertions.assertThrows(RuntimeException.class, () -> {
@@ -80,6 +117,7 @@ public class ProductoServiceImplTest {
 
         // Verify no sale was saved
         verify(ventaRepository, times(0)).save(any(Venta.class));
+        assertEquals(1.0, meterRegistry.counter("ventas.resultado", "resultado", "stock_insuficiente").count());
     }
 
     @Test
@@ -90,11 +128,11 @@ public class ProductoServiceImplTest {
         BigDecimal precioOriginal = new BigDecimal("1000.00");
         int stockInicial = 5;
 
-        Producto producto = new Producto("Snapshot Item", precioOriginal, stockInicial);
-        producto.setId(productoId);
+        ProductoResumen producto = new ProductoResumen(productoId, "Snapshot Item", precioOriginal, 600.0,
+                stockInicial - cantidadVenta);
 
-        when(productoRepository.findById(productoId)).thenReturn(Optional.of(producto));
-        when(productoRepository.save(any(Producto.class))).thenReturn(producto);
+        when(productoRepository.descontarStock(productoId, cantidadVenta)).thenReturn(1);
+        when(productoRepository.findResumenById(productoId)).thenReturn(Optional.of(producto));
         when(ventaRepository.save(any(Venta.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
@@ -103,11 +141,44 @@ public class ProductoServiceImplTest {
         // Assert
         // Verificamos que la venta guardada tenga el precio original (1000)
         verify(ventaRepository)
-                .save(org.mockito.ArgumentMatchers.argThat(venta -> venta.getPrecioUnitario() == 1000.00));
+                .save(org.mockito.ArgumentMatchers.argThat(venta -> venta.getPrecioUnitario() == 1000.00
+                        && venta.getCostoUnitario() == 600.0));
 
         // Simular cambio de precio en el producto POSTERIOR a la venta no debería
         // afectar la venta ya guardada
         // (Esto es implícito por el diseño, pero confirmamos que se usó el valor
         // numérico)
     }
+
+    @Test
+    public void venderProducto_NoExiste_DebeLanzarExcepcionNoEncontrado() {
+        when(productoRepository.descontarStock(anyLong(), anyInt())).thenReturn(0);
+        when(productoRepository.existsById(99L)).thenReturn(false);
+
+        RuntimeException e = org.junit.jupiter.api.Assertions.assertThrows(RuntimeException.class,
+                () -> productoService.venderProducto(99L, 1));
+
+        assertEquals("Producto no encontrado con ID: 99", e.getMessage());
+        assertEquals(1.0, meterRegistry.counter("ventas.resultado", "resultado", "no_encontrado").count());
+        verify(ventaRepository, times(0)).save(any(Venta.class));
+    }
+
+    @Test
+    public void obtenerPagina_CursorDeOtroOrden_DebeRechazarse() {
+        Map<String, Object> claves = new LinkedHashMap<>();
+        claves.put("nombre", "Filtro: aceite");
+        claves.put("id", 7L);
+        String cursor = ProductoCursor.codificar("nombre", false, ScrollPosition.forward(claves));
+        assertEquals(ScrollPosition.forward(claves), ProductoCursor.decodificar("nombre", false, cursor));
+
+        FiltroProductos porPrecio = new FiltroProductos();
+        porPrecio.setOrden("precio");
+        assertThrows(IllegalArgumentException.class, () -> productoService.obtenerPagina(porPrecio, cursor, 10));
+
+        FiltroProductos porNombreDescendente = new FiltroProductos();
+        porNombreDescendente.setOrden("nombre");
+        porNombreDescendente.setDescendente(true);
+        assertThrows(IllegalArgumentException.class,
+                () -> productoService.obtenerPagina(porNombreDescendente, cursor, 10));
+    }
 }
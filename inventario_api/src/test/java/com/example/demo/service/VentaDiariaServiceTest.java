@@ -0,0 +1,171 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.LineaCarrito;
+import com.example.demo.dto.MetricasVentas;
+import com.example.demo.dto.ResultadoAnulacion;
+import com.example.demo.dto.ResumenVentas;
+import com.example.demo.model.Producto;
+import com.example.demo.model.Venta;
+import com.example.demo.model.VentaDiaria;
+import com.example.demo.repository.VentaDiariaRepository;
+import com.example.demo.repository.VentaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El resumen diario mantenido venta a venta debe coincidir con el recalculado
+ * desde el historial.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class VentaDiariaServiceTest {
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private VentaDiariaRepository ventaDiariaRepository;
+
+    @Test
+    public void resumenIncremental_DebeCoincidirConLaReconstruccion() {
+        Producto producto = new Producto("Rollup test", new BigDecimal("12.50"), 100);
+        producto.setPrecioCosto(8.0);
+        Long id = productoService.guardar(producto).getId();
+
+        productoService.venderProducto(id, 3);
+        productoService.venderProducto(id, 2);
+        ventaService.checkout(List.of(new LineaCarrito(id, 4)));
+        Venta ultima = ventaRepository.findAll().stream()
+                .filter(v -> id.equals(v.getProductoId()))
+                .reduce((a, b) -> b)
+                .orElseThrow();
+        ventaService.eliminarVenta(ultima.getId());
+
+        Map<String, String> incremental = instantanea();
+        assertFalse(incremental.isEmpty());
+
+        ventaService.reconstruirResumenDiario();
+        assertEquals(instantanea(), incremental);
+
+        // Los totales por mes suman lo mismo que el total del rango
+        MetricasVentas metricas = ventaService.obtenerMetricas(null, null, "mes");
+        double porMes = metricas.getDetalle().stream().mapToDouble(ResumenVentas::getTotalVendido).sum();
+        assertEquals(metricas.getTotales().getTotalVendido(), porMes, 0.001);
+    }
+
+    @Test
+    public void checkout_LineasQueDesbordanLaCantidad_DebeRechazarse() {
+        Long id = productoService.guardar(new Producto("Desborde test", new BigDecimal("1.00"), 10)).getId();
+        List<LineaCarrito> carrito = List.of(new LineaCarrito(id, Integer.MAX_VALUE), new LineaCarrito(id, 2));
+
+        assertThrows(IllegalArgumentException.class, () -> ventaService.checkout(carrito));
+        assertEquals(10, productoService.obtenerTodos().stream().filter(p -> p.getId().equals(id)).findFirst()
+                .orElseThrow().getStock());
+    }
+
+    @Test
+    public void anularVentas_DebeReponerStockPorProductoYMantenerElResumen() {
+        Long id = productoService.guardar(new Producto("Anulación test", new BigDecimal("4.00"), 50)).getId();
+        productoService.venderProducto(id, 5);
+        ventaService.checkout(List.of(new LineaCarrito(id, 6)));
+        // Histórica sin productoId: se repone al producto con el mismo nombre
+        Venta historica = ventaRepository.save(new Venta("ANULACION  TEST", 2, 4.0, 8.0));
+        List<Long> ids = ventaRepository.findAll().stream()
+                .filter(v -> id.equals(v.getProductoId()) || v.getId().equals(historica.getId()))
+                .map(Venta::getId)
+                .toList();
+        ventaService.reconstruirResumenDiario();
+
+        ResultadoAnulacion resultado = ventaService.anularVentas(ids, null, null);
+
+        assertEquals(3, resultado.getVentasAnuladas());
+        assertEquals(13, resultado.getUnidadesRepuestas());
+        assertEquals(52, resultado.getProductos().get(0).getStock());
+        assertTrue(ventaRepository.findAllById(ids).isEmpty());
+
+        Map<String, String> incremental = instantanea();
+        ventaService.reconstruirResumenDiario();
+        assertEquals(instantanea(), incremental);
+
+        // Ids inexistentes: no se anula nada
+        assertThrows(RuntimeException.class, () -> ventaService.anularVentas(List.of(ids.get(0)), null, null));
+    }
+
+    @Test
+    public void anularVentas_MasDelMaximo_DebeRechazarseSinAnular() {
+        Long id = productoService.guardar(new Producto("Anulación límite", new BigDecimal("1.00"), 100)).getId();
+        for (int i = 0; i < 21; i++) {
+            productoService.venderProducto(id, 1);
+        }
+        List<Long> ids = ventaRepository.findAll().stream()
+                .filter(v -> id.equals(v.getProductoId()))
+                .map(Venta::getId)
+                .toList();
+        LocalDate hoy = LocalDate.now();
+
+        // Máximo de 20 en el perfil de test
+        assertThrows(IllegalArgumentException.class, () -> ventaService.anularVentas(ids, null, null));
+        assertThrows(IllegalArgumentException.class, () -> ventaService.anularVentas(null, hoy, hoy));
+        assertEquals(79, productoService.obtenerPorId(id).orElseThrow().getStock());
+        assertEquals(21, ventaRepository.findAllById(ids).size());
+    }
+
+    @Test
+    public void anularVentas_UnidadesQueDesbordanUnInt_NoDebenCorromperElStock() {
+        Long a = productoService.guardar(new Producto("Anulación enorme A", new BigDecimal("1.00"), 0)).getId();
+        Long b = productoService.guardar(new Producto("Anulación enorme B", new BigDecimal("1.00"), 0)).getId();
+        List<Long> deA = List.of(ventaEnorme(a).getId(), ventaEnorme(a).getId());
+        Long deB = ventaEnorme(b).getId();
+
+        // Al mismo producto no le entran: se rechaza sin reponer nada
+        assertThrows(IllegalArgumentException.class, () -> ventaService.anularVentas(deA, null, null));
+        assertEquals(0, productoService.obtenerPorId(a).orElseThrow().getStock());
+        assertEquals(2, ventaRepository.findAllById(deA).size());
+        ventaRepository.deleteAllById(deA);
+
+        // Entre productos distintos el total pasa de un int sin problema
+        List<Long> ids = List.of(ventaEnorme(a).getId(), deB);
+        ResultadoAnulacion resultado = ventaService.anularVentas(ids, null, null);
+        assertEquals(4_000_000_000L, resultado.getUnidadesRepuestas());
+        assertEquals(2_000_000_000, productoService.obtenerPorId(a).orElseThrow().getStock());
+        assertEquals(2_000_000_000, productoService.obtenerPorId(b).orElseThrow().getStock());
+    }
+
+    /**
+     * Venta guardada sin pasar por el rollup ni el stock: la anulación sólo
+     * necesita la fila.
+     */
+    private Venta ventaEnorme(Long productoId) {
+        Venta venta = new Venta("Anulación enorme", 2_000_000_000, 1.0, 2_000_000_000.0);
+        venta.setProductoId(productoId);
+        return ventaRepository.save(venta);
+    }
+
+    private Map<String, String> instantanea() {
+        Map<String, String> filas = new TreeMap<>();
+        for (VentaDiaria fila : ventaDiariaRepository.findAll()) {
+            filas.put(fila.getFecha() + "/" + fila.getProductoId(), String.format("%d %.2f %.2f %d",
+                    fila.getUnidades(), fila.getMontoTotal(), fila.getCostoTotal(), fila.getOperaciones()));
+        }
+        return filas;
+    }
+}